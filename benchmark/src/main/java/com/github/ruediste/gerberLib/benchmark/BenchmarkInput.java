@@ -0,0 +1,78 @@
+package com.github.ruediste.gerberLib.benchmark;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.ruediste.gerberLib.GerberBoundingBoxCollector;
+import com.github.ruediste.gerberLib.WarningCollector;
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.parser.GerberParsingEventRecorder;
+import com.github.ruediste.gerberLib.read.GerberReadGraphicsAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventRecorder;
+
+/**
+ * The input of a benchmark, together with the output of each stage, so a stage
+ * can be measured without the stages before it.
+ *
+ * <p>
+ * The input is either a file relative to the samples directory (system property
+ * {@code gerberLib.samples}, defaults to {@code ../samples}) or
+ * {@code synthetic:<features>} for a board generated by the
+ * {@link SyntheticBoardGenerator}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkInput {
+
+	@Param({ "kicadX3/dvk-mx8m-bsb-F_Cu.gbr", "kicadX3/dvk-mx8m-bsb-F_SilkS.gbr",
+			"examples20201015/sample_macro.gbr", "synthetic:1000", "synthetic:100000" })
+	public String input;
+
+	public String content;
+	public byte[] bytes;
+
+	/**
+	 * Events of the parser
+	 */
+	public GerberParsingEventRecorder parsingEvents;
+
+	/**
+	 * Events of the geometric primitive adapter
+	 */
+	public GerberReadGeometricPrimitiveEventRecorder primitiveEvents;
+
+	/**
+	 * Bounds of the image, in mm
+	 */
+	public Rectangle2D bounds;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		if (input.startsWith("synthetic:"))
+			content = new SyntheticBoardGenerator(0).generate(Integer.parseInt(input.substring("synthetic:".length())));
+		else
+			content = Files.readString(Path.of(System.getProperty("gerberLib.samples", "../samples")).resolve(input));
+		bytes = content.getBytes(StandardCharsets.UTF_8);
+
+		parsingEvents = new GerberParsingEventRecorder();
+		new GerberParser(parsingEvents, content).file();
+
+		WarningCollector warnings = new WarningCollector();
+		primitiveEvents = new GerberReadGeometricPrimitiveEventRecorder();
+		parsingEvents.replay(new GerberReadGraphicsAdapter(warnings,
+				new GerberReadGeometricPrimitiveAdapter(warnings, primitiveEvents)));
+
+		GerberBoundingBoxCollector boundsCollector = new GerberBoundingBoxCollector();
+		primitiveEvents.replay(boundsCollector);
+		bounds = boundsCollector.getBounds();
+	}
+}
@@ -0,0 +1,23 @@
+package com.github.ruediste.gerberLib.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the input bytes processed, reported by JMH as bytes per time unit next
+ * to the operations
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class ByteCounter {
+
+	public long bytes;
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		bytes = 0;
+	}
+}
@@ -0,0 +1,139 @@
+package com.github.ruediste.gerberLib.benchmark;
+
+import java.util.List;
+
+import com.github.ruediste.gerberLib.parser.GerberCoordinateFormatSpecification;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroBody;
+import com.github.ruediste.gerberLib.parser.GerberParsingFixedPointEventHandler;
+import com.github.ruediste.gerberLib.parser.InputPosition;
+import com.github.ruediste.gerberLib.parser.InterpolationMode;
+import com.github.ruediste.gerberLib.read.QuadrantMode;
+
+/**
+ * Handler ignoring all events, to measure the parser alone. Receives the
+ * coordinates as fixed point values, like the GerberReadGraphicsAdapter
+ * does.
+ */
+public class NoOpParsingEventHandler implements GerberParsingFixedPointEventHandler {
+
+	@Override
+	public void comment(InputPosition pos, String string) {
+	}
+
+	@Override
+	public void coordinateFormatSpecification(InputPosition pos, GerberCoordinateFormatSpecification format) {
+	}
+
+	@Override
+	public void unit(InputPosition pos, String unit) {
+	}
+
+	@Override
+	public void loadPolarity(InputPosition pos, String polarity) {
+	}
+
+	@Override
+	public void apertureDefinition(InputPosition pos, int number, String template, List<String> parameters) {
+	}
+
+	@Override
+	public void setCurrentAperture(InputPosition pos, int aperture) {
+	}
+
+	@Override
+	public void interpolateOperation(InputPosition pos, String x, String y, String i, String j) {
+	}
+
+	@Override
+	public void moveOperation(InputPosition pos, String x, String y) {
+	}
+
+	@Override
+	public void flashOperation(InputPosition pos, String x, String y) {
+	}
+
+	@Override
+	public void interpolateOperation(InputPosition pos, int present, long x, long y, long i, long j) {
+	}
+
+	@Override
+	public void moveOperation(InputPosition pos, int present, long x, long y) {
+	}
+
+	@Override
+	public void flashOperation(InputPosition pos, int present, long x, long y) {
+	}
+
+	@Override
+	public void setInterpolationMode(InputPosition pos, InterpolationMode linear) {
+	}
+
+	@Override
+	public void endOfFile(InputPosition pos) {
+	}
+
+	@Override
+	public void unknownStatement(InputPosition pos, String text) {
+	}
+
+	@Override
+	public void apertureMacro(InputPosition pos, String name, MacroBody body) {
+	}
+
+	@Override
+	public void beginRegion(InputPosition pos) {
+	}
+
+	@Override
+	public void endRegion(InputPosition pos) {
+	}
+
+	@Override
+	public void setQuadrantMode(InputPosition pos, QuadrantMode mode) {
+	}
+
+	@Override
+	public void beginBlockAperture(int nr) {
+	}
+
+	@Override
+	public void endBlockAperture(int nr) {
+	}
+
+	@Override
+	public void loadMirroring(InputPosition pos, String mirroring) {
+	}
+
+	@Override
+	public void loadRotation(InputPosition pos, String rotation) {
+	}
+
+	@Override
+	public void loadScaling(InputPosition pos, String scaling) {
+	}
+
+	@Override
+	public void beginStepAndRepeat(InputPosition pos) {
+	}
+
+	@Override
+	public void endStepAndRepeat(InputPosition pos, String xRepeats, String yRepeats, String xDistance,
+			String yDistance) {
+	}
+
+	@Override
+	public void fileAttribute(InputPosition pos, String name, List<String> attributes) {
+	}
+
+	@Override
+	public void objectAttribute(InputPosition pos, String name, List<String> attributes) {
+	}
+
+	@Override
+	public void deleteAttribute(InputPosition pos, String name) {
+	}
+
+	@Override
+	public void apertureAttribute(InputPosition pos, String name, List<String> attributes) {
+	}
+}
@@ -0,0 +1,107 @@
+package com.github.ruediste.gerberLib.benchmark;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.parser.GerberParsingEventHandler;
+import com.github.ruediste.gerberLib.parser.GerberParsingFixedPointEventHandler;
+
+/**
+ * Measures the parser on all layers of the {@code kicadX3} sample, with and
+ * without the operation fast path of the {@link GerberParser}. Besides the
+ * operations per second, the statements per second are reported (see
+ * {@link StatementCounter}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class SampleFiles {
+
+		/**
+		 * Use the fast path for operations, or the grammar only
+		 */
+		@Param({ "true", "false" })
+		public boolean fastPath;
+
+		/**
+		 * Directory relative to the samples directory (system property
+		 * {@code gerberLib.samples}, defaults to {@code ../samples})
+		 */
+		@Param({ "kicadX3" })
+		public String directory;
+
+		public List<String> contents;
+
+		/**
+		 * Number of statements of all files
+		 */
+		public long statements;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			Path dir = Path.of(System.getProperty("gerberLib.samples", "../samples")).resolve(directory);
+			try (Stream<Path> files = Files.list(dir)) {
+				contents = files.filter(x -> x.toString().endsWith(".gbr")).sorted().map(x -> {
+					try {
+						return Files.readString(x);
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}).collect(Collectors.toList());
+			}
+			for (String content : contents)
+				statements += countStatements(content);
+		}
+
+		/**
+		 * Count the statements of the content as the number of events reported by
+		 * the parser
+		 */
+		private static long countStatements(String content) {
+			long[] count = new long[1];
+			GerberParsingEventHandler handler = (GerberParsingEventHandler) Proxy.newProxyInstance(
+					ParserBenchmark.class.getClassLoader(),
+					new Class<?>[] { GerberParsingFixedPointEventHandler.class }, (proxy, method, args) -> {
+						count[0]++;
+						return null;
+					});
+			new GerberParser(handler, content).file();
+			return count[0];
+		}
+	}
+
+	@Benchmark
+	public void parse(SampleFiles files, StatementCounter counter) {
+		for (String content : files.contents) {
+			GerberParser parser = new GerberParser(new NoOpParsingEventHandler(), content);
+			parser.useOperationFastPath = files.fastPath;
+			parser.file();
+		}
+		counter.statements += files.statements;
+	}
+}
@@ -0,0 +1,140 @@
+package com.github.ruediste.gerberLib.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.ruediste.gerberLib.WarningCollector;
+import com.github.ruediste.gerberLib.jts.JtsAdapter;
+import com.github.ruediste.gerberLib.jts.MoveGenerator;
+import com.github.ruediste.gerberLib.jts.MoveHandler;
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.rasterizer.GerberRasterizer;
+import com.github.ruediste.gerberLib.read.GerberReadGraphicsAdapter;
+import com.github.ruediste.gerberLib.read.GerberReadGraphicsEventHandler;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventRecorder;
+
+/**
+ * Measures each stage of the read pipeline on its own, by replaying the
+ * recorded output of the previous stage (see {@link BenchmarkInput}), and the
+ * whole pipeline from the input text to the raster image.
+ *
+ * <p>
+ * Besides the operations per second, the input bytes per second are reported
+ * (see {@link ByteCounter}). Use {@code -prof gc} to report the allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StageBenchmarks {
+
+	/**
+	 * Size of the larger side of the raster images, in pixels
+	 */
+	private static final double IMAGE_SIZE = 2000;
+
+	@Benchmark
+	public void parser(BenchmarkInput input, ByteCounter counter) {
+		new GerberParser(new NoOpParsingEventHandler(), input.content).file();
+		counter.bytes += input.bytes.length;
+	}
+
+	@Benchmark
+	public void graphicsAdapter(BenchmarkInput input, ByteCounter counter) {
+		input.parsingEvents.replay(new GerberReadGraphicsAdapter(new WarningCollector(),
+				new GerberReadGraphicsEventHandler()));
+		counter.bytes += input.bytes.length;
+	}
+
+	@Benchmark
+	public GerberReadGeometricPrimitiveEventRecorder geometricPrimitiveAdapter(BenchmarkInput input,
+			ByteCounter counter) {
+		WarningCollector warnings = new WarningCollector();
+		GerberReadGeometricPrimitiveEventRecorder recorder = new GerberReadGeometricPrimitiveEventRecorder();
+		input.parsingEvents.replay(
+				new GerberReadGraphicsAdapter(warnings, new GerberReadGeometricPrimitiveAdapter(warnings, recorder)));
+		counter.bytes += input.bytes.length;
+		return recorder;
+	}
+
+	@Benchmark
+	public BufferedImage rasterizer(BenchmarkInput input, ByteCounter counter) {
+		GerberRasterizer rasterizer = createRasterizer(input);
+		input.primitiveEvents.replay(rasterizer);
+		counter.bytes += input.bytes.length;
+		return rasterizer.image;
+	}
+
+	@Benchmark
+	public Geometry jts(BenchmarkInput input, ByteCounter counter) {
+		JtsAdapter adapter = new JtsAdapter();
+		input.primitiveEvents.replay(adapter);
+		counter.bytes += input.bytes.length;
+		return adapter.image();
+	}
+
+	@State(Scope.Benchmark)
+	public static class JtsImage {
+		public Geometry image;
+
+		@Setup(Level.Trial)
+		public void setup(BenchmarkInput input) {
+			JtsAdapter adapter = new JtsAdapter();
+			input.primitiveEvents.replay(adapter);
+			image = adapter.image();
+		}
+	}
+
+	@Benchmark
+	public void moveGenerator(JtsImage image, BenchmarkInput input, ByteCounter counter, Blackhole blackhole) {
+		MoveGenerator generator = new MoveGenerator(new WarningCollector(), new MoveHandler() {
+
+			@Override
+			public void moveTo(Coordinate coordinate) {
+				blackhole.consume(coordinate);
+			}
+
+			@Override
+			public void lineTo(Coordinate coordinate) {
+				blackhole.consume(coordinate);
+			}
+		});
+		generator.add(image.image);
+		generator.generateMoves(new Coordinate(0, 0));
+		counter.bytes += input.bytes.length;
+	}
+
+	@Benchmark
+	public BufferedImage endToEnd(BenchmarkInput input, ByteCounter counter) {
+		WarningCollector warnings = new WarningCollector();
+		GerberRasterizer rasterizer = createRasterizer(input);
+		new GerberParser(
+				new GerberReadGraphicsAdapter(warnings, new GerberReadGeometricPrimitiveAdapter(warnings, rasterizer)),
+				input.content).file();
+		counter.bytes += input.bytes.length;
+		return rasterizer.image;
+	}
+
+	private GerberRasterizer createRasterizer(BenchmarkInput input) {
+		double pointsPerMM = IMAGE_SIZE / Math.max(input.bounds.getWidth(), input.bounds.getHeight());
+		return new GerberRasterizer(input.bounds.getWidth(), input.bounds.getHeight(), -input.bounds.getMinX(),
+				-input.bounds.getMinY(), pointsPerMM);
+	}
+}
@@ -0,0 +1,23 @@
+package com.github.ruediste.gerberLib.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the statements parsed, reported by JMH as statements per time unit
+ * next to the operations
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class StatementCounter {
+
+	public long statements;
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		statements = 0;
+	}
+}
@@ -0,0 +1,154 @@
+package com.github.ruediste.gerberLib.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generates gerber files resembling a copper layer of a board, with a
+ * configurable number of features. The output only depends on the size and the
+ * seed.
+ *
+ * <p>
+ * The file uses the constructs found in real world files: circular, rectangular
+ * and obround apertures, a macro aperture, traces with linear and circular
+ * interpolation, pads, regions and, optionally, a step and repeat block.
+ */
+public class SyntheticBoardGenerator {
+
+	/**
+	 * Size of the board, in mm
+	 */
+	public double boardSize = 100;
+
+	/**
+	 * Wrap the features in a 2x2 step and repeat block
+	 */
+	public boolean stepAndRepeat;
+
+	private final Random random;
+
+	public SyntheticBoardGenerator(long seed) {
+		random = new Random(seed);
+	}
+
+	/**
+	 * Generate a file with the given number of features. A feature is a trace, a
+	 * pad or a region.
+	 */
+	public String generate(int features) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("G04 Synthetic board*\n");
+		sb.append("%TF.FileFunction,Copper,L1,Top*%\n");
+		sb.append("%FSLAX46Y46*%\n");
+		sb.append("%MOMM*%\n");
+		sb.append("%LPD*%\n");
+		sb.append("%AMBOXR*\n");
+		sb.append("$5=$1/2-$3*\n");
+		sb.append("$6=$2/2-$3*\n");
+		sb.append("$7=2x$3*\n");
+		sb.append("21,1,$1,$2-$7,0,0,$4*\n");
+		sb.append("21,1,$1-$7,$2,0,0,$4*\n");
+		sb.append("1,1,$7,$5,$6,$4*\n");
+		sb.append("1,1,$7,-$5,$6,$4*\n");
+		sb.append("1,1,$7,-$5,-$6,$4*\n");
+		sb.append("1,1,$7,$5,-$6,$4*%\n");
+		sb.append("%ADD10C,0.250000*%\n");
+		sb.append("%ADD11C,0.150000*%\n");
+		sb.append("%ADD12R,1.500000X1.000000*%\n");
+		sb.append("%ADD13O,1.700000X1.000000*%\n");
+		sb.append("%ADD14C,0.800000*%\n");
+		sb.append("%ADD15BOXR,1.200000X0.800000X0.200000X30.0*%\n");
+		sb.append("G75*\n");
+		sb.append("G01*\n");
+		if (stepAndRepeat)
+			sb.append("%SRX2Y2I" + boardSize / 2 + "J" + boardSize / 2 + "*%\n");
+
+		double size = stepAndRepeat ? boardSize / 2 : boardSize;
+		for (int n = 0; n < features; n++) {
+			int kind = random.nextInt(10);
+			if (kind < 6)
+				trace(sb, size);
+			else if (kind < 9)
+				pad(sb, size);
+			else
+				region(sb, size);
+		}
+
+		if (stepAndRepeat)
+			sb.append("%SR*%\n");
+		sb.append("M02*\n");
+		return sb.toString();
+	}
+
+	private void trace(StringBuilder sb, double size) {
+		sb.append(random.nextBoolean() ? "D10*\n" : "D11*\n");
+		double x = random.nextDouble() * size;
+		double y = random.nextDouble() * size;
+		sb.append("X").append(format(x)).append("Y").append(format(y)).append("D02*\n");
+		int segments = 1 + random.nextInt(8);
+		for (int i = 0; i < segments; i++) {
+			if (random.nextInt(5) == 0) {
+				// quarter circle around a center left of the current point
+				double r = 0.5 + random.nextDouble() * 2;
+				double cx = x - r;
+				double cy = y;
+				x = cx;
+				y = cy + r;
+				sb.append("G03*\n");
+				sb.append("X").append(format(x)).append("Y").append(format(y)).append("I").append(format(-r))
+						.append("J0D01*\n");
+				sb.append("G01*\n");
+			} else {
+				// 45 degree routing
+				double len = random.nextDouble() * 5;
+				switch (random.nextInt(3)) {
+				case 0:
+					x += random.nextBoolean() ? len : -len;
+					break;
+				case 1:
+					y += random.nextBoolean() ? len : -len;
+					break;
+				default:
+					x += len;
+					y += random.nextBoolean() ? len : -len;
+				}
+				sb.append("X").append(format(x)).append("Y").append(format(y)).append("D01*\n");
+			}
+		}
+	}
+
+	private void pad(StringBuilder sb, double size) {
+		sb.append("D").append(12 + random.nextInt(4)).append("*\n");
+		int count = 1 + random.nextInt(16);
+		double x = random.nextDouble() * size;
+		double y = random.nextDouble() * size;
+		double pitch = 1.27;
+		for (int i = 0; i < count; i++)
+			sb.append("X").append(format(x + i * pitch)).append("Y").append(format(y)).append("D03*\n");
+	}
+
+	private void region(StringBuilder sb, double size) {
+		double x = random.nextDouble() * size;
+		double y = random.nextDouble() * size;
+		double w = 1 + random.nextDouble() * 10;
+		double h = 1 + random.nextDouble() * 10;
+		boolean clear = random.nextInt(4) == 0;
+		if (clear)
+			sb.append("%LPC*%\n");
+		sb.append("G36*\n");
+		sb.append("X").append(format(x)).append("Y").append(format(y)).append("D02*\n");
+		sb.append("X").append(format(x + w)).append("D01*\n");
+		sb.append("Y").append(format(y + h)).append("D01*\n");
+		sb.append("X").append(format(x)).append("D01*\n");
+		sb.append("Y").append(format(y)).append("D01*\n");
+		sb.append("G37*\n");
+		if (clear)
+			sb.append("%LPD*%\n");
+	}
+
+	/**
+	 * Format a value in mm using the 4.6 format with leading zeros omitted
+	 */
+	private static String format(double mm) {
+		return Long.toString(Math.round(mm * 1e6));
+	}
+}
@@ -3,17 +3,35 @@ package com.github.ruediste.gerberLib;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
 import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
 import com.github.ruediste.gerberLib.parser.InputPosition;
 import com.github.ruediste.gerberLib.read.Polarity;
-import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventHandler;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveBlockEventHandler;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventRecorder;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveShapeEventHandler;
 
-public class GerberBoundingBoxCollector implements GerberReadGeometricPrimitiveEventHandler {
+public class GerberBoundingBoxCollector
+		implements GerberReadGeometricPrimitiveShapeEventHandler, GerberReadGeometricPrimitiveBlockEventHandler {
 
 	Rectangle2D bounds;
 
+	/**
+	 * Shapes with their bounds in shape coordinates
+	 */
+	private final Map<Integer, GerberReadGeometricPrimitiveEventRecorder> shapes = new HashMap<>();
+	private final Map<Integer, Rectangle2D> shapeBounds = new HashMap<>();
+
+	/**
+	 * Blocks with their bounds in block coordinates
+	 */
+	private final Map<Integer, GerberReadGeometricPrimitiveEventRecorder> blocks = new HashMap<>();
+	private final Map<Integer, Rectangle2D> blockBounds = new HashMap<>();
+
 	public Rectangle2D getBounds() {
 		return bounds;
 	}
@@ -31,8 +49,15 @@ public class GerberBoundingBoxCollector implements GerberReadGeometricPrimitiveE
 	@Override
 	public void addLine(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint p1,
 			CoordinatePoint p2) {
-		var b = transformation.inner.createTransformedShape(new Line2D.Double(p1.x, p1.y, p2.x, p2.y)).getBounds2D();
-		addBounds(b);
+		if (transformation.isTranslation()) {
+			var t1 = transformation.transform(p1);
+			var t2 = transformation.transform(p2);
+			double minX = Math.min(t1.x, t2.x);
+			double minY = Math.min(t1.y, t2.y);
+			addBounds(new Rectangle2D.Double(minX, minY, Math.max(t1.x, t2.x) - minX, Math.max(t1.y, t2.y) - minY));
+		} else
+			addBounds(transformation.inner.createTransformedShape(new Line2D.Double(p1.x, p1.y, p2.x, p2.y))
+					.getBounds2D());
 	}
 
 	@Override
@@ -65,4 +90,46 @@ public class GerberBoundingBoxCollector implements GerberReadGeometricPrimitiveE
 
 	}
 
+	@Override
+	public void defineShape(int id, GerberReadGeometricPrimitiveEventRecorder shape) {
+		shapes.put(id, shape);
+		GerberBoundingBoxCollector collector = new GerberBoundingBoxCollector();
+		shape.replay(collector);
+		if (collector.bounds != null)
+			shapeBounds.put(id, collector.bounds);
+	}
+
+	@Override
+	public void placeShape(InputPosition pos, int id, CoordinateTransformation transformation, Polarity polarity) {
+		if (transformation.isTranslation())
+			addTranslatedBounds(shapeBounds.get(id), transformation);
+		else
+			shapes.get(id).replay(this, pos, transformation);
+	}
+
+	@Override
+	public void defineBlock(int id, GerberReadGeometricPrimitiveEventRecorder block) {
+		blocks.put(id, block);
+		GerberBoundingBoxCollector collector = new GerberBoundingBoxCollector();
+		block.replay(collector);
+		if (collector.bounds != null)
+			blockBounds.put(id, collector.bounds);
+	}
+
+	@Override
+	public void placeBlock(int id, List<CoordinateTransformation> transformations) {
+		for (CoordinateTransformation transformation : transformations) {
+			if (transformation.isTranslation())
+				addTranslatedBounds(blockBounds.get(id), transformation);
+			else
+				blocks.get(id).replayTransformed(this, transformation);
+		}
+	}
+
+	private void addTranslatedBounds(Rectangle2D b, CoordinateTransformation translation) {
+		if (b != null)
+			addBounds(new Rectangle2D.Double(b.getX() + translation.getTranslateX(),
+					b.getY() + translation.getTranslateY(), b.getWidth(), b.getHeight()));
+	}
+
 }
@@ -0,0 +1,137 @@
+package com.github.ruediste.gerberLib;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.read.GerberReadGraphicsAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventHandler;
+
+/**
+ * Reads all layers of a fabrication package concurrently.
+ *
+ * <p>
+ * Each layer is processed by a separate task on the given executor. The task
+ * creates the parser, the adapters, the {@link WarningCollector} and (using
+ * the handler factory) the primitive event handler, so all of them are
+ * confined to the thread running the task and need no synchronization. The
+ * results are returned once all layers are done, in the order of the files.
+ */
+public class GerberJob {
+
+	/**
+	 * File extensions recognized as gerber files when reading a directory
+	 */
+	public static final Set<String> GERBER_EXTENSIONS = Set.of("gbr", "ger", "gtl", "gbl", "gto", "gbo", "gts", "gbs",
+			"gtp", "gbp", "gko", "gm1");
+
+	public static class LayerResult<T extends GerberReadGeometricPrimitiveEventHandler> {
+		public final Path file;
+		public final T handler;
+		public final WarningCollector warningCollector;
+
+		/**
+		 * Set if processing the layer failed, null otherwise
+		 */
+		public final RuntimeException error;
+
+		public LayerResult(Path file, T handler, WarningCollector warningCollector, RuntimeException error) {
+			this.file = file;
+			this.handler = handler;
+			this.warningCollector = warningCollector;
+			this.error = error;
+		}
+
+		public boolean isSuccess() {
+			return error == null;
+		}
+
+		@Override
+		public String toString() {
+			return file + (isSuccess() ? "" : " (failed: " + error + ")");
+		}
+	}
+
+	public final List<Path> files;
+	private final ExecutorService executor;
+
+	public GerberJob(List<Path> files, ExecutorService executor) {
+		this.files = List.copyOf(files);
+		this.executor = executor;
+	}
+
+	/**
+	 * Create a job for all gerber files (see {@link #GERBER_EXTENSIONS}) in the
+	 * directory, sorted by name
+	 */
+	public static GerberJob ofDirectory(Path directory, ExecutorService executor) {
+		try (Stream<Path> files = Files.list(directory)) {
+			return new GerberJob(
+					files.filter(Files::isRegularFile).filter(GerberJob::isGerberFile).sorted().collect(Collectors.toList()),
+					executor);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static boolean isGerberFile(Path file) {
+		String name = file.getFileName().toString();
+		int idx = name.lastIndexOf('.');
+		return idx >= 0 && GERBER_EXTENSIONS.contains(name.substring(idx + 1).toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Read all layers and wait for the results. The handler factory is invoked
+	 * once per layer, on the thread processing the layer.
+	 */
+	public <T extends GerberReadGeometricPrimitiveEventHandler> List<LayerResult<T>> run(
+			Function<Path, T> handlerFactory) throws InterruptedException {
+		List<Future<LayerResult<T>>> futures = new ArrayList<>();
+		try {
+			for (Path file : files)
+				futures.add(executor.submit(() -> read(file, handlerFactory)));
+
+			List<LayerResult<T>> results = new ArrayList<>();
+			for (var future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					// read() catches runtime exceptions, only errors end up here
+					if (e.getCause() instanceof Error)
+						throw (Error) e.getCause();
+					throw new RuntimeException(e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			futures.forEach(x -> x.cancel(true));
+		}
+	}
+
+	private <T extends GerberReadGeometricPrimitiveEventHandler> LayerResult<T> read(Path file,
+			Function<Path, T> handlerFactory) {
+		WarningCollector warningCollector = new WarningCollector();
+		T handler = null;
+		try {
+			handler = handlerFactory.apply(file);
+			new GerberParser(new GerberReadGraphicsAdapter(warningCollector,
+					new GerberReadGeometricPrimitiveAdapter(warningCollector, handler)), file).file();
+			return new LayerResult<>(file, handler, warningCollector, null);
+		} catch (RuntimeException e) {
+			return new LayerResult<>(file, handler, warningCollector, e);
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package com.github.ruediste.gerberLib;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.parser.InputPosition;
+import com.github.ruediste.gerberLib.read.GerberReadGraphicsAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventHandler;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventRecorder;
+
+/**
+ * Directory based cache of the geometric primitives of gerber files.
+ *
+ * <p>
+ * Entries are keyed by the SHA-256 hash of the file content and the
+ * {@link #VERSION} stamp, and contain the recorded primitive events (see
+ * {@link GerberReadGeometricPrimitiveEventRecorder}) together with the warnings
+ * of the pipeline, compressed with deflate. On a hit, the file is not parsed at
+ * all. The total size of the entries is bounded, the least recently used
+ * entries are evicted first.
+ *
+ * <p>
+ * Multiple threads and processes can share a cache directory: entries are
+ * written to a temporary file and moved into place, unreadable entries are
+ * treated as misses.
+ */
+public class GerberLayerCache {
+
+	/**
+	 * Increment whenever the primitive events generated for a file or the entry
+	 * format change, to invalidate existing entries
+	 */
+	public static final int FORMAT_VERSION = 3;
+
+	/**
+	 * Version stamp of the entries, combining the {@link #FORMAT_VERSION} and the
+	 * library version, if available
+	 */
+	public static final String VERSION = FORMAT_VERSION + "/"
+			+ GerberLayerCache.class.getPackage().getImplementationVersion();
+
+	private static final String ENTRY_SUFFIX = ".primitives";
+
+	private final Path directory;
+	private final long maxSize;
+
+	/**
+	 * @param maxSize maximum total size of the entries, in bytes
+	 */
+	public GerberLayerCache(Path directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Pass the geometric primitives of the file to the handler, using the cache
+	 * if possible. The warnings generated while reading the file are added to the
+	 * warning collector in both cases.
+	 */
+	public void read(Path file, WarningCollector warningCollector, GerberReadGeometricPrimitiveEventHandler handler) {
+		try {
+			byte[] content = Files.readAllBytes(file);
+			String key = key(content);
+			Path entry = directory.resolve(key + ENTRY_SUFFIX);
+
+			Entry cached = readEntry(entry);
+			if (cached != null) {
+				warningCollector.warnings.addAll(cached.warnings.warnings);
+				cached.primitives.replay(handler);
+				return;
+			}
+
+			Entry created = new Entry();
+			new GerberParser(new GerberReadGraphicsAdapter(created.warnings,
+					new GerberReadGeometricPrimitiveAdapter(created.warnings, created.primitives)),
+					new String(content, StandardCharsets.UTF_8)).file();
+			writeEntry(entry, created);
+			evict();
+
+			warningCollector.warnings.addAll(created.warnings.warnings);
+			created.primitives.replay(handler);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static class Entry {
+		WarningCollector warnings = new WarningCollector();
+		GerberReadGeometricPrimitiveEventRecorder primitives = new GerberReadGeometricPrimitiveEventRecorder();
+	}
+
+	static String key(byte[] content) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(VERSION.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(content);
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest.digest())
+				sb.append(String.format("%02x", b));
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return the entry or null if it does not exist or cannot be read
+	 */
+	private Entry readEntry(Path path) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new InflaterInputStream(new BufferedInputStream(Files.newInputStream(path), 65536)), 65536))) {
+			if (!VERSION.equals(in.readUTF()))
+				return null;
+			Entry entry = new Entry();
+			int warningCount = in.readInt();
+			for (int i = 0; i < warningCount; i++) {
+				InputPosition pos = new InputPosition();
+				pos.inputIndex = in.readInt();
+				int lineStartIndex = in.readInt();
+				int lineNr = in.readInt();
+				pos.setLine(lineStartIndex, lineNr, in.readInt());
+				entry.warnings.add(pos, in.readUTF());
+			}
+			entry.primitives = GerberReadGeometricPrimitiveEventRecorder.read(in);
+
+			// mark as recently used
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+			return entry;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | RuntimeException e) {
+			// corrupt or concurrently evicted entry
+			try {
+				Files.deleteIfExists(path);
+			} catch (IOException e1) {
+				// swallow
+			}
+			return null;
+		}
+	}
+
+	private void writeEntry(Path path, Entry entry) throws IOException {
+		Files.createDirectories(directory);
+		Path tmp = Files.createTempFile(directory, "entry", ".tmp");
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					new DeflaterOutputStream(Files.newOutputStream(tmp), deflater, 65536), 65536))) {
+				out.writeUTF(VERSION);
+				out.writeInt(entry.warnings.warnings.size());
+				for (var warning : entry.warnings.warnings) {
+					out.writeInt(warning.pos.inputIndex);
+					out.writeInt(warning.pos.getLineStartIndex());
+					out.writeInt(warning.pos.getLineNr());
+					out.writeInt(warning.pos.getLinePos());
+					out.writeUTF(warning.message);
+				}
+				entry.primitives.write(out);
+			}
+			try {
+				Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			deflater.end();
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private static class EntryInfo {
+		Path path;
+		long size;
+		long lastModified;
+	}
+
+	/**
+	 * Delete the least recently used entries until the total size is within the
+	 * bound
+	 */
+	private void evict() throws IOException {
+		List<EntryInfo> entries = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path path : files.filter(x -> x.getFileName().toString().endsWith(ENTRY_SUFFIX))
+					.collect(Collectors.toList())) {
+				try {
+					EntryInfo info = new EntryInfo();
+					info.path = path;
+					info.size = Files.size(path);
+					info.lastModified = Files.getLastModifiedTime(path).toMillis();
+					entries.add(info);
+				} catch (NoSuchFileException e) {
+					// evicted concurrently
+				}
+			}
+		}
+		long totalSize = entries.stream().mapToLong(x -> x.size).sum();
+		entries.sort(Comparator.comparingLong(x -> x.lastModified));
+		for (EntryInfo entry : entries) {
+			if (totalSize <= maxSize)
+				break;
+			Files.deleteIfExists(entry.path);
+			totalSize -= entry.size;
+		}
+	}
+}
@@ -32,6 +32,15 @@ public class JtsAdapter extends Java2dRendererBase {
 		imageTree = new Quadtree();
 	}
 
+	/**
+	 * Approximate arcs by line segments deviating at most one grid unit of the
+	 * precision model from the arcs. Reduces the vertex count, but very small
+	 * arcs might not survive the precision reduction.
+	 */
+	public void usePrecisionModelArcTolerance() {
+		arcTolerance = 1 / gf.getPrecisionModel().getScale();
+	}
+
 	@Override
 	public void beginObject(InputPosition pos) {
 		currentObject = new ArrayList<>();
@@ -41,7 +50,7 @@ public class JtsAdapter extends Java2dRendererBase {
 	public void endPath(InputPosition pos, Exposure exposure) {
 		currentPath.closePath();
 //		printCurrentPath();
-		Geometry currentPathGeometry = reducer.reduce(ShapeReader.read(currentPath.getPathIterator(null, 0.01), gf));
+		Geometry currentPathGeometry = reducer.reduce(ShapeReader.read(currentPath.getPathIterator(null, flatness()), gf));
 		if (exposure == Exposure.ON) {
 			currentObject.add(currentPathGeometry);
 		} else {
@@ -52,11 +61,18 @@ public class JtsAdapter extends Java2dRendererBase {
 		}
 	}
 
+	/**
+	 * Flatness used for curves remaining in the path
+	 */
+	private double flatness() {
+		return Double.isNaN(arcTolerance) ? 1 / gf.getPrecisionModel().getScale() : arcTolerance;
+	}
+
 	private void printCurrentPath() {
 		System.out.println("endPath");
 		{
 			double[] pathPt = new double[6];
-			var pathIt = currentPath.getPathIterator(null, 0.01);
+			var pathIt = currentPath.getPathIterator(null, flatness());
 			while (!pathIt.isDone()) {
 				int segType = pathIt.currentSegment(pathPt);
 				switch (segType) {
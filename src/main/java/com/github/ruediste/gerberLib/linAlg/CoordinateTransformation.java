@@ -1,35 +1,124 @@
 package com.github.ruediste.gerberLib.linAlg;
 
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Point2D;
 
-public class CoordinateTransformation {
+/**
+ * Immutable affine transformation. Instances can be freely shared between
+ * events and handlers. Composing with the identity returns the existing
+ * instance.
+ */
+public final class CoordinateTransformation {
 
-	public AffineTransform inner = new AffineTransform();
+	public static final CoordinateTransformation IDENTITY = new CoordinateTransformation(new AffineTransform());
 
-	public CoordinateTransformation() {
-	}
+	/**
+	 * The wrapped transform. Must not be modified.
+	 */
+	public final AffineTransform inner;
 
+	/**
+	 * Wrap the transform, which must not be modified afterwards
+	 */
 	public CoordinateTransformation(AffineTransform t) {
 		inner = t;
 	}
 
+	/**
+	 * Create a transformation from a copy of the given transform
+	 */
+	public static CoordinateTransformation of(AffineTransform t) {
+		if (t.isIdentity())
+			return IDENTITY;
+		return new CoordinateTransformation(new AffineTransform(t));
+	}
+
+	public static CoordinateTransformation translation(double dx, double dy) {
+		if (dx == 0 && dy == 0)
+			return IDENTITY;
+		return new CoordinateTransformation(AffineTransform.getTranslateInstance(dx, dy));
+	}
+
+	public boolean isIdentity() {
+		return inner.isIdentity();
+	}
+
+	/**
+	 * True if the transformation is the identity or a pure translation
+	 */
+	public boolean isTranslation() {
+		return (inner.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0;
+	}
+
+	public double getTranslateX() {
+		return inner.getTranslateX();
+	}
+
+	public double getTranslateY() {
+		return inner.getTranslateY();
+	}
+
 	public CoordinatePoint transform(CoordinatePoint p) {
-		Point2D result = new Point2D.Double(p.x, p.y);
-		inner.transform(result, result);
-		return CoordinatePoint.of(result.getX(), result.getY());
+		if (isIdentity())
+			return p;
+		if (isTranslation())
+			return CoordinatePoint.of(p.x + inner.getTranslateX(), p.y + inner.getTranslateY());
+		double[] result = { p.x, p.y };
+		inner.transform(result, 0, result, 0, 1);
+		return CoordinatePoint.of(result[0], result[1]);
+	}
+
+	/**
+	 * Transform the point in place
+	 */
+	public MutableCoordinatePoint transform(MutableCoordinatePoint p) {
+		return p.transform(this);
+	}
+
+	/**
+	 * Return this transformation, preceded by a translation
+	 */
+	public CoordinateTransformation translated(CoordinatePoint p) {
+		return translated(p.x, p.y);
 	}
 
-	public CoordinateTransformation copy() {
-		return new CoordinateTransformation(new AffineTransform(inner));
+	/**
+	 * Return this transformation, preceded by a translation
+	 */
+	public CoordinateTransformation translated(double dx, double dy) {
+		if (dx == 0 && dy == 0)
+			return this;
+		if (isIdentity())
+			return new CoordinateTransformation(AffineTransform.getTranslateInstance(dx, dy));
+		AffineTransform result = new AffineTransform(inner);
+		result.translate(dx, dy);
+		return new CoordinateTransformation(result);
 	}
 
-	public void translate(CoordinatePoint p) {
-		inner.translate(p.x, p.y);
+	/**
+	 * Return this transformation, preceded by the given transformation
+	 */
+	public CoordinateTransformation concatenated(CoordinateTransformation t) {
+		if (t.isIdentity())
+			return this;
+		if (isIdentity())
+			return t;
+		AffineTransform result = new AffineTransform(inner);
+		result.concatenate(t.inner);
+		return new CoordinateTransformation(result);
 	}
 
-	public void concatenate(CoordinateTransformation t) {
-		inner.concatenate(t.inner);
+	@Override
+	public int hashCode() {
+		return inner.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		return inner.equals(((CoordinateTransformation) obj).inner);
 	}
 
 	@Override
@@ -70,6 +70,14 @@ public class CoordinateVector {
 	 * direction
 	 */
 	public double angle() {
+		return angle(x, y);
+	}
+
+	/**
+	 * Angle in degrees between (1,0) and the vector (x,y) measured in a
+	 * counterclockwise direction
+	 */
+	public static double angle(double x, double y) {
 		double result = 180 / Math.PI * Math.atan2(y, x);
 		if (result < 0)
 			result += 360;
@@ -82,7 +90,7 @@ public class CoordinateVector {
 	}
 
 	public CoordinateVector minus(double dx, double dy) {
-		return minus(CoordinateVector.of(dx, dy));
+		return of(x - dx, y - dy);
 	}
 
 	public CoordinateVector minusX(double dx) {
@@ -94,7 +102,7 @@ public class CoordinateVector {
 	}
 
 	public CoordinateVector plus(double dx, double dy) {
-		return plus(CoordinateVector.of(dx, dy));
+		return of(x + dx, y + dy);
 	}
 
 	public CoordinateVector plusX(double dx) {
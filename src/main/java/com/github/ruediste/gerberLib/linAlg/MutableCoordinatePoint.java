@@ -0,0 +1,90 @@
+package com.github.ruediste.gerberLib.linAlg;
+
+/**
+ * Mutable counterpart of {@link CoordinatePoint}, to be used as scratch object
+ * in hot code paths. The operations modify the point in place and return it,
+ * and compute exactly the same values as the corresponding operations of
+ * {@link CoordinatePoint}.
+ */
+public class MutableCoordinatePoint {
+
+	public double x;
+	public double y;
+
+	private final double[] transformScratch = new double[2];
+
+	public MutableCoordinatePoint set(double x, double y) {
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+
+	public MutableCoordinatePoint set(CoordinatePoint p) {
+		return set(p.x, p.y);
+	}
+
+	public MutableCoordinatePoint set(MutableCoordinatePoint p) {
+		return set(p.x, p.y);
+	}
+
+	public MutableCoordinatePoint plus(double x, double y) {
+		this.x += x;
+		this.y += y;
+		return this;
+	}
+
+	public MutableCoordinatePoint plus(MutableCoordinateVector v) {
+		return plus(v.x, v.y);
+	}
+
+	public MutableCoordinatePoint plus(CoordinateVector v) {
+		return plus(v.x, v.y);
+	}
+
+	public MutableCoordinatePoint minus(double x, double y) {
+		this.x -= x;
+		this.y -= y;
+		return this;
+	}
+
+	public MutableCoordinatePoint minus(MutableCoordinateVector v) {
+		return minus(v.x, v.y);
+	}
+
+	public MutableCoordinatePoint minus(CoordinateVector v) {
+		return minus(v.x, v.y);
+	}
+
+	/**
+	 * Rotate point around origin by angle counter clockwise in degrees
+	 */
+	public MutableCoordinatePoint rotate(double angle) {
+		double a = angle / 180 * Math.PI;
+		return set(Math.cos(a) * x - Math.sin(a) * y, Math.sin(a) * x + Math.cos(a) * y);
+	}
+
+	/**
+	 * Project the point (px,py) to the line through this point with the given
+	 * direction, and store the result in this point
+	 */
+	public MutableCoordinatePoint projectPointToLine(double px, double py, double dx, double dy) {
+		double factor = ((px - x) * dx + (py - y) * dy) / (dx * dx + dy * dy);
+		return plus(dx * factor, dy * factor);
+	}
+
+	public MutableCoordinatePoint transform(CoordinateTransformation transformation) {
+		transformScratch[0] = x;
+		transformScratch[1] = y;
+		transformation.inner.transform(transformScratch, 0, transformScratch, 0, 1);
+		return set(transformScratch[0], transformScratch[1]);
+	}
+
+	public CoordinatePoint toPoint() {
+		return CoordinatePoint.of(x, y);
+	}
+
+	@Override
+	public String toString() {
+		return "(" + x + "," + y + ")";
+	}
+}
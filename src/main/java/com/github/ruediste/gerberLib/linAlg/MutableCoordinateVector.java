@@ -0,0 +1,92 @@
+package com.github.ruediste.gerberLib.linAlg;
+
+/**
+ * Mutable counterpart of {@link CoordinateVector}, to be used as scratch
+ * object in hot code paths. The operations modify the vector in place and
+ * return it, and compute exactly the same values as the corresponding
+ * operations of {@link CoordinateVector}.
+ */
+public class MutableCoordinateVector {
+
+	public double x;
+	public double y;
+
+	public MutableCoordinateVector set(double x, double y) {
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+
+	public MutableCoordinateVector set(CoordinateVector v) {
+		return set(v.x, v.y);
+	}
+
+	/**
+	 * Set this vector to the vector from p1 to p2
+	 */
+	public MutableCoordinateVector setVector(CoordinatePoint p1, CoordinatePoint p2) {
+		return set(p2.x - p1.x, p2.y - p1.y);
+	}
+
+	public MutableCoordinateVector setVector(MutableCoordinatePoint p1, CoordinatePoint p2) {
+		return set(p2.x - p1.x, p2.y - p1.y);
+	}
+
+	public double length() {
+		return Math.sqrt(length2());
+	}
+
+	public double length2() {
+		return x * x + y * y;
+	}
+
+	public MutableCoordinateVector normalize() {
+		return scale(1 / length());
+	}
+
+	public MutableCoordinateVector scale(double factor) {
+		x *= factor;
+		y *= factor;
+		return this;
+	}
+
+	/**
+	 * Rotate the vector 90 degrees counter clockwise
+	 */
+	public MutableCoordinateVector normal() {
+		return set(-y, x);
+	}
+
+	public MutableCoordinateVector negate() {
+		return scale(-1);
+	}
+
+	public double dotProduct(double x, double y) {
+		return this.x * x + this.y * y;
+	}
+
+	/**
+	 * Angle in degrees between (1,0) and this vector measured in a counterclockwise
+	 * direction
+	 */
+	public double angle() {
+		return CoordinateVector.angle(x, y);
+	}
+
+	/**
+	 * Rotate vector by angle counter clockwise in degrees
+	 */
+	public MutableCoordinateVector rotate(double angle) {
+		double a = angle / 180 * Math.PI;
+		return set(Math.cos(a) * x - Math.sin(a) * y, Math.sin(a) * x + Math.cos(a) * y);
+	}
+
+	public CoordinateVector toVector() {
+		return CoordinateVector.of(x, y);
+	}
+
+	@Override
+	public String toString() {
+		return "(" + x + "," + y + ")";
+	}
+}
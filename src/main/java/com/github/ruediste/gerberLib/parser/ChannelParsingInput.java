@@ -0,0 +1,114 @@
+package com.github.ruediste.gerberLib.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Streaming {@link ParsingInput} reading UTF-8 encoded bytes from a channel.
+ *
+ * <p>
+ * The bytes are kept in a sliding buffer. Only the bytes from the index passed
+ * to the last {@link #release(int)} onwards are retained, so the memory
+ * consumption depends on the size of the statements being parsed, not on the
+ * size of the input.
+ */
+public class ChannelParsingInput extends Utf8ParsingInput {
+
+	private final ReadableByteChannel channel;
+	private byte[] buffer;
+
+	/**
+	 * Input index of the first byte in the buffer
+	 */
+	private int bufferStart;
+
+	/**
+	 * Number of valid bytes in the buffer
+	 */
+	private int bufferLength;
+
+	private int releasedIndex;
+	private boolean channelEof;
+
+	public ChannelParsingInput(InputStream in) {
+		this(Channels.newChannel(in));
+	}
+
+	public ChannelParsingInput(ReadableByteChannel channel) {
+		this(channel, 64 * 1024);
+	}
+
+	public ChannelParsingInput(ReadableByteChannel channel, int initialBufferSize) {
+		this.channel = channel;
+		this.buffer = new byte[Math.max(16, initialBufferSize)];
+	}
+
+	/**
+	 * Make sure the byte with the given index is in the buffer.
+	 *
+	 * @return false if the input ends before the index
+	 */
+	private boolean fill(int index) {
+		while (index >= bufferStart + bufferLength) {
+			if (channelEof)
+				return false;
+			if (bufferLength == buffer.length) {
+				int discard = releasedIndex - bufferStart;
+				if (discard >= buffer.length / 2) {
+					System.arraycopy(buffer, discard, buffer, 0, bufferLength - discard);
+					bufferStart += discard;
+					bufferLength -= discard;
+				} else
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			try {
+				int read = channel.read(ByteBuffer.wrap(buffer, bufferLength, buffer.length - bufferLength));
+				if (read < 0)
+					channelEof = true;
+				else
+					bufferLength += read;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected boolean isAvailable(int index) {
+		return fill(index);
+	}
+
+	@Override
+	protected int byteAt(int index) {
+		return buffer[index - bufferStart] & 0xff;
+	}
+
+	@Override
+	public void release(int index) {
+		if (index > releasedIndex)
+			releasedIndex = index;
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return true;
+	}
+
+	@Override
+	public int firstRetainedIndex() {
+		return releasedIndex;
+	}
+
+	/**
+	 * Current size of the buffer, in bytes
+	 */
+	int bufferCapacity() {
+		return buffer.length;
+	}
+}
@@ -1,5 +1,8 @@
 package com.github.ruediste.gerberLib.parser;
 
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -8,23 +11,95 @@ import com.github.ruediste.gerberLib.read.QuadrantMode;
 
 public class GerberParser extends ParserBase<GerberParsingState> {
 	GerberParsingEventHandler handler;
+
+	/**
+	 * The handler, if it supports fixed point coordinates, null otherwise
+	 */
+	GerberParsingFixedPointEventHandler fixedPointHandler;
 	GerberMacroBodyParser macroBodyParser;
 
+	/**
+	 * If set, statements are first checked by {@link #operationFastPath()} before
+	 * using the grammar
+	 */
+	public boolean useOperationFastPath = true;
+
 	public GerberParser(GerberParsingEventHandler handler, String input) {
+		this(handler, new StringParsingInput(input));
+	}
+
+	/**
+	 * Parse a stream of UTF-8 encoded bytes. Only the currently parsed statement
+	 * is kept in memory.
+	 */
+	public GerberParser(GerberParsingEventHandler handler, InputStream input) {
+		this(handler, new ChannelParsingInput(input));
+	}
+
+	/**
+	 * Parse a channel of UTF-8 encoded bytes. Only the currently parsed statement
+	 * is kept in memory.
+	 */
+	public GerberParser(GerberParsingEventHandler handler, ReadableByteChannel input) {
+		this(handler, new ChannelParsingInput(input));
+	}
+
+	/**
+	 * Parse a UTF-8 encoded file by mapping it into memory
+	 */
+	public GerberParser(GerberParsingEventHandler handler, Path file) {
+		this(handler, MappedParsingInput.map(file));
+	}
+
+	public GerberParser(GerberParsingEventHandler handler, ParsingInput input) {
 		super(new ParsingContext<>(input, new GerberParsingState()));
 		this.handler = handler;
+		if (handler instanceof GerberParsingFixedPointEventHandler)
+			fixedPointHandler = (GerberParsingFixedPointEventHandler) handler;
 		macroBodyParser = new GerberMacroBodyParser(ctx);
 	}
 
 	public void file() {
-		ctx.throwNiceParseException(() -> {
-			zeroOrMore(this::statement);
-			endOfFile();
-		});
+		try {
+			ctx.throwNiceParseException(() -> {
+				zeroOrMore(this::statement);
+				endOfFile();
+			});
+		} finally {
+			ctx.detachLines();
+		}
+	}
+
+	/**
+	 * Parse statements up to the end of the input, without expecting the end of
+	 * file statement. Used to parse a chunk of a file.
+	 */
+	void statements() {
+		try {
+			ctx.throwNiceParseException(() -> {
+				zeroOrMore(this::statement);
+				eof();
+			});
+		} finally {
+			ctx.detachLines();
+		}
+	}
+
+	/**
+	 * Start parsing at the given position instead of the start of the input
+	 */
+	void startAt(InputPosition pos) {
+		ctx.state.pos = new InputPosition(pos.inputIndex,
+				new LineIndex(ctx.input, pos.inputIndex, pos.getLineNr(), pos.getLineStartIndex()));
 	}
 
 	void statement() {
+		// the statement loop never backtracks behind the start of the current
+		// statement
+		ctx.releaseInput();
 		eatNewLines();
+		if (useOperationFastPath && operationFastPath())
+			return;
 		if (!choiceNT(this::single_statement, this::compound_statement))
 			ctx.throwException();
 
@@ -59,7 +134,10 @@ public class GerberParser extends ParserBase<GerberParsingState> {
 	}
 
 	void in_block_statement() {
+		ctx.releaseInput();
 		eatNewLines();
+		if (useOperationFastPath && operationFastPath())
+			return;
 		if (!choiceNT(this::single_statement, this::region_statement, this::apertureBlock_AB_statement))
 			throw ctx.throwException();
 	}
@@ -529,6 +607,169 @@ public class GerberParser extends ParserBase<GerberParsingState> {
 
 	}
 
+	private static final String OPERATION_COORDINATE_LETTERS = "XYIJ";
+
+	/**
+	 * Input indexes of the coordinates found by {@link #operationFastPath()},
+	 * start and end for each of X, Y, I and J
+	 */
+	private final int[] operationCoordinateBounds = new int[8];
+
+	/**
+	 * Fixed point values of the coordinates found by {@link #operationFastPath()}
+	 */
+	private final long[] operationCoordinateValues = new long[4];
+
+	/**
+	 * Value of the last coordinate scanned by {@link #scanCoordinate(ParsingInput, int)}
+	 */
+	private long scannedCoordinate;
+
+	/**
+	 * Set if the last coordinate scanned did not fit into a long
+	 */
+	private boolean scannedCoordinateOverflow;
+
+	/**
+	 * Number of digits of the last coordinate scanned
+	 */
+	private int scannedCoordinateDigits;
+
+	/**
+	 * Single pass scanner for plain D01, D02 and D03 operations, which make up the
+	 * bulk of typical files. Does not copy the parsing state and does not throw
+	 * exceptions. If the input is not an operation without embedded new lines,
+	 * nothing is consumed and false is returned, leaving the statement to the
+	 * grammar.
+	 *
+	 * <p>
+	 * If the handler is a {@link GerberParsingFixedPointEventHandler}, the
+	 * coordinates are passed as fixed point values, without allocating any
+	 * strings.
+	 */
+	boolean operationFastPath() {
+		ParsingInput input = ctx.input;
+		int start = ctx.state.pos.inputIndex;
+		int idx = start;
+		int cp = cpAt(input, idx);
+
+		int present = 0;
+		boolean overflow = false;
+		for (int k = 0; k < 4; k++) {
+			if (cp != OPERATION_COORDINATE_LETTERS.charAt(k))
+				continue;
+			int end = scanCoordinate(input, idx + 1);
+			if (end < 0)
+				return false;
+			present |= 1 << k;
+			present |= scannedCoordinateDigits << (GerberParsingFixedPointEventHandler.DIGITS_SHIFT
+					+ GerberParsingFixedPointEventHandler.DIGITS_BITS * k);
+			operationCoordinateBounds[2 * k] = idx + 1;
+			operationCoordinateBounds[2 * k + 1] = end;
+			operationCoordinateValues[k] = scannedCoordinate;
+			overflow |= scannedCoordinateOverflow;
+			idx = end;
+			cp = cpAt(input, idx);
+		}
+
+		if (cp != 'D' || cpAt(input, idx + 1) != '0')
+			return false;
+		int operation = cpAt(input, idx + 2);
+		if (operation < '1' || operation > '3' || cpAt(input, idx + 3) != '*')
+			return false;
+		if (operation != '1' && (present & (GerberParsingFixedPointEventHandler.I
+				| GerberParsingFixedPointEventHandler.J)) != 0)
+			return false;
+		idx += 4;
+
+		var pos = ctx.copyPos();
+		ctx.state.pos.inputIndex = idx;
+
+		if (fixedPointHandler != null && !overflow) {
+			switch (operation) {
+			case '1':
+				fixedPointHandler.interpolateOperation(pos, present, coordinateValue(present, 0),
+						coordinateValue(present, 1), coordinateValue(present, 2), coordinateValue(present, 3));
+				break;
+			case '2':
+				fixedPointHandler.moveOperation(pos, present, coordinateValue(present, 0), coordinateValue(present, 1));
+				break;
+			default:
+				fixedPointHandler.flashOperation(pos, present, coordinateValue(present, 0),
+						coordinateValue(present, 1));
+			}
+			return true;
+		}
+
+		String x = coordinateString(present, 0);
+		String y = coordinateString(present, 1);
+		switch (operation) {
+		case '1':
+			handler.interpolateOperation(pos, x, y, coordinateString(present, 2), coordinateString(present, 3));
+			break;
+		case '2':
+			handler.moveOperation(pos, x, y);
+			break;
+		default:
+			handler.flashOperation(pos, x, y);
+		}
+		return true;
+	}
+
+	private long coordinateValue(int present, int k) {
+		return (present & (1 << k)) == 0 ? 0 : operationCoordinateValues[k];
+	}
+
+	private String coordinateString(int present, int k) {
+		if ((present & (1 << k)) == 0)
+			return null;
+		return ctx.input.substring(operationCoordinateBounds[2 * k], operationCoordinateBounds[2 * k + 1]);
+	}
+
+	/**
+	 * @return the code point at the index or -1 at EOF
+	 */
+	private static int cpAt(ParsingInput input, int idx) {
+		if (input.isEof(idx))
+			return -1;
+		return input.codePointAt(idx);
+	}
+
+	/**
+	 * Scan a coordinate (/[+-]{0,1}[0-9]+/) starting at the given index. The value
+	 * is stored in {@link #scannedCoordinate}, the number of digits in
+	 * {@link #scannedCoordinateDigits}.
+	 *
+	 * @return the index after the coordinate or -1 if there is none
+	 */
+	private int scanCoordinate(ParsingInput input, int idx) {
+		int cp = cpAt(input, idx);
+		boolean negative = false;
+		if (cp == '+' || cp == '-') {
+			negative = cp == '-';
+			idx++;
+			cp = cpAt(input, idx);
+		}
+		if (cp < '0' || cp > '9')
+			return -1;
+		int digitsStart = idx;
+		long value = 0;
+		boolean overflow = false;
+		do {
+			int digit = cp - '0';
+			if (value > (Long.MAX_VALUE - digit) / 10)
+				overflow = true;
+			else
+				value = value * 10 + digit;
+			idx++;
+			cp = cpAt(input, idx);
+		} while (cp >= '0' && cp <= '9');
+		scannedCoordinate = negative ? -value : value;
+		scannedCoordinateOverflow = overflow;
+		scannedCoordinateDigits = idx - digitsStart;
+		return idx;
+	}
+
 	void interpolateOperation_D01() {
 		var pos = ctx.copyPos();
 		var x = optional(() -> {
@@ -0,0 +1,550 @@
+package com.github.ruediste.gerberLib.parser;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroBody;
+import com.github.ruediste.gerberLib.read.QuadrantMode;
+
+/**
+ * Records the parsing events in a compact form, in order to replay them on any
+ * number of handlers without parsing the input again.
+ *
+ * <p>
+ * The event codes, positions and numbers are stored in primitive arrays. Only
+ * strings and structured parameters (formats, macro bodies, attribute values)
+ * are kept as references.
+ *
+ * <p>
+ * Operations reported as fixed point events are recorded as such. When
+ * replaying them on a handler not implementing
+ * {@link GerberParsingFixedPointEventHandler}, the coordinate strings are read
+ * again from the input the recorder was created with, so the handler receives
+ * the original text. Without input, the values are formatted with their
+ * original number of digits, dropping plus signs.
+ */
+public class GerberParsingEventRecorder implements GerberParsingFixedPointEventHandler {
+
+	private static final int COMMENT = 0;
+	private static final int COORDINATE_FORMAT_SPECIFICATION = 1;
+	private static final int UNIT = 2;
+	private static final int LOAD_POLARITY = 3;
+	private static final int APERTURE_DEFINITION = 4;
+	private static final int SET_CURRENT_APERTURE = 5;
+	private static final int INTERPOLATE_OPERATION = 6;
+	private static final int MOVE_OPERATION = 7;
+	private static final int FLASH_OPERATION = 8;
+	private static final int INTERPOLATE_OPERATION_FIXED = 9;
+	private static final int MOVE_OPERATION_FIXED = 10;
+	private static final int FLASH_OPERATION_FIXED = 11;
+	private static final int SET_INTERPOLATION_MODE = 12;
+	private static final int END_OF_FILE = 13;
+	private static final int UNKNOWN_STATEMENT = 14;
+	private static final int APERTURE_MACRO = 15;
+	private static final int BEGIN_REGION = 16;
+	private static final int END_REGION = 17;
+	private static final int SET_QUADRANT_MODE = 18;
+	private static final int BEGIN_BLOCK_APERTURE = 19;
+	private static final int END_BLOCK_APERTURE = 20;
+	private static final int LOAD_MIRRORING = 21;
+	private static final int LOAD_ROTATION = 22;
+	private static final int LOAD_SCALING = 23;
+	private static final int BEGIN_STEP_AND_REPEAT = 24;
+	private static final int END_STEP_AND_REPEAT = 25;
+	private static final int FILE_ATTRIBUTE = 26;
+	private static final int OBJECT_ATTRIBUTE = 27;
+	private static final int DELETE_ATTRIBUTE = 28;
+	private static final int APERTURE_ATTRIBUTE = 29;
+
+	private static final InterpolationMode[] INTERPOLATION_MODES = InterpolationMode.values();
+	private static final QuadrantMode[] QUADRANT_MODES = QuadrantMode.values();
+
+	private int[] ints = new int[1024];
+	private int intCount;
+	private long[] longs = new long[256];
+	private int longCount;
+	private Object[] objects = new Object[64];
+	private int objectCount;
+	private int eventCount;
+	private final InputPositionTable positions = new InputPositionTable();
+
+	/**
+	 * Input the events are recorded from, null if unknown
+	 */
+	private final ParsingInput input;
+
+	public GerberParsingEventRecorder() {
+		this(null);
+	}
+
+	/**
+	 * @param input input the events are recorded from. Used to replay the
+	 *              original coordinate strings of fixed point operations. Has to
+	 *              retain the operations until the replay.
+	 */
+	public GerberParsingEventRecorder(ParsingInput input) {
+		this.input = input;
+	}
+
+	public int getEventCount() {
+		return eventCount;
+	}
+
+	private void addInt(int value) {
+		if (intCount == ints.length)
+			ints = Arrays.copyOf(ints, ints.length * 2);
+		ints[intCount++] = value;
+	}
+
+	private void addLong(long value) {
+		if (longCount == longs.length)
+			longs = Arrays.copyOf(longs, longs.length * 2);
+		longs[longCount++] = value;
+	}
+
+	private void addObject(Object value) {
+		if (objectCount == objects.length)
+			objects = Arrays.copyOf(objects, objects.length * 2);
+		objects[objectCount++] = value;
+	}
+
+	private void event(int code) {
+		eventCount++;
+		addInt(code);
+	}
+
+	private void event(int code, InputPosition pos) {
+		event(code);
+		addInt(pos.inputIndex);
+		addInt(positions.id(pos));
+	}
+
+	/**
+	 * Read position into the recorded arrays during replay
+	 */
+	private class Cursor {
+		int intIdx;
+		int longIdx;
+		int objectIdx;
+
+		int nextInt() {
+			return ints[intIdx++];
+		}
+
+		long nextLong() {
+			return longs[longIdx++];
+		}
+
+		@SuppressWarnings("unchecked")
+		<T> T nextObject() {
+			return (T) objects[objectIdx++];
+		}
+
+		InputPosition nextPos() {
+			int inputIndex = nextInt();
+			return positions.position(inputIndex, nextInt());
+		}
+
+		/**
+		 * Read a fixed point coordinate, if present
+		 */
+		long nextCoordinate(int present, int bit) {
+			return (present & bit) == 0 ? 0 : nextLong();
+		}
+	}
+
+	/**
+	 * Pass all recorded events to the handler, in the order they were recorded
+	 */
+	public void replay(GerberParsingEventHandler handler) {
+		GerberParsingFixedPointEventHandler fixedPointHandler = handler instanceof GerberParsingFixedPointEventHandler
+				? (GerberParsingFixedPointEventHandler) handler
+				: null;
+		Cursor c = new Cursor();
+		while (c.intIdx < intCount) {
+			int code = c.nextInt();
+			switch (code) {
+			case COMMENT:
+				handler.comment(c.nextPos(), c.nextObject());
+				break;
+			case COORDINATE_FORMAT_SPECIFICATION:
+				handler.coordinateFormatSpecification(c.nextPos(), c.nextObject());
+				break;
+			case UNIT:
+				handler.unit(c.nextPos(), c.nextObject());
+				break;
+			case LOAD_POLARITY:
+				handler.loadPolarity(c.nextPos(), c.nextObject());
+				break;
+			case APERTURE_DEFINITION:
+				handler.apertureDefinition(c.nextPos(), c.nextInt(), c.nextObject(), c.nextObject());
+				break;
+			case SET_CURRENT_APERTURE:
+				handler.setCurrentAperture(c.nextPos(), c.nextInt());
+				break;
+			case INTERPOLATE_OPERATION:
+				handler.interpolateOperation(c.nextPos(), c.nextObject(), c.nextObject(), c.nextObject(),
+						c.nextObject());
+				break;
+			case MOVE_OPERATION:
+				handler.moveOperation(c.nextPos(), c.nextObject(), c.nextObject());
+				break;
+			case FLASH_OPERATION:
+				handler.flashOperation(c.nextPos(), c.nextObject(), c.nextObject());
+				break;
+			case INTERPOLATE_OPERATION_FIXED: {
+				InputPosition pos = c.nextPos();
+				int present = c.nextInt();
+				long x = c.nextCoordinate(present, X);
+				long y = c.nextCoordinate(present, Y);
+				long i = c.nextCoordinate(present, I);
+				long j = c.nextCoordinate(present, J);
+				if (fixedPointHandler != null)
+					fixedPointHandler.interpolateOperation(pos, present, x, y, i, j);
+				else {
+					String[] s = coordinateStrings(pos, present, x, y, i, j);
+					handler.interpolateOperation(pos, s[0], s[1], s[2], s[3]);
+				}
+				break;
+			}
+			case MOVE_OPERATION_FIXED: {
+				InputPosition pos = c.nextPos();
+				int present = c.nextInt();
+				long x = c.nextCoordinate(present, X);
+				long y = c.nextCoordinate(present, Y);
+				if (fixedPointHandler != null)
+					fixedPointHandler.moveOperation(pos, present, x, y);
+				else {
+					String[] s = coordinateStrings(pos, present, x, y, 0, 0);
+					handler.moveOperation(pos, s[0], s[1]);
+				}
+				break;
+			}
+			case FLASH_OPERATION_FIXED: {
+				InputPosition pos = c.nextPos();
+				int present = c.nextInt();
+				long x = c.nextCoordinate(present, X);
+				long y = c.nextCoordinate(present, Y);
+				if (fixedPointHandler != null)
+					fixedPointHandler.flashOperation(pos, present, x, y);
+				else {
+					String[] s = coordinateStrings(pos, present, x, y, 0, 0);
+					handler.flashOperation(pos, s[0], s[1]);
+				}
+				break;
+			}
+			case SET_INTERPOLATION_MODE: {
+				InputPosition pos = c.nextPos();
+				int mode = c.nextInt();
+				handler.setInterpolationMode(pos, mode < 0 ? null : INTERPOLATION_MODES[mode]);
+				break;
+			}
+			case END_OF_FILE:
+				handler.endOfFile(c.nextPos());
+				break;
+			case UNKNOWN_STATEMENT:
+				handler.unknownStatement(c.nextPos(), c.nextObject());
+				break;
+			case APERTURE_MACRO:
+				handler.apertureMacro(c.nextPos(), c.nextObject(), c.nextObject());
+				break;
+			case BEGIN_REGION:
+				handler.beginRegion(c.nextPos());
+				break;
+			case END_REGION:
+				handler.endRegion(c.nextPos());
+				break;
+			case SET_QUADRANT_MODE: {
+				InputPosition pos = c.nextPos();
+				int mode = c.nextInt();
+				handler.setQuadrantMode(pos, mode < 0 ? null : QUADRANT_MODES[mode]);
+				break;
+			}
+			case BEGIN_BLOCK_APERTURE:
+				handler.beginBlockAperture(c.nextInt());
+				break;
+			case END_BLOCK_APERTURE:
+				handler.endBlockAperture(c.nextInt());
+				break;
+			case LOAD_MIRRORING:
+				handler.loadMirroring(c.nextPos(), c.nextObject());
+				break;
+			case LOAD_ROTATION:
+				handler.loadRotation(c.nextPos(), c.nextObject());
+				break;
+			case LOAD_SCALING:
+				handler.loadScaling(c.nextPos(), c.nextObject());
+				break;
+			case BEGIN_STEP_AND_REPEAT:
+				handler.beginStepAndRepeat(c.nextPos());
+				break;
+			case END_STEP_AND_REPEAT:
+				handler.endStepAndRepeat(c.nextPos(), c.nextObject(), c.nextObject(), c.nextObject(),
+						c.nextObject());
+				break;
+			case FILE_ATTRIBUTE:
+				handler.fileAttribute(c.nextPos(), c.nextObject(), c.nextObject());
+				break;
+			case OBJECT_ATTRIBUTE:
+				handler.objectAttribute(c.nextPos(), c.nextObject(), c.nextObject());
+				break;
+			case DELETE_ATTRIBUTE:
+				handler.deleteAttribute(c.nextPos(), c.nextObject());
+				break;
+			case APERTURE_ATTRIBUTE:
+				handler.apertureAttribute(c.nextPos(), c.nextObject(), c.nextObject());
+				break;
+			default:
+				throw new IllegalStateException("Unknown event code " + code);
+			}
+		}
+	}
+
+	/**
+	 * Return the strings of the X, Y, I and J coordinates of a fixed point
+	 * operation, null if absent. Fixed point operations are only reported for
+	 * statements consisting of the coordinates and the D code, so the
+	 * coordinates are found by scanning the statement starting at the position.
+	 */
+	private String[] coordinateStrings(InputPosition pos, int present, long x, long y, long i, long j) {
+		String[] result = new String[4];
+		if (input == null) {
+			long[] values = { x, y, i, j };
+			for (int k = 0; k < 4; k++)
+				if ((present & (1 << k)) != 0)
+					result[k] = formatCoordinate(values[k],
+							GerberParsingFixedPointEventHandler.digits(present, 1 << k));
+			return result;
+		}
+		int idx = pos.inputIndex;
+		for (int k = 0; k < 4; k++) {
+			if ((present & (1 << k)) == 0)
+				continue;
+			// skip the coordinate letter
+			int start = input.nextIndex(idx);
+			int end = start;
+			while (!input.isEof(end) && !Character.isLetter(input.codePointAt(end)))
+				end = input.nextIndex(end);
+			result[k] = input.substring(start, end);
+			idx = end;
+		}
+		return result;
+	}
+
+	/**
+	 * Format the value with the given number of digits, adding leading zeros
+	 */
+	private static String formatCoordinate(long value, int digits) {
+		String abs = Long.toString(Math.abs(value));
+		StringBuilder sb = new StringBuilder(digits + 1);
+		if (value < 0)
+			sb.append('-');
+		for (int k = abs.length(); k < digits; k++)
+			sb.append('0');
+		return sb.append(abs).toString();
+	}
+
+	@Override
+	public void comment(InputPosition pos, String string) {
+		event(COMMENT, pos);
+		addObject(string);
+	}
+
+	@Override
+	public void coordinateFormatSpecification(InputPosition pos, GerberCoordinateFormatSpecification format) {
+		event(COORDINATE_FORMAT_SPECIFICATION, pos);
+		addObject(format);
+	}
+
+	@Override
+	public void unit(InputPosition pos, String unit) {
+		event(UNIT, pos);
+		addObject(unit);
+	}
+
+	@Override
+	public void loadPolarity(InputPosition pos, String polarity) {
+		event(LOAD_POLARITY, pos);
+		addObject(polarity);
+	}
+
+	@Override
+	public void apertureDefinition(InputPosition pos, int number, String template, List<String> parameters) {
+		event(APERTURE_DEFINITION, pos);
+		addInt(number);
+		addObject(template);
+		addObject(parameters);
+	}
+
+	@Override
+	public void setCurrentAperture(InputPosition pos, int aperture) {
+		event(SET_CURRENT_APERTURE, pos);
+		addInt(aperture);
+	}
+
+	@Override
+	public void interpolateOperation(InputPosition pos, String x, String y, String i, String j) {
+		event(INTERPOLATE_OPERATION, pos);
+		addObject(x);
+		addObject(y);
+		addObject(i);
+		addObject(j);
+	}
+
+	@Override
+	public void moveOperation(InputPosition pos, String x, String y) {
+		event(MOVE_OPERATION, pos);
+		addObject(x);
+		addObject(y);
+	}
+
+	@Override
+	public void flashOperation(InputPosition pos, String x, String y) {
+		event(FLASH_OPERATION, pos);
+		addObject(x);
+		addObject(y);
+	}
+
+	private void addCoordinate(int present, int bit, long value) {
+		if ((present & bit) != 0)
+			addLong(value);
+	}
+
+	@Override
+	public void interpolateOperation(InputPosition pos, int present, long x, long y, long i, long j) {
+		event(INTERPOLATE_OPERATION_FIXED, pos);
+		addInt(present);
+		addCoordinate(present, X, x);
+		addCoordinate(present, Y, y);
+		addCoordinate(present, I, i);
+		addCoordinate(present, J, j);
+	}
+
+	@Override
+	public void moveOperation(InputPosition pos, int present, long x, long y) {
+		event(MOVE_OPERATION_FIXED, pos);
+		addInt(present);
+		addCoordinate(present, X, x);
+		addCoordinate(present, Y, y);
+	}
+
+	@Override
+	public void flashOperation(InputPosition pos, int present, long x, long y) {
+		event(FLASH_OPERATION_FIXED, pos);
+		addInt(present);
+		addCoordinate(present, X, x);
+		addCoordinate(present, Y, y);
+	}
+
+	@Override
+	public void setInterpolationMode(InputPosition pos, InterpolationMode mode) {
+		event(SET_INTERPOLATION_MODE, pos);
+		addInt(mode == null ? -1 : mode.ordinal());
+	}
+
+	@Override
+	public void endOfFile(InputPosition pos) {
+		event(END_OF_FILE, pos);
+	}
+
+	@Override
+	public void unknownStatement(InputPosition pos, String text) {
+		event(UNKNOWN_STATEMENT, pos);
+		addObject(text);
+	}
+
+	@Override
+	public void apertureMacro(InputPosition pos, String name, MacroBody body) {
+		event(APERTURE_MACRO, pos);
+		addObject(name);
+		addObject(body);
+	}
+
+	@Override
+	public void beginRegion(InputPosition pos) {
+		event(BEGIN_REGION, pos);
+	}
+
+	@Override
+	public void endRegion(InputPosition pos) {
+		event(END_REGION, pos);
+	}
+
+	@Override
+	public void setQuadrantMode(InputPosition pos, QuadrantMode mode) {
+		event(SET_QUADRANT_MODE, pos);
+		addInt(mode == null ? -1 : mode.ordinal());
+	}
+
+	@Override
+	public void beginBlockAperture(int nr) {
+		event(BEGIN_BLOCK_APERTURE);
+		addInt(nr);
+	}
+
+	@Override
+	public void endBlockAperture(int nr) {
+		event(END_BLOCK_APERTURE);
+		addInt(nr);
+	}
+
+	@Override
+	public void loadMirroring(InputPosition pos, String mirroring) {
+		event(LOAD_MIRRORING, pos);
+		addObject(mirroring);
+	}
+
+	@Override
+	public void loadRotation(InputPosition pos, String rotation) {
+		event(LOAD_ROTATION, pos);
+		addObject(rotation);
+	}
+
+	@Override
+	public void loadScaling(InputPosition pos, String scaling) {
+		event(LOAD_SCALING, pos);
+		addObject(scaling);
+	}
+
+	@Override
+	public void beginStepAndRepeat(InputPosition pos) {
+		event(BEGIN_STEP_AND_REPEAT, pos);
+	}
+
+	@Override
+	public void endStepAndRepeat(InputPosition pos, String xRepeats, String yRepeats, String xDistance,
+			String yDistance) {
+		event(END_STEP_AND_REPEAT, pos);
+		addObject(xRepeats);
+		addObject(yRepeats);
+		addObject(xDistance);
+		addObject(yDistance);
+	}
+
+	@Override
+	public void fileAttribute(InputPosition pos, String name, List<String> attributes) {
+		event(FILE_ATTRIBUTE, pos);
+		addObject(name);
+		addObject(attributes);
+	}
+
+	@Override
+	public void objectAttribute(InputPosition pos, String name, List<String> attributes) {
+		event(OBJECT_ATTRIBUTE, pos);
+		addObject(name);
+		addObject(attributes);
+	}
+
+	@Override
+	public void deleteAttribute(InputPosition pos, String name) {
+		event(DELETE_ATTRIBUTE, pos);
+		addObject(name);
+	}
+
+	@Override
+	public void apertureAttribute(InputPosition pos, String name, List<String> attributes) {
+		event(APERTURE_ATTRIBUTE, pos);
+		addObject(name);
+		addObject(attributes);
+	}
+}
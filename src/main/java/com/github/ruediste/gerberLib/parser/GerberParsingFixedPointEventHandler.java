@@ -0,0 +1,48 @@
+package com.github.ruediste.gerberLib.parser;
+
+/**
+ * Extension of the {@link GerberParsingEventHandler} receiving the coordinates
+ * of operations as fixed point values instead of strings. The values are the
+ * coordinate digits interpreted as integer, the decimal digits given by the
+ * {@link GerberCoordinateFormatSpecification} still have to be applied. The
+ * bits of the <b>present</b> mask ({@link #X}, {@link #Y}, {@link #I},
+ * {@link #J}) indicate which coordinates are given, absent coordinates are
+ * passed as 0. Above these bits, the mask holds the number of digits of each
+ * given coordinate, see {@link #digits(int, int)}. The digit count is needed
+ * to interpret coordinates with more digits than the format specifies exactly
+ * like their string form.
+ *
+ * <p>
+ * The parser uses these events whenever it can. Operations not fitting the
+ * fast path (for example with new lines within the statement or more than 18
+ * digits) are still reported with the string events.
+ */
+public interface GerberParsingFixedPointEventHandler extends GerberParsingEventHandler {
+
+	int X = 1;
+	int Y = 2;
+	int I = 4;
+	int J = 8;
+
+	/**
+	 * Position of the digit count of the X coordinate in the present mask. The
+	 * counts of X, Y, I and J use {@link #DIGITS_BITS} bits each.
+	 */
+	int DIGITS_SHIFT = 4;
+	int DIGITS_BITS = 5;
+
+	/**
+	 * @param coordinate one of {@link #X}, {@link #Y}, {@link #I}, {@link #J}
+	 * @return the number of digits of the coordinate, without sign
+	 */
+	static int digits(int present, int coordinate) {
+		int shift = DIGITS_SHIFT + DIGITS_BITS * Integer.numberOfTrailingZeros(coordinate);
+		return (present >>> shift) & ((1 << DIGITS_BITS) - 1);
+	}
+
+	public void interpolateOperation(InputPosition pos, int present, long x, long y, long i, long j);
+
+	public void moveOperation(InputPosition pos, int present, long x, long y);
+
+	public void flashOperation(InputPosition pos, int present, long x, long y);
+}
@@ -1,20 +1,85 @@
 package com.github.ruediste.gerberLib.parser;
 
+/**
+ * Position in the input. The line and column are resolved lazily using the
+ * {@link LineIndex} of the input, if set. Otherwise they have to be set
+ * explicitly using {@link #setLine(int, int, int)}.
+ */
 public class InputPosition {
 	public int inputIndex = 0;
-	public int lineStartIndex = 0;
-	public int lineNr = 1;
-	public int linePos = 1;
+
+	/**
+	 * Index used to resolve the line, null if the line is set explicitly
+	 */
+	public LineIndex lines;
+
+	/**
+	 * Resolved or explicitly set line, null if not resolved yet. Immutable, so
+	 * positions can be resolved concurrently and copies can share it.
+	 */
+	private Line line;
+
+	private static final Line FIRST_LINE = new Line(0, 0, 1, 1);
+
+	private static final class Line {
+		/**
+		 * Input index the line has been resolved for
+		 */
+		final int inputIndex;
+		final int startIndex;
+		final int nr;
+		final int pos;
+
+		Line(int inputIndex, int startIndex, int nr, int pos) {
+			this.inputIndex = inputIndex;
+			this.startIndex = startIndex;
+			this.nr = nr;
+			this.pos = pos;
+		}
+	}
+
+	public InputPosition() {
+	}
+
+	public InputPosition(int inputIndex, LineIndex lines) {
+		this.inputIndex = inputIndex;
+		this.lines = lines;
+	}
 
 	public InputPosition copy() {
-		InputPosition result = new InputPosition();
-		result.inputIndex = inputIndex;
-		result.lineStartIndex = lineStartIndex;
-		result.lineNr = lineNr;
-		result.linePos = linePos;
+		InputPosition result = new InputPosition(inputIndex, lines);
+		result.line = line;
 		return result;
 	}
 
+	/**
+	 * Set the line of the position explicitly
+	 */
+	public void setLine(int lineStartIndex, int lineNr, int linePos) {
+		line = new Line(inputIndex, lineStartIndex, lineNr, linePos);
+	}
+
+	private Line line() {
+		Line result = line;
+		if (lines != null && (result == null || result.inputIndex != inputIndex)) {
+			lines.resolve(this);
+			result = line;
+		}
+		return result == null ? FIRST_LINE : result;
+	}
+
+	public int getLineStartIndex() {
+		return line().startIndex;
+	}
+
+	public int getLineNr() {
+		return line().nr;
+	}
+
+	public int getLinePos() {
+		return line().pos;
+	}
+
 	public boolean isBefore(InputPosition other) {
 		return inputIndex < other.inputIndex;
 	}
@@ -24,9 +89,14 @@ public class InputPosition {
 	}
 
 	public String lineWithMarker(String input) {
+		return lineWithMarker(new StringParsingInput(input));
+	}
+
+	public String lineWithMarker(ParsingInput input) {
 		StringBuilder line = new StringBuilder();
 		StringBuilder marker = new StringBuilder();
-		for (var idx = lineStartIndex; idx < input.length(); idx = input.offsetByCodePoints(idx, 1)) {
+		for (var idx = Math.max(getLineStartIndex(), input.firstRetainedIndex()); !input.isEof(idx); idx = input
+				.nextIndex(idx)) {
 			int cp = input.codePointAt(idx);
 			if (cp == '\n')
 				break;
@@ -41,6 +111,6 @@ public class InputPosition {
 
 	@Override
 	public String toString() {
-		return "Line " + lineNr + ":" + linePos;
+		return "Line " + getLineNr() + ":" + getLinePos();
 	}
 }
@@ -0,0 +1,104 @@
+package com.github.ruediste.gerberLib.parser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allows recorders to store {@link InputPosition}s as two ints, the input
+ * index and an id referring to the {@link LineIndex} of the position. Lines are
+ * not resolved while recording.
+ *
+ * <p>
+ * During replay, consecutive events with the same position share a single
+ * instance.
+ */
+public class InputPositionTable {
+
+	private final List<LineIndex> lineIndexes = new ArrayList<>();
+	private final Map<LineIndex, Integer> lineIndexIds = new IdentityHashMap<>();
+	private int[] maxInputIndexes = new int[4];
+
+	/**
+	 * Positions with explicitly set lines
+	 */
+	private final List<InputPosition> explicitPositions = new ArrayList<>();
+
+	private InputPosition lastPosition;
+	private int lastId;
+
+	/**
+	 * Return the id to store together with the input index of the position
+	 */
+	public int id(InputPosition pos) {
+		if (pos.lines == null) {
+			explicitPositions.add(pos.copy());
+			return -explicitPositions.size();
+		}
+		Integer id = lineIndexIds.get(pos.lines);
+		if (id == null) {
+			id = lineIndexes.size();
+			lineIndexes.add(pos.lines);
+			lineIndexIds.put(pos.lines, id);
+			if (id == maxInputIndexes.length)
+				maxInputIndexes = Arrays.copyOf(maxInputIndexes, id * 2);
+		}
+		maxInputIndexes[id] = Math.max(maxInputIndexes[id], pos.inputIndex);
+		return id;
+	}
+
+	/**
+	 * Return the position for an input index and id
+	 */
+	public InputPosition position(int inputIndex, int id) {
+		if (id < 0)
+			return explicitPositions.get(-id - 1);
+		if (lastPosition == null || lastPosition.inputIndex != inputIndex || lastId != id) {
+			lastPosition = new InputPosition(inputIndex, lineIndexes.get(id));
+			lastId = id;
+		}
+		return lastPosition;
+	}
+
+	/**
+	 * Write the table. Read it back using {@link #read(DataInput)}.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(lineIndexes.size());
+		for (int i = 0; i < lineIndexes.size(); i++)
+			lineIndexes.get(i).write(out, maxInputIndexes[i]);
+		out.writeInt(explicitPositions.size());
+		for (InputPosition pos : explicitPositions) {
+			out.writeInt(pos.inputIndex);
+			out.writeInt(pos.getLineStartIndex());
+			out.writeInt(pos.getLineNr());
+			out.writeInt(pos.getLinePos());
+		}
+	}
+
+	public static InputPositionTable read(DataInput in) throws IOException {
+		InputPositionTable result = new InputPositionTable();
+		int lineIndexCount = in.readInt();
+		result.maxInputIndexes = new int[Math.max(4, lineIndexCount)];
+		for (int i = 0; i < lineIndexCount; i++) {
+			LineIndex lines = LineIndex.read(in);
+			result.lineIndexes.add(lines);
+			result.lineIndexIds.put(lines, i);
+		}
+		int explicitCount = in.readInt();
+		for (int i = 0; i < explicitCount; i++) {
+			InputPosition pos = new InputPosition();
+			pos.inputIndex = in.readInt();
+			int lineStartIndex = in.readInt();
+			int lineNr = in.readInt();
+			pos.setLine(lineStartIndex, lineNr, in.readInt());
+			result.explicitPositions.add(pos);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,145 @@
+package com.github.ruediste.gerberLib.parser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Index of the line starts of an input, used to resolve the line and column
+ * of {@link InputPosition}s on demand. The input is scanned for line breaks
+ * only as far as needed.
+ *
+ * <p>
+ * Streaming inputs have to be scanned before discarding code points (see
+ * {@link #scanTo(int)}). For released or detached inputs, the column is
+ * calculated from the index difference, assuming ASCII input.
+ *
+ * <p>
+ * Positions are retained by handlers (warnings, recorders) and may be resolved
+ * from any thread, thus all access to the line starts is synchronized. Once
+ * parsing is done, the index should be {@link #detach(int) detached}, so
+ * retained positions do not keep the input reachable.
+ */
+public class LineIndex {
+
+	/**
+	 * Input to scan, null if detached
+	 */
+	private ParsingInput input;
+
+	private final int firstLineNr;
+
+	/**
+	 * The start indexes of the lines found so far, starting with the line of
+	 * {@link #firstLineNr}
+	 */
+	private int[] lineStarts = new int[64];
+	private int lineCount;
+
+	/**
+	 * Index up to which the input has been scanned
+	 */
+	private int scannedTo;
+
+	public LineIndex(ParsingInput input) {
+		this(input, 0, 1, 0);
+	}
+
+	/**
+	 * Create an index for an input which is only accessed from the given
+	 * position onwards, which must be at the start of a code point
+	 */
+	public LineIndex(ParsingInput input, int index, int lineNr, int lineStartIndex) {
+		this.input = input;
+		this.firstLineNr = lineNr;
+		lineStarts[lineCount++] = lineStartIndex;
+		scannedTo = index;
+	}
+
+	private LineIndex(int firstLineNr, int[] lineStarts, int scannedTo) {
+		input = null;
+		this.firstLineNr = firstLineNr;
+		this.lineStarts = lineStarts;
+		this.lineCount = lineStarts.length;
+		this.scannedTo = scannedTo;
+	}
+
+	/**
+	 * Record the line starts up to the given index
+	 */
+	public synchronized void scanTo(int index) {
+		if (input == null)
+			return;
+		int idx = scannedTo;
+		while (idx < index && !input.isEof(idx)) {
+			int cp = input.codePointAt(idx);
+			idx = input.nextIndex(idx);
+			if (cp == '\n') {
+				if (lineCount == lineStarts.length)
+					lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+				lineStarts[lineCount++] = idx;
+			}
+		}
+		if (idx > scannedTo)
+			scannedTo = idx;
+	}
+
+	/**
+	 * Determine the line of the position
+	 */
+	synchronized void resolve(InputPosition pos) {
+		int index = pos.inputIndex;
+		scanTo(index);
+		int line = Arrays.binarySearch(lineStarts, 0, lineCount, index);
+		if (line < 0)
+			line = -line - 2;
+		if (line < 0)
+			line = 0;
+		int lineStart = lineStarts[line];
+
+		int linePos = 1;
+		if (input != null && !input.isReleased(lineStart)) {
+			for (int idx = lineStart; idx < index && !input.isEof(idx); idx = input.nextIndex(idx))
+				linePos++;
+		} else
+			linePos += index - lineStart;
+
+		pos.setLine(lineStart, firstLineNr + line, linePos);
+	}
+
+	/**
+	 * Record the line starts up to the given index and drop the reference to the
+	 * input. Positions after the index cannot be resolved afterwards.
+	 */
+	public synchronized void detach(int index) {
+		scanTo(index);
+		input = null;
+	}
+
+	/**
+	 * Write the line starts up to the given index. Read the index back using
+	 * {@link #read(DataInput)}.
+	 */
+	public synchronized void write(DataOutput out, int index) throws IOException {
+		scanTo(index);
+		out.writeInt(firstLineNr);
+		out.writeInt(scannedTo);
+		out.writeInt(lineCount);
+		for (int i = 0; i < lineCount; i++)
+			out.writeInt(lineStarts[i]);
+	}
+
+	/**
+	 * Read an index written by {@link #write(DataOutput, int)}. The result is
+	 * detached from the input.
+	 */
+	public static LineIndex read(DataInput in) throws IOException {
+		int firstLineNr = in.readInt();
+		int scannedTo = in.readInt();
+		int[] lineStarts = new int[in.readInt()];
+		for (int i = 0; i < lineStarts.length; i++)
+			lineStarts[i] = in.readInt();
+		return new LineIndex(firstLineNr, lineStarts, scannedTo);
+	}
+}
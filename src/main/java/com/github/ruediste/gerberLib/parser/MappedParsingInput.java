@@ -0,0 +1,77 @@
+package com.github.ruediste.gerberLib.parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link ParsingInput} indexing the bytes of a {@link ByteBuffer} directly.
+ * Typically used with a memory mapped file (see {@link #map(Path)}), which
+ * allows parsing large files without copying them to the heap.
+ */
+public class MappedParsingInput extends Utf8ParsingInput {
+
+	private final ByteBuffer buffer;
+	private final int limit;
+
+	/**
+	 * Create an input over the bytes from 0 up to the limit of the buffer
+	 */
+	public MappedParsingInput(ByteBuffer buffer) {
+		this(buffer, buffer.limit());
+	}
+
+	/**
+	 * Create an input over the bytes from 0 up to the given limit. Indexes stay
+	 * relative to the start of the buffer.
+	 */
+	public MappedParsingInput(ByteBuffer buffer, int limit) {
+		this.buffer = buffer;
+		this.limit = limit;
+	}
+
+	/**
+	 * Map the given file into memory. The file must be smaller than 2GB.
+	 */
+	public static MappedParsingInput map(Path file) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new MappedParsingInput(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	protected boolean isAvailable(int index) {
+		return index < limit;
+	}
+
+	@Override
+	protected int byteAt(int index) {
+		return buffer.get(index) & 0xff;
+	}
+
+	@Override
+	public boolean isEof(int index) {
+		return index >= limit;
+	}
+
+	@Override
+	public int codePointAt(int index) {
+		byte b = buffer.get(index);
+		if (b >= 0)
+			return b;
+		return super.codePointAt(index);
+	}
+
+	@Override
+	public int nextIndex(int index) {
+		if (buffer.get(index) >= 0)
+			return index + 1;
+		return super.nextIndex(index);
+	}
+}
@@ -0,0 +1,220 @@
+package com.github.ruediste.gerberLib.parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Parses a single file using multiple threads.
+ *
+ * <p>
+ * A prescan splits the input into chunks at statement boundaries outside of
+ * extended (%...%) statements, regions and step and repeat or aperture blocks.
+ * The chunks are parsed concurrently, each one recording its events. The
+ * recorded events are then passed to the handler in file order, on the calling
+ * thread, so the handler sees the same events as with the {@link GerberParser},
+ * including the original coordinate strings for handlers not using fixed point
+ * coordinates.
+ *
+ * <p>
+ * The graphics state (FS, MO, AD, LP, ...) does not need to be tracked by the
+ * prescan: the parser itself is stateless, all state is maintained by the
+ * handler while receiving the events in order.
+ *
+ * <p>
+ * If parsing any chunk fails, the whole file is parsed again sequentially,
+ * which yields the same events and errors as the {@link GerberParser}.
+ */
+public class ParallelGerberParser {
+
+	/**
+	 * Minimum size of the chunks, in bytes
+	 */
+	public int targetChunkSize = 1 << 20;
+
+	private final GerberParsingEventHandler handler;
+	private final ByteBuffer input;
+	private final ExecutorService executor;
+
+	static class Chunk {
+		/**
+		 * Position of the first statement of the chunk
+		 */
+		InputPosition start;
+		int end;
+
+		@Override
+		public String toString() {
+			return start.inputIndex + "-" + end;
+		}
+	}
+
+	/**
+	 * @param input UTF-8 encoded bytes of the file, from 0 up to the limit of the
+	 *              buffer
+	 */
+	public ParallelGerberParser(GerberParsingEventHandler handler, ByteBuffer input, ExecutorService executor) {
+		this.handler = handler;
+		this.input = input;
+		this.executor = executor;
+	}
+
+	public ParallelGerberParser(GerberParsingEventHandler handler, Path file, ExecutorService executor) {
+		this(handler, map(file), executor);
+	}
+
+	private static ByteBuffer map(Path file) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void file() throws InterruptedException {
+		List<Chunk> chunks = split(input, targetChunkSize);
+		if (chunks.size() == 1) {
+			new GerberParser(handler, new MappedParsingInput(input)).file();
+			return;
+		}
+
+		List<Future<GerberParsingEventRecorder>> futures = new ArrayList<>();
+		List<GerberParsingEventRecorder> recorders = new ArrayList<>();
+		boolean failed = false;
+		try {
+			for (int i = 0; i < chunks.size(); i++) {
+				Chunk chunk = chunks.get(i);
+				boolean last = i == chunks.size() - 1;
+				futures.add(executor.submit(() -> parse(chunk, last)));
+			}
+			for (var future : futures) {
+				try {
+					recorders.add(future.get());
+				} catch (ExecutionException e) {
+					if (!(e.getCause() instanceof ParseException))
+						throw new RuntimeException("Error while parsing chunk", e.getCause());
+					failed = true;
+					break;
+				}
+			}
+		} finally {
+			futures.forEach(x -> x.cancel(true));
+		}
+
+		if (failed)
+			new GerberParser(handler, new MappedParsingInput(input)).file();
+		else
+			recorders.forEach(x -> x.replay(handler));
+	}
+
+	private GerberParsingEventRecorder parse(Chunk chunk, boolean last) {
+		MappedParsingInput chunkInput = new MappedParsingInput(input.duplicate(), chunk.end);
+		GerberParsingEventRecorder recorder = new GerberParsingEventRecorder(chunkInput);
+		GerberParser parser = new GerberParser(recorder, chunkInput);
+		parser.startAt(chunk.start);
+		if (last)
+			parser.file();
+		else
+			parser.statements();
+		return recorder;
+	}
+
+	/**
+	 * Split the input into chunks of at least the target size, as far as safe
+	 * boundaries allow
+	 */
+	static List<Chunk> split(ByteBuffer input, int targetChunkSize) {
+		List<Chunk> chunks = new ArrayList<>();
+		int limit = input.limit();
+
+		// position of the next code point
+		int lineNr = 1;
+		int linePos = 1;
+		int lineStartIndex = 0;
+
+		boolean inExtended = false;
+		boolean firstWordOfExtended = false;
+		boolean regionActive = false;
+		int blockDepth = 0;
+
+		// the first three significant characters of the current word and its length
+		int c0 = 0, c1 = 0, c2 = 0;
+		int wordLength = 0;
+
+		Chunk current = new Chunk();
+		current.start = new InputPosition();
+
+		for (int i = 0; i < limit; i++) {
+			int b = input.get(i) & 0xff;
+			if (b == '\n') {
+				lineNr++;
+				linePos = 1;
+				lineStartIndex = i + 1;
+				continue;
+			}
+			if ((b & 0xC0) != 0x80)
+				linePos++;
+			if (b == '\r')
+				continue;
+
+			boolean boundary = false;
+			if (b == '%') {
+				inExtended = !inExtended;
+				firstWordOfExtended = inExtended;
+				boundary = !inExtended;
+				wordLength = 0;
+			} else if (b == '*') {
+				if (inExtended) {
+					if (firstWordOfExtended && wordLength >= 2) {
+						if ((c0 == 'S' && c1 == 'R') || (c0 == 'A' && c1 == 'B')) {
+							if (wordLength == 2)
+								blockDepth--;
+							else
+								blockDepth++;
+						}
+					}
+					firstWordOfExtended = false;
+				} else {
+					if (wordLength == 3 && c0 == 'G' && c1 == '3') {
+						if (c2 == '6')
+							regionActive = true;
+						else if (c2 == '7')
+							regionActive = false;
+					}
+					boundary = true;
+				}
+				wordLength = 0;
+			} else {
+				if (wordLength == 0)
+					c0 = b;
+				else if (wordLength == 1)
+					c1 = b;
+				else if (wordLength == 2)
+					c2 = b;
+				wordLength++;
+			}
+
+			if (boundary && blockDepth == 0 && !regionActive && i + 1 - current.start.inputIndex >= targetChunkSize
+					&& i + 1 < limit) {
+				current.end = i + 1;
+				chunks.add(current);
+				current = new Chunk();
+				current.start = new InputPosition();
+				current.start.inputIndex = i + 1;
+				current.start.setLine(lineStartIndex, lineNr, linePos);
+			}
+		}
+		current.end = limit;
+		chunks.add(current);
+		return chunks;
+	}
+}
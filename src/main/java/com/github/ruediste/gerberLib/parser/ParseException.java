@@ -11,7 +11,7 @@ public class ParseException extends RuntimeException {
 	public InputPosition pos;
 	public Set<String> expected;
 
-	public ParseException(Set<String> expected, InputPosition pos, String input) {
+	public ParseException(Set<String> expected, InputPosition pos, ParsingInput input) {
 		super(pos + ": expected " + expected.stream().sorted().collect(joining(",")) + "\n"
 				+ pos.lineWithMarker(input));
 		this.pos = pos;
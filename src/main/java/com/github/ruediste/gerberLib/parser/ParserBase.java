@@ -24,17 +24,20 @@ public class ParserBase<S extends ParsingState<S>> {
 		if (choices.length == 0)
 			throw ctx.throwException("any choice");
 
-		S startState = ctx.state.copy();
+		int startIndex = ctx.state.pos.inputIndex;
+		int mark = ctx.mark();
 		for (Runnable choice : choices) {
 			try {
 				choice.run();
+				ctx.dropMark(mark);
 				return;
 			} catch (ParseException e) {
-				if (startState.pos.inputIndex < ctx.backtrackingLimit)
+				if (startIndex < ctx.backtrackingLimit)
 					throw e;
-				ctx.state = startState.copy();
+				ctx.reset(mark);
 			}
 		}
+		ctx.dropMark(mark);
 		throw ctx.throwException("any choice");
 	}
 
@@ -49,18 +52,24 @@ public class ParserBase<S extends ParsingState<S>> {
 			return false;
 		}
 
-		S startState = ctx.state.copy();
+		int startIndex = ctx.state.pos.inputIndex;
+		int mark = ctx.mark();
 		for (BooleanSupplier choice : choices) {
 			try {
-				if (choice.getAsBoolean())
+				if (choice.getAsBoolean()) {
+					ctx.dropMark(mark);
 					return true;
+				}
 			} catch (ParseException e) {
 				// swallow
 			}
-			if (startState.pos.inputIndex < ctx.backtrackingLimit)
+			if (startIndex < ctx.backtrackingLimit) {
+				ctx.dropMark(mark);
 				return false;
-			ctx.state = startState.copy();
+			}
+			ctx.reset(mark);
 		}
+		ctx.dropMark(mark);
 		return false;
 	}
 
@@ -70,30 +79,34 @@ public class ParserBase<S extends ParsingState<S>> {
 			throw ctx.throwException("any choice");
 
 		ctx.state.enterChoice();
-		S startState = ctx.state.copy();
+		int startIndex = ctx.state.pos.inputIndex;
+		int mark = ctx.mark();
 		for (Supplier<T> choice : choices) {
 			try {
 				T result = choice.get();
+				ctx.dropMark(mark);
 				ctx.state.leaveChoice();
 				return result;
 			} catch (ParseException e) {
-				if (startState.pos.inputIndex < ctx.backtrackingLimit)
+				if (startIndex < ctx.backtrackingLimit)
 					throw e;
-				ctx.state = startState.copy();
+				ctx.reset(mark);
 			}
 		}
+		ctx.dropMark(mark);
 		throw ctx.throwException("any choice");
 	}
 
 	protected void optional(Runnable branch) {
-		S startState = ctx.state.copy();
+		int mark = ctx.mark();
 		try {
 			branch.run();
 		} catch (ParseException e) {
 			// swallow exception here, might still be registered as latest exception in the
 			// context
-			ctx.state = startState;
+			ctx.reset(mark);
 		}
+		ctx.dropMark(mark);
 	}
 
 	protected <T> T optional(Supplier<T> branch) {
@@ -101,26 +114,31 @@ public class ParserBase<S extends ParsingState<S>> {
 	}
 
 	protected <T> T optional(Supplier<T> branch, T fallback) {
-		S startState = ctx.state.copy();
+		int mark = ctx.mark();
 		try {
-			return branch.get();
+			T result = branch.get();
+			ctx.dropMark(mark);
+			return result;
 		} catch (ParseException e) {
 			// swallow exception here, might still be registered as latest exception in the
 			// context
-			ctx.state = startState;
+			ctx.reset(mark);
+			ctx.dropMark(mark);
 			return fallback;
 		}
 	}
 
 	protected void zeroOrMore(Runnable element) {
 		while (true) {
-			S startState = ctx.state.copy();
+			int mark = ctx.mark();
 			try {
 				element.run();
+				ctx.dropMark(mark);
 			} catch (ParseException e) {
 				// swallow exception here, might still be registered as latest exception in the
 				// context
-				ctx.state = startState;
+				ctx.reset(mark);
+				ctx.dropMark(mark);
 				break;
 			}
 		}
@@ -129,13 +147,15 @@ public class ParserBase<S extends ParsingState<S>> {
 	protected <T> List<T> zeroOrMore(Supplier<T> element) {
 		List<T> result = new ArrayList<T>();
 		while (true) {
-			S startState = ctx.state.copy();
+			int mark = ctx.mark();
 			try {
 				result.add(element.get());
+				ctx.dropMark(mark);
 			} catch (ParseException e) {
 				// swallow exception here, might still be registered as latest exception in the
 				// context
-				ctx.state = startState;
+				ctx.reset(mark);
+				ctx.dropMark(mark);
 				break;
 			}
 		}
@@ -169,11 +189,13 @@ public class ParserBase<S extends ParsingState<S>> {
 			result.add(element.get());
 		}
 		for (; i < max; i++) {
-			var start = ctx.state.copy();
+			int mark = ctx.mark();
 			try {
 				result.add(element.get());
+				ctx.dropMark(mark);
 			} catch (ParseException e) {
-				ctx.state = start;
+				ctx.reset(mark);
+				ctx.dropMark(mark);
 				break;
 			}
 		}
@@ -214,13 +236,14 @@ public class ParserBase<S extends ParsingState<S>> {
 
 	protected boolean nextNT(String expected) {
 		eatNewLines();
-		S startState = ctx.state.copy();
+		int mark = ctx.mark();
 		for (int idx = 0; idx < expected.length(); idx = expected.offsetByCodePoints(idx, 1)) {
 			int cp = expected.codePointAt(idx);
 
 			while (true) {
 				if (ctx.isEof()) {
-					ctx.state = startState;
+					ctx.reset(mark);
+					ctx.dropMark(mark);
 					ctx.expected(expected);
 					return false;
 				}
@@ -228,33 +251,30 @@ public class ParserBase<S extends ParsingState<S>> {
 				if (actual == '\r' || actual == '\n')
 					continue;
 				if (actual != cp) {
-					ctx.state = startState;
+					ctx.reset(mark);
+					ctx.dropMark(mark);
 					ctx.expected(expected);
 					return false;
 				}
 				break;
 			}
 		}
+		ctx.dropMark(mark);
 		return true;
 	}
 
 	protected String nextRaw(String expected) {
 		eatNewLines();
-		S startState = ctx.state.copy();
-		expected.codePoints().forEach(cp -> {
-			while (true) {
-				if (ctx.isEof()) {
-					ctx.state = startState;
-					ctx.throwException(expected);
-				}
-				int actual = ctx.nextCp();
-				if (actual != cp) {
-					ctx.state = startState;
-					ctx.throwException(expected);
-				}
-				break;
+		int mark = ctx.mark();
+		for (int idx = 0; idx < expected.length(); idx = expected.offsetByCodePoints(idx, 1)) {
+			int cp = expected.codePointAt(idx);
+			if (ctx.isEof() || ctx.nextCp() != cp) {
+				ctx.reset(mark);
+				ctx.dropMark(mark);
+				ctx.throwException(expected);
 			}
-		});
+		}
+		ctx.dropMark(mark);
 		return expected;
 	}
 
@@ -271,8 +291,12 @@ public class ParserBase<S extends ParsingState<S>> {
 	}
 
 	int peekCp() {
-		for (int i = 0;; i++) {
-			int cp = ctx.peekCp(i);
+		// fast path, there rarely are new lines to skip
+		int cp = ctx.peekCp();
+		if (cp != '\n' && cp != '\r')
+			return cp;
+		for (int i = 1;; i++) {
+			cp = ctx.peekCp(i);
 			if (cp != '\n' && cp != '\r')
 				return cp;
 		}
@@ -373,15 +397,16 @@ public class ParserBase<S extends ParsingState<S>> {
 	}
 
 	protected void not(String description, Runnable notExpected) {
-		S start = ctx.state.copy();
+		int mark = ctx.mark();
 		boolean matched = false;
 		try {
 			notExpected.run();
 			matched = true;
 		} catch (ParseException e) {
 			// swallow, reset to start
-			ctx.state = start;
+			ctx.reset(mark);
 		}
+		ctx.dropMark(mark);
 		if (matched)
 			ctx.throwException(description);
 	}
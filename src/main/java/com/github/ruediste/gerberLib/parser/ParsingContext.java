@@ -1,30 +1,58 @@
 package com.github.ruediste.gerberLib.parser;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
 public class ParsingContext<T extends ParsingState<T>> {
 
 	public T state;
-	final public String input;
+	final public ParsingInput input;
 
 	final private ParseException singletonParseException;
 
 	private InputPosition latestInputPosition;
+
+	/**
+	 * Last position returned by {@link #copyPos()}
+	 */
+	private InputPosition lastCopy;
+
+	/**
+	 * Largest input index of the positions returned by {@link #copyPos()}
+	 */
+	private int maxCopyIndex;
 	private Set<String> latestExpected;
 
 	public int backtrackingLimit = -1;
 
+	private int[] marks = new int[16 * ParsingState.MARK_SIZE];
+	private int markTop;
+
 	public ParsingContext(String input, T initialState) {
+		this(new StringParsingInput(input), initialState);
+	}
+
+	public ParsingContext(ParsingInput input, T initialState) {
 		this.input = input;
 		this.state = initialState;
+		if (state.pos.lines == null)
+			state.pos.lines = new LineIndex(input);
 		singletonParseException = new ParseException(
 				Set.of("use ParsingContext.throwNiceParseException() for a proper parse error"), new InputPosition(),
 				input);
 	}
 
 	public boolean isEof() {
-		return state.pos.inputIndex >= input.length();
+		return isEof(state.pos.inputIndex);
+	}
+
+	private boolean isEof(int index) {
+		if (input.isReleased(index))
+			// only reachable when backtracking behind the start of a statement, in which
+			// case the parse fails anyways
+			throw throwException();
+		return input.isEof(index);
 	}
 
 	public int nextCp() {
@@ -38,13 +66,15 @@ public class ParsingContext<T extends ParsingState<T>> {
 	}
 
 	public int peekCp(int offset) {
-		int idx;
-		try {
-			idx = input.offsetByCodePoints(state.pos.inputIndex, offset);
-			return input.codePointAt(idx);
-		} catch (IndexOutOfBoundsException e) {
-			throw throwException("any character");
+		int idx = state.pos.inputIndex;
+		for (int i = 0; i < offset; i++) {
+			if (isEof(idx))
+				throw throwException("any character");
+			idx = input.nextIndex(idx);
 		}
+		if (isEof(idx))
+			throw throwException("any character");
+		return input.codePointAt(idx);
 	}
 
 	public ParseException throwException(Set<String> expected) {
@@ -91,14 +121,78 @@ public class ParsingContext<T extends ParsingState<T>> {
 		expected(Set.of(expected), pos);
 	}
 
+	/**
+	 * Return a copy of the current position. Consecutive calls at the same
+	 * position, as made by the alternatives of a choice, share a single
+	 * instance.
+	 */
 	public InputPosition copyPos() {
-		return state.pos.copy();
+		InputPosition pos = state.pos;
+		if (lastCopy == null || lastCopy.inputIndex != pos.inputIndex || lastCopy.lines != pos.lines) {
+			lastCopy = pos.copy();
+			maxCopyIndex = Math.max(maxCopyIndex, pos.inputIndex);
+		}
+		return lastCopy;
+	}
+
+	/**
+	 * Detach the line index from the input once parsing is done, so positions
+	 * retained by the handler do not keep the input reachable. Positions
+	 * returned by {@link #copyPos()} before remain resolvable.
+	 */
+	public void detachLines() {
+		int index = Math.max(state.pos.inputIndex, maxCopyIndex);
+		if (latestInputPosition != null)
+			index = Math.max(index, latestInputPosition.inputIndex);
+		state.pos.lines.detach(index);
+	}
+
+	/**
+	 * Save the current state on the mark stack, without allocating. The returned
+	 * mark can be passed to {@link #reset(int)} any number of times and is
+	 * discarded by {@link #dropMark(int)}, together with all marks created after
+	 * it. Thus marks left behind by a parse exception are cleaned up by the next
+	 * enclosing drop.
+	 */
+	public int mark() {
+		int mark = markTop;
+		if (mark + ParsingState.MARK_SIZE > marks.length)
+			marks = Arrays.copyOf(marks, marks.length * 2);
+		state.mark(marks, mark);
+		markTop = mark + ParsingState.MARK_SIZE;
+		return mark;
+	}
+
+	/**
+	 * Restore the state saved by {@link #mark()}. The mark stays valid.
+	 */
+	public void reset(int mark) {
+		state.reset(marks, mark);
+	}
+
+	/**
+	 * Discard the mark and all marks created after it
+	 */
+	public void dropMark(int mark) {
+		markTop = mark;
 	}
 
 	public void limitBacktracking() {
 		backtrackingLimit = state.pos.inputIndex;
 	}
 
+	/**
+	 * Allow the input to discard everything before the current position. Must
+	 * only be called at positions the parser will never backtrack behind on a
+	 * successful parse.
+	 */
+	public void releaseInput() {
+		if (input.isStreaming())
+			// the line index cannot scan discarded code points
+			state.pos.lines.scanTo(state.pos.inputIndex);
+		input.release(state.pos.inputIndex);
+	}
+
 	public void throwNiceParseException(Runnable r) {
 		try {
 			r.run();
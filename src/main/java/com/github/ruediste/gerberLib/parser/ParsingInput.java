@@ -0,0 +1,65 @@
+package com.github.ruediste.gerberLib.parser;
+
+/**
+ * Source of the code points consumed by a {@link ParsingContext}. Indexes start
+ * at 0 and are advanced using {@link #nextIndex(int)}. ASCII code points always
+ * occupy a single index.
+ */
+public interface ParsingInput {
+
+	/**
+	 * Return true if there is no code point at the given index
+	 */
+	boolean isEof(int index);
+
+	/**
+	 * Return the code point at the given index. Must not be called at EOF.
+	 */
+	int codePointAt(int index);
+
+	/**
+	 * Return the index of the code point following the one at the given index
+	 */
+	int nextIndex(int index);
+
+	/**
+	 * Return the code points from the start index (inclusive) to the end index
+	 * (exclusive)
+	 */
+	default String substring(int start, int end) {
+		StringBuilder sb = new StringBuilder();
+		for (int idx = start; idx < end; idx = nextIndex(idx))
+			sb.appendCodePoint(codePointAt(idx));
+		return sb.toString();
+	}
+
+	/**
+	 * Inform the input that no index before the given one will be accessed
+	 * anymore. Streaming inputs use this to discard buffered data.
+	 */
+	default void release(int index) {
+	}
+
+	/**
+	 * Return true if the input discards code points after a call to
+	 * {@link #release(int)}
+	 */
+	default boolean isStreaming() {
+		return false;
+	}
+
+	/**
+	 * The smallest index which can still be accessed
+	 */
+	default int firstRetainedIndex() {
+		return 0;
+	}
+
+	/**
+	 * Return true if the index has been discarded after a call to
+	 * {@link #release(int)}
+	 */
+	default boolean isReleased(int index) {
+		return index < firstRetainedIndex();
+	}
+}
@@ -16,18 +16,39 @@ public abstract class ParsingState<T extends ParsingState<T>> {
 
 	protected abstract T copyImpl();
 
+	/**
+	 * Number of ints written by {@link #mark(int[], int)}
+	 */
+	static final int MARK_SIZE = 3;
+
+	/**
+	 * Save the position, the choice depth and the number of queued events to the
+	 * array, starting at the offset
+	 */
+	void mark(int[] marks, int offset) {
+		marks[offset] = pos.inputIndex;
+		marks[offset + 1] = choiceDepth;
+		marks[offset + 2] = queuedEvents.size();
+	}
+
+	/**
+	 * Restore a state saved by {@link #mark(int[], int)}. Events queued since are
+	 * discarded.
+	 */
+	void reset(int[] marks, int offset) {
+		pos.inputIndex = marks[offset];
+		choiceDepth = marks[offset + 1];
+		int queuedEventCount = marks[offset + 2];
+		if (queuedEvents.size() > queuedEventCount)
+			queuedEvents.subList(queuedEventCount, queuedEvents.size()).clear();
+	}
+
 	public int nextCp(ParsingContext<?> ctx) {
-		if (pos.inputIndex >= ctx.input.length())
+		if (ctx.isEof())
 			ctx.throwException("any character");
 
 		int ch = ctx.input.codePointAt(pos.inputIndex);
-		pos.inputIndex = ctx.input.offsetByCodePoints(pos.inputIndex, 1);
-		if (ch == '\n') {
-			pos.lineNr++;
-			pos.linePos = 1;
-			pos.lineStartIndex = pos.inputIndex;
-		} else
-			pos.linePos++;
+		pos.inputIndex = ctx.input.nextIndex(pos.inputIndex);
 		return ch;
 	}
 
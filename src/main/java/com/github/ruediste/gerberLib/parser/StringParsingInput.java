@@ -0,0 +1,34 @@
+package com.github.ruediste.gerberLib.parser;
+
+/**
+ * {@link ParsingInput} backed by a String holding the whole input. The indexes
+ * are the char indexes into the string.
+ */
+public class StringParsingInput implements ParsingInput {
+
+	private final String input;
+
+	public StringParsingInput(String input) {
+		this.input = input;
+	}
+
+	@Override
+	public boolean isEof(int index) {
+		return index >= input.length();
+	}
+
+	@Override
+	public int codePointAt(int index) {
+		return input.codePointAt(index);
+	}
+
+	@Override
+	public int nextIndex(int index) {
+		return input.offsetByCodePoints(index, 1);
+	}
+
+	@Override
+	public String substring(int start, int end) {
+		return input.substring(start, end);
+	}
+}
@@ -0,0 +1,75 @@
+package com.github.ruediste.gerberLib.parser;
+
+/**
+ * Base class for {@link ParsingInput}s backed by UTF-8 encoded bytes. The
+ * indexes are byte offsets. ASCII bytes, which make up virtually all of a
+ * gerber file, are returned directly, only other bytes are decoded as UTF-8
+ * sequences.
+ */
+public abstract class Utf8ParsingInput implements ParsingInput {
+
+	/**
+	 * Return true if the byte with the given index exists
+	 */
+	protected abstract boolean isAvailable(int index);
+
+	/**
+	 * Return the unsigned value of the byte at the given index. Only called for
+	 * available indexes.
+	 */
+	protected abstract int byteAt(int index);
+
+	/**
+	 * Number of bytes of the UTF-8 sequence starting with the given byte. Invalid
+	 * lead bytes are treated as single byte sequences.
+	 */
+	private static int sequenceLength(int lead) {
+		if (lead < 0x80)
+			return 1;
+		if ((lead & 0xE0) == 0xC0)
+			return 2;
+		if ((lead & 0xF0) == 0xE0)
+			return 3;
+		if ((lead & 0xF8) == 0xF0)
+			return 4;
+		return 1;
+	}
+
+	@Override
+	public boolean isEof(int index) {
+		return !isAvailable(index);
+	}
+
+	@Override
+	public int codePointAt(int index) {
+		int lead = byteAt(index);
+		if (lead < 0x80)
+			return lead;
+		int length = sequenceLength(lead);
+		if (length == 1 || !isAvailable(index + length - 1))
+			return 0xFFFD;
+		int cp = lead & (0x7F >> length);
+		for (int i = 1; i < length; i++) {
+			int b = byteAt(index + i);
+			if ((b & 0xC0) != 0x80)
+				return 0xFFFD;
+			cp = (cp << 6) | (b & 0x3F);
+		}
+		return cp;
+	}
+
+	@Override
+	public int nextIndex(int index) {
+		int lead = byteAt(index);
+		if (lead < 0x80)
+			return index + 1;
+		int length = sequenceLength(lead);
+		if (length == 1 || !isAvailable(index + length - 1))
+			return index + 1;
+		for (int i = 1; i < length; i++) {
+			if ((byteAt(index + i) & 0xC0) != 0x80)
+				return index + 1;
+		}
+		return index + length;
+	}
+}
@@ -0,0 +1,87 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.github.ruediste.gerberLib.parser.InputPosition;
+import com.github.ruediste.gerberLib.read.Polarity;
+
+/**
+ * Rasterizer for images too large to be kept in memory. The objects are
+ * collected and binned into horizontal bands. When {@link #render(BitmapWriter)}
+ * is called, the bands are drawn from top to bottom and streamed to the writer,
+ * so only a single band of pixels is allocated. The pixels are the same as the
+ * ones of the {@link GerberRasterizer}.
+ */
+public class BandedGerberRasterizer extends RasterizerBase {
+
+	private final int bandHeight;
+	private final RasterObjectBins bands;
+	private RasterObject currentObject;
+
+	/**
+	 * @param bandHeight number of rows rendered at once
+	 */
+	public BandedGerberRasterizer(double widthMM, double heightMM, double offsetXMM, double offsetYMM,
+			double pointsPerMM, int bandHeight) {
+		super(widthMM, heightMM, offsetXMM, offsetYMM, pointsPerMM);
+		if (pointsPerMM <= 1)
+			throw new IllegalArgumentException("Banded rasterization requires more than one point per mm");
+		if (bandHeight <= 0)
+			throw new IllegalArgumentException("The band height has to be positive");
+		this.bandHeight = bandHeight;
+		bands = new RasterObjectBins(Math.max(1, width), bandHeight, 1, (height + bandHeight - 1) / bandHeight);
+	}
+
+	@Override
+	public void beginObject(InputPosition pos) {
+		currentObject = new RasterObject();
+	}
+
+	@Override
+	public void endPath(InputPosition pos, Exposure exposure) {
+		currentObject.add(currentPath, imageTransform, exposure);
+		currentPath = null;
+	}
+
+	@Override
+	public void endObject(InputPosition pos, Polarity polarity) {
+		RasterObject object = currentObject;
+		currentObject = null;
+		if (object.bounds == null)
+			return;
+		object.polarity = polarity;
+		bands.add(object);
+	}
+
+	/**
+	 * Draw the collected objects band by band and pass the rows to the writer,
+	 * which is closed afterwards. The objects are released once their last band
+	 * is drawn.
+	 */
+	public void render(BitmapWriter writer) {
+		BufferedImage band = new BufferedImage(width, Math.min(bandHeight, height), BufferedImage.TYPE_BYTE_BINARY);
+		byte[] data = ((DataBufferByte) band.getRaster().getDataBuffer()).getData();
+		int stride = ((MultiPixelPackedSampleModel) band.getSampleModel()).getScanlineStride();
+		try (writer) {
+			writer.begin(width, height, pointsPerMM);
+			for (int i = 0; i < bands.binsY; i++) {
+				int originY = i * bandHeight;
+				int rows = Math.min(bandHeight, height - originY);
+				Arrays.fill(data, (byte) 0xff);
+				ScanlineRasterizer rasterizer = new ScanlineRasterizer(0, originY, width, rows);
+				for (int k = 0; k < bands.count(i); k++)
+					bands.get(i, k).draw(rasterizer, band, originY);
+				bands.release(i);
+				writer.writeRows(data, stride, rows);
+			}
+			writer.finish();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		bands.clear();
+	}
+}
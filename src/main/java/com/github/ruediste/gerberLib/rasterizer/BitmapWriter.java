@@ -0,0 +1,31 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes a 1-bit image to a file, receiving the rows from top to bottom. The
+ * rows are packed as in a {@link java.awt.image.BufferedImage#TYPE_BYTE_BINARY}
+ * image: the most significant bit of a byte is the leftmost pixel, a set bit
+ * is white.
+ */
+public interface BitmapWriter extends Closeable {
+
+	/**
+	 * Start the image. Called once before the first row.
+	 */
+	void begin(int width, int height, double pointsPerMM) throws IOException;
+
+	/**
+	 * Write the next rows of the image
+	 *
+	 * @param stride number of bytes between the starts of two rows
+	 */
+	void writeRows(byte[] data, int stride, int rowCount) throws IOException;
+
+	/**
+	 * Complete the image after the last row. The output is closed by
+	 * {@link #close()}.
+	 */
+	void finish() throws IOException;
+}
@@ -0,0 +1,203 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes 1-bit rows using CCITT T.6 (Group 4) two-dimensional coding. Each row
+ * is coded relative to the previous one, based on the positions where the
+ * color changes.
+ */
+class CcittG4Encoder {
+
+	private static final String[] WHITE_TERMINATING = { "00110101", "000111", "0111", "1000", "1011", "1100",
+			"1110", "1111", "10011", "10100", "00111", "01000", "001000", "000011", "110100", "110101", "101010",
+			"101011", "0100111", "0001100", "0001000", "0010111", "0000011", "0000100", "0101000", "0101011",
+			"0010011", "0100100", "0011000", "00000010", "00000011", "00011010", "00011011", "00010010", "00010011",
+			"00010100", "00010101", "00010110", "00010111", "00101000", "00101001", "00101010", "00101011",
+			"00101100", "00101101", "00000100", "00000101", "00001010", "00001011", "01010010", "01010011",
+			"01010100", "01010101", "00100100", "00100101", "01011000", "01011001", "01011010", "01011011",
+			"01001010", "01001011", "00110010", "00110011", "00110100" };
+
+	private static final String[] BLACK_TERMINATING = { "0000110111", "010", "11", "10", "011", "0011", "0010",
+			"00011", "000101", "000100", "0000100", "0000101", "0000111", "00000100", "00000111", "000011000",
+			"0000010111", "0000011000", "0000001000", "00001100111", "00001101000", "00001101100", "00000110111",
+			"00000101000", "00000010111", "00000011000", "000011001010", "000011001011", "000011001100",
+			"000011001101", "000001101000", "000001101001", "000001101010", "000001101011", "000011010010",
+			"000011010011", "000011010100", "000011010101", "000011010110", "000011010111", "000001101100",
+			"000001101101", "000011011010", "000011011011", "000001010100", "000001010101", "000001010110",
+			"000001010111", "000001100100", "000001100101", "000001010010", "000001010011", "000000100100",
+			"000000110111", "000000111000", "000000100111", "000000101000", "000001011000", "000001011001",
+			"000000101011", "000000101100", "000001011010", "000001100110", "000001100111" };
+
+	/**
+	 * Make up codes for the runs 64 to 1728
+	 */
+	private static final String[] WHITE_MAKE_UP = { "11011", "10010", "010111", "0110111", "00110110", "00110111",
+			"01100100", "01100101", "01101000", "01100111", "011001100", "011001101", "011010010", "011010011",
+			"011010100", "011010101", "011010110", "011010111", "011011000", "011011001", "011011010", "011011011",
+			"010011000", "010011001", "010011010", "011000", "010011011" };
+
+	private static final String[] BLACK_MAKE_UP = { "0000001111", "000011001000", "000011001001", "000001011011",
+			"000000110011", "000000110100", "000000110101", "0000001101100", "0000001101101", "0000001001010",
+			"0000001001011", "0000001001100", "0000001001101", "0000001110010", "0000001110011", "0000001110100",
+			"0000001110101", "0000001110110", "0000001110111", "0000001010010", "0000001010011", "0000001010100",
+			"0000001010101", "0000001011010", "0000001011011", "0000001100100", "0000001100101" };
+
+	/**
+	 * Make up codes for the runs 1792 to 2560, shared by both colors
+	 */
+	private static final String[] EXTENDED_MAKE_UP = { "00000001000", "00000001100", "00000001101",
+			"000000010010", "000000010011", "000000010100", "000000010101", "000000010110", "000000010111",
+			"000000011100", "000000011101", "000000011110", "000000011111" };
+
+	/**
+	 * Vertical mode codes, indexed by a1 - b1 + 3
+	 */
+	private static final String[] VERTICAL = { "0000010", "000010", "010", "1", "011", "000011", "0000011" };
+
+	private static final String PASS = "0001";
+	private static final String HORIZONTAL = "001";
+	private static final String EOL = "000000000001";
+
+	private final OutputStream out;
+	private final int width;
+
+	/**
+	 * Changing elements of the reference and the coding line, followed by the
+	 * width as end marker. A changing element is a pixel with a different color
+	 * than its left neighbor, the pixel left of the line is white. Changing
+	 * elements with even index start a black run.
+	 */
+	private int[] referenceChanges;
+	private int[] codingChanges;
+
+	private int bitBuffer;
+	private int bitCount;
+
+	/**
+	 * Number of bytes written to the output
+	 */
+	long length;
+
+	/**
+	 * @param out receives the encoded data, has to be buffered
+	 */
+	CcittG4Encoder(OutputStream out, int width) {
+		this.out = out;
+		this.width = width;
+		referenceChanges = new int[width + 3];
+		codingChanges = new int[width + 3];
+		// the line above the first line is white
+		referenceChanges[0] = referenceChanges[1] = referenceChanges[2] = width;
+	}
+
+	/**
+	 * Encode a row, packed with a set bit being white
+	 */
+	void encodeRow(byte[] data, int offset) throws IOException {
+		findChanges(data, offset, codingChanges);
+		int[] r = referenceChanges;
+		int[] c = codingChanges;
+
+		int a0 = -1;
+		int color = 0; // 0: white, 1: black
+		int i = 0;
+		int j = 0;
+		while (a0 < width) {
+			while (c[i] <= a0)
+				i++;
+			int a1 = c[i];
+
+			// b1 is the first change right of a0 to the color opposite of a0
+			while (j > 0 && r[j - 1] > a0)
+				j--;
+			while (r[j] <= a0 || (j & 1) != color)
+				j++;
+			int b1 = r[j];
+			int b2 = r[j + 1];
+
+			if (b2 < a1) {
+				put(PASS);
+				a0 = b2;
+			} else if (Math.abs(a1 - b1) <= 3) {
+				put(VERTICAL[a1 - b1 + 3]);
+				a0 = a1;
+				color ^= 1;
+			} else {
+				int a2 = c[i + 1];
+				put(HORIZONTAL);
+				putRun(a1 - Math.max(a0, 0), color);
+				putRun(a2 - a1, color ^ 1);
+				a0 = a2;
+			}
+		}
+
+		referenceChanges = c;
+		codingChanges = r;
+	}
+
+	/**
+	 * Fill the changing elements of a row into the array, terminated by the width
+	 */
+	private void findChanges(byte[] data, int offset, int[] changes) {
+		int count = 0;
+		int previous = 0; // black bit of the pixel left of the current byte
+		int bytes = (width + 7) / 8;
+		for (int i = 0; i < bytes; i++) {
+			int black = ~data[offset + i] & 0xff;
+			int changed = black ^ ((black >>> 1) | (previous << 7));
+			previous = black & 1;
+			while (changed != 0) {
+				int bit = Integer.numberOfLeadingZeros(changed) - 24;
+				changed &= ~(0x80 >>> bit);
+				int x = i * 8 + bit;
+				if (x < width)
+					changes[count++] = x;
+			}
+		}
+		changes[count] = changes[count + 1] = changes[count + 2] = width;
+	}
+
+	private void putRun(int run, int color) throws IOException {
+		while (run >= 2624) {
+			put(EXTENDED_MAKE_UP[EXTENDED_MAKE_UP.length - 1]);
+			run -= 2560;
+		}
+		if (run >= 64) {
+			int makeUp = run / 64;
+			if (makeUp <= 27)
+				put((color == 0 ? WHITE_MAKE_UP : BLACK_MAKE_UP)[makeUp - 1]);
+			else
+				put(EXTENDED_MAKE_UP[makeUp - 28]);
+			run -= makeUp * 64;
+		}
+		put((color == 0 ? WHITE_TERMINATING : BLACK_TERMINATING)[run]);
+	}
+
+	private void put(String code) throws IOException {
+		for (int i = 0; i < code.length(); i++) {
+			bitBuffer = (bitBuffer << 1) | (code.charAt(i) - '0');
+			if (++bitCount == 8) {
+				out.write(bitBuffer);
+				length++;
+				bitBuffer = 0;
+				bitCount = 0;
+			}
+		}
+	}
+
+	/**
+	 * Write the end of facsimile block and pad the last byte
+	 */
+	void finish() throws IOException {
+		put(EOL);
+		put(EOL);
+		if (bitCount > 0) {
+			out.write(bitBuffer << (8 - bitCount));
+			length++;
+			bitBuffer = 0;
+			bitCount = 0;
+		}
+	}
+}
@@ -2,73 +2,133 @@ package com.github.ruediste.gerberLib.rasterizer;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 
 import com.github.ruediste.gerberLib.parser.InputPosition;
 import com.github.ruediste.gerberLib.read.Polarity;
 
-public class GerberRasterizer extends Java2dRendererBase {
+public class GerberRasterizer extends RasterizerBase {
 
 	private Graphics2D g;
 	public BufferedImage image;
+	/**
+	 * Scratch image of the Java2D fill, reused for all objects
+	 */
 	private SparseBufferedImage currentImage;
-	private double offsetXMM;
-	private double offsetYMM;
-	private double pointsPerMM;
 	private Graphics2D currentImageGraphics;
 
+	/**
+	 * The paths of the current object. They are drawn at the end of the object,
+	 * straight into the image if there are no erased areas.
+	 */
+	private final List<Path2D> objectPaths = new ArrayList<>();
+	private final List<Exposure> objectExposures = new ArrayList<>();
+	private boolean objectHasOffPaths;
+
+	/**
+	 * Rasterizer used instead of the Java2D fill, created on demand
+	 */
+	private ScanlineRasterizer scanline;
+	private final boolean java2dFill;
+
 	public GerberRasterizer(double widthMM, double heightMM, double offsetXMM, double offsetYMM, double pointsPerMM) {
-		this.offsetXMM = offsetXMM;
-		this.offsetYMM = offsetYMM;
-		this.pointsPerMM = pointsPerMM;
-		image = new BufferedImage((int) (widthMM * pointsPerMM), (int) (heightMM * pointsPerMM),
-				BufferedImage.TYPE_BYTE_BINARY);
+		super(widthMM, heightMM, offsetXMM, offsetYMM, pointsPerMM);
+		image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
 		g = image.createGraphics();
 		g.setColor(Color.WHITE);
 		g.fillRect(0, 0, image.getWidth(), image.getHeight());
-		setImageTransform(g);
-	}
+		g.transform(imageTransform);
 
-	private void setImageTransform(Graphics2D g) {
-		g.transform(AffineTransform.getTranslateInstance(0, image.getHeight()));
-		g.transform(AffineTransform.getScaleInstance(pointsPerMM, -pointsPerMM));
-		g.transform(AffineTransform.getTranslateInstance(offsetXMM, offsetYMM));
+		// Java2D only uses the span iterator reproduced by the scanline
+		// rasterizer if a pixel is larger than the default pen
+		java2dFill = pointsPerMM <= 1;
 	}
 
 	@Override
 	public void beginObject(InputPosition pos) {
-		currentImage = new SparseBufferedImage(image.getWidth(), image.getHeight(), 256);
-		currentImageGraphics = currentImage.image.createGraphics();
-		setImageTransform(currentImageGraphics);
+		objectPaths.clear();
+		objectExposures.clear();
+		objectHasOffPaths = false;
 	}
 
 	@Override
 	public void endPath(InputPosition pos, Exposure exposure) {
-
-		switch (exposure) {
-		case OFF:
-			currentImageGraphics.setColor(Color.BLACK);
-			break;
-		case ON:
-			currentImageGraphics.setColor(Color.WHITE);
-			break;
-		default:
-			throw new UnsupportedOperationException();
-		}
-
-		currentImageGraphics.fill(currentPath);
+		objectPaths.add(currentPath);
+		objectExposures.add(exposure);
+		if (exposure == Exposure.OFF)
+			objectHasOffPaths = true;
 		currentPath = null;
 	}
 
 	@Override
 	public void endObject(InputPosition pos, Polarity polarity) {
+		if (!objectHasOffPaths)
+			paintDirectly(polarity);
+		else if (java2dFill)
+			paintJava2d(polarity);
+		else {
+			if (scanline == null)
+				scanline = new ScanlineRasterizer(image.getWidth(), image.getHeight());
+			for (int i = 0; i < objectPaths.size(); i++)
+				scanline.fill(objectPaths.get(i).getPathIterator(imageTransform),
+						objectExposures.get(i) == Exposure.ON);
+			scanline.multiplyTo(image, polarity);
+			scanline.clear();
+		}
+		objectPaths.clear();
+		objectExposures.clear();
+	}
+
+	/**
+	 * Paint the paths of an object without erased areas straight into the image
+	 */
+	private void paintDirectly(Polarity polarity) {
+		if (java2dFill) {
+			g.setColor(polarity == Polarity.DARK ? Color.BLACK : Color.WHITE);
+			for (Path2D path : objectPaths)
+				g.fill(path);
+		} else {
+			if (scanline == null)
+				scanline = new ScanlineRasterizer(image.getWidth(), image.getHeight());
+			for (Path2D path : objectPaths)
+				scanline.paint(path.getPathIterator(imageTransform), image, polarity);
+		}
+	}
+
+	/**
+	 * Draw the paths into the scratch image, which is then combined with the
+	 * image
+	 */
+	private void paintJava2d(Polarity polarity) {
+		if (currentImage == null) {
+			currentImage = new SparseBufferedImage(image.getWidth(), image.getHeight(), 256);
+			currentImageGraphics = currentImage.image.createGraphics();
+			currentImageGraphics.transform(imageTransform);
+		}
+		for (int i = 0; i < objectPaths.size(); i++) {
+			switch (objectExposures.get(i)) {
+			case OFF:
+				currentImageGraphics.setColor(Color.BLACK);
+				break;
+			case ON:
+				currentImageGraphics.setColor(Color.WHITE);
+				break;
+			default:
+				throw new UnsupportedOperationException();
+			}
+			currentImageGraphics.fill(objectPaths.get(i));
+		}
 		currentImage.multiplyTo(image, polarity);
-		currentImage = null;
+		currentImage.clear();
 	}
 
 	public void save(File file) {
@@ -79,6 +139,21 @@ public class GerberRasterizer extends Java2dRendererBase {
 		}
 	}
 
+	/**
+	 * Write the image using the given writer, which is closed afterwards
+	 */
+	public void write(BitmapWriter writer) {
+		byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+		try (writer) {
+			writer.begin(image.getWidth(), image.getHeight(), pointsPerMM);
+			writer.writeRows(data, ((MultiPixelPackedSampleModel) image.getSampleModel()).getScanlineStride(),
+					image.getHeight());
+			writer.finish();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	public BufferedImage compareTo(File outFile) {
 		try {
 			BufferedImage reference = ImageIO.read(outFile);
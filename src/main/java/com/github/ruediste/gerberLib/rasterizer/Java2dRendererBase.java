@@ -8,9 +8,10 @@ import java.awt.geom.Point2D;
 import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
 import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
 import com.github.ruediste.gerberLib.parser.InputPosition;
-import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventHandler;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitivePackedPathEventHandler;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.PackedPath;
 
-public abstract class Java2dRendererBase implements GerberReadGeometricPrimitiveEventHandler {
+public abstract class Java2dRendererBase implements GerberReadGeometricPrimitivePackedPathEventHandler {
 
 	private static final boolean print = false;
 
@@ -19,6 +20,13 @@ public abstract class Java2dRendererBase implements GerberReadGeometricPrimitive
 
 	protected Path2D currentPath;
 
+	/**
+	 * Maximum distance between an arc and the line segments approximating it,
+	 * in mm. If NaN, arcs are added to the path as curves and flattened by the
+	 * consumer.
+	 */
+	public double arcTolerance = Double.NaN;
+
 	@Override
 	public void beginPath(InputPosition pos) {
 		currentPath = new Path2D.Double(Path2D.WIND_EVEN_ODD);
@@ -39,9 +47,115 @@ public abstract class Java2dRendererBase implements GerberReadGeometricPrimitive
 		if (print)
 			System.out.println(
 					pos + ": arc " + p + "(" + w + "," + h + ")[" + angSt + "," + angExt + "] " + transformation);
-		currentPath.append(
-				new Arc2D.Double(p.x, p.y, w, h, -angSt, -angExt, Arc2D.OPEN).getPathIterator(transformation.inner),
-				true);
+		appendArc(transformation, p.x, p.y, w, h, angSt, angExt);
+	}
+
+	@Override
+	public void addCircularArc(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint center,
+			double radius, double angSt, double angExt) {
+		if (print)
+			System.out.println(pos + ": circular arc " + center + "(" + radius + ")[" + angSt + "," + angExt + "] "
+					+ transformation);
+		appendCircularArc(transformation, center.x, center.y, radius, angSt, angExt);
+	}
+
+	private void appendArc(CoordinateTransformation transformation, double x, double y, double w, double h,
+			double angSt, double angExt) {
+		if (Double.isNaN(arcTolerance)) {
+			currentPath.append(
+					new Arc2D.Double(x, y, w, h, -angSt, -angExt, Arc2D.OPEN).getPathIterator(transformation.inner),
+					true);
+			return;
+		}
+
+		double scale = Math.sqrt(Math.abs(transformation.inner.getDeterminant()));
+		int segments = arcSegmentCount(Math.max(w, h) / 2 * scale, angExt, arcTolerance);
+		double[] points = new double[2 * (segments + 1)];
+		for (int i = 0; i <= segments; i++) {
+			double angle = Math.toRadians(angSt + angExt * i / segments);
+			points[2 * i] = x + (Math.cos(angle) * 0.5 + 0.5) * w;
+			points[2 * i + 1] = y + (Math.sin(angle) * 0.5 + 0.5) * h;
+		}
+		appendPolyline(transformation, points, segments + 1);
+	}
+
+	private void appendCircularArc(CoordinateTransformation transformation, double centerX, double centerY,
+			double radius, double angSt, double angExt) {
+		if (Double.isNaN(arcTolerance)) {
+			currentPath.append(new Arc2D.Double(centerX - radius, centerY - radius, radius * 2, radius * 2, -angSt,
+					-angExt, Arc2D.OPEN).getPathIterator(transformation.inner), true);
+			return;
+		}
+
+		double scale = Math.sqrt(Math.abs(transformation.inner.getDeterminant()));
+		int segments = arcSegmentCount(radius * scale, angExt, arcTolerance);
+		double[] points = new double[2 * (segments + 1)];
+		for (int i = 0; i <= segments; i++) {
+			double angle = Math.toRadians(angSt + angExt * i / segments);
+			points[2 * i] = centerX + Math.cos(angle) * radius;
+			points[2 * i + 1] = centerY + Math.sin(angle) * radius;
+		}
+		appendPolyline(transformation, points, segments + 1);
+	}
+
+	/**
+	 * Append the points, given in the coordinates of the transformation, to the
+	 * current path
+	 */
+	private void appendPolyline(CoordinateTransformation transformation, double[] points, int count) {
+		transformation.inner.transform(points, 0, points, 0, count);
+		// connect like Path2D.append(), which skips the start point if it is the
+		// current point
+		Point2D current = currentPath.getCurrentPoint();
+		if (current == null)
+			currentPath.moveTo(points[0], points[1]);
+		else if (current.getX() != points[0] || current.getY() != points[1])
+			currentPath.lineTo(points[0], points[1]);
+		for (int i = 1; i < count; i++)
+			currentPath.lineTo(points[2 * i], points[2 * i + 1]);
+	}
+
+	/**
+	 * Number of line segments needed to approximate an arc within the tolerance.
+	 * Full circles get at least three segments.
+	 * 
+	 * @param angleExtent extent of the arc in degrees
+	 */
+	public static int arcSegmentCount(double radius, double angleExtent, double tolerance) {
+		double extent = Math.toRadians(Math.abs(angleExtent));
+		int segments = (int) Math.ceil(extent / (2 * Math.PI / 3));
+		if (radius > tolerance) {
+			// the chord of a segment spanning the angle a deviates r(1-cos(a/2)) from
+			// the arc
+			double segmentAngle = 2 * Math.acos(1 - tolerance / radius);
+			segments = Math.max(segments, (int) Math.ceil(extent / segmentAngle));
+		}
+		return Math.max(1, segments);
+	}
+
+	@Override
+	public void path(InputPosition pos, PackedPath path, Exposure exposure) {
+		beginPath(pos);
+		double[] data = path.data;
+		for (int i = 0; i < path.size; i += PackedPath.segmentLength((int) data[i])) {
+			switch ((int) data[i]) {
+			case PackedPath.LINE:
+				currentPath.append(new Line2D.Double(data[i + 1], data[i + 2], data[i + 3], data[i + 4])
+						.getPathIterator(path.transformation.inner), true);
+				break;
+			case PackedPath.ARC:
+				appendArc(path.transformation, data[i + 1], data[i + 2], data[i + 3], data[i + 4], data[i + 5],
+						data[i + 6]);
+				break;
+			case PackedPath.CIRCULAR_ARC:
+				appendCircularArc(path.transformation, data[i + 1], data[i + 2], data[i + 3], data[i + 4],
+						data[i + 5]);
+				break;
+			default:
+				throw new IllegalStateException();
+			}
+		}
+		endPath(pos, exposure);
 	}
 
 }
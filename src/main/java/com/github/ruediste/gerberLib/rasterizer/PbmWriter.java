@@ -0,0 +1,49 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes binary PBM (P4) images. PBM stores black as set bit, so the rows are
+ * inverted.
+ */
+public class PbmWriter implements BitmapWriter {
+
+	private final OutputStream out;
+	private byte[] row;
+	private int lastByteMask;
+
+	public PbmWriter(OutputStream out) {
+		this.out = new BufferedOutputStream(out, 1 << 16);
+	}
+
+	@Override
+	public void begin(int width, int height, double pointsPerMM) throws IOException {
+		out.write(("P4\n" + width + " " + height + "\n").getBytes(StandardCharsets.US_ASCII));
+		row = new byte[(width + 7) / 8];
+		lastByteMask = (width & 7) == 0 ? 0xff : ~(0xff >>> (width & 7));
+	}
+
+	@Override
+	public void writeRows(byte[] data, int stride, int rowCount) throws IOException {
+		for (int y = 0; y < rowCount; y++) {
+			int rowStart = y * stride;
+			for (int i = 0; i < row.length; i++)
+				row[i] = (byte) ~data[rowStart + i];
+			row[row.length - 1] &= lastByteMask;
+			out.write(row);
+		}
+	}
+
+	@Override
+	public void finish() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
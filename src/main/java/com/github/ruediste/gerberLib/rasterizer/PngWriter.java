@@ -0,0 +1,120 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes 1-bit grayscale PNG images. The rows are deflated as they arrive,
+ * without filtering, which is usually best for bilevel images. The compressed
+ * data is written in IDAT chunks of at most 64k.
+ */
+public class PngWriter implements BitmapWriter {
+	private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+
+	private final DataOutputStream out;
+	private final Deflater deflater;
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * Compressed data not written yet
+	 */
+	private final byte[] chunk = new byte[1 << 16];
+	private int chunkLength;
+
+	/**
+	 * Filter type byte followed by the pixels of a row
+	 */
+	private byte[] row;
+
+	public PngWriter(OutputStream out) {
+		this(out, Deflater.BEST_SPEED);
+	}
+
+	/**
+	 * @param compressionLevel level of the {@link Deflater}
+	 */
+	public PngWriter(OutputStream out, int compressionLevel) {
+		this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+		deflater = new Deflater(compressionLevel);
+	}
+
+	@Override
+	public void begin(int width, int height, double pointsPerMM) throws IOException {
+		out.write(SIGNATURE);
+
+		byte[] header = new byte[13];
+		writeInt(header, 0, width);
+		writeInt(header, 4, height);
+		header[8] = 1; // bit depth
+		header[9] = 0; // grayscale
+		writeChunk("IHDR", header, header.length);
+
+		byte[] physical = new byte[9];
+		int pointsPerMeter = (int) Math.round(pointsPerMM * 1000);
+		writeInt(physical, 0, pointsPerMeter);
+		writeInt(physical, 4, pointsPerMeter);
+		physical[8] = 1; // unit is meter
+		writeChunk("pHYs", physical, physical.length);
+
+		row = new byte[1 + (width + 7) / 8];
+	}
+
+	@Override
+	public void writeRows(byte[] data, int stride, int rowCount) throws IOException {
+		for (int y = 0; y < rowCount; y++) {
+			System.arraycopy(data, y * stride, row, 1, row.length - 1);
+			deflater.setInput(row);
+			while (!deflater.needsInput())
+				deflate();
+		}
+	}
+
+	private void deflate() throws IOException {
+		chunkLength += deflater.deflate(chunk, chunkLength, chunk.length - chunkLength);
+		if (chunkLength == chunk.length) {
+			writeChunk("IDAT", chunk, chunkLength);
+			chunkLength = 0;
+		}
+	}
+
+	@Override
+	public void finish() throws IOException {
+		deflater.finish();
+		while (!deflater.finished())
+			deflate();
+		if (chunkLength > 0)
+			writeChunk("IDAT", chunk, chunkLength);
+		chunkLength = 0;
+		writeChunk("IEND", new byte[0], 0);
+		out.flush();
+	}
+
+	private void writeChunk(String type, byte[] data, int length) throws IOException {
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		crc.reset();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+	private static void writeInt(byte[] data, int offset, int value) {
+		data[offset] = (byte) (value >>> 24);
+		data[offset + 1] = (byte) (value >>> 16);
+		data[offset + 2] = (byte) (value >>> 8);
+		data[offset + 3] = (byte) value;
+	}
+
+	@Override
+	public void close() throws IOException {
+		deflater.end();
+		out.close();
+	}
+}
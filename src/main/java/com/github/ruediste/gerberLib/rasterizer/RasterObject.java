@@ -0,0 +1,54 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.ruediste.gerberLib.read.Polarity;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventHandler.Exposure;
+
+/**
+ * Object collected by the rasterizers drawing deferred, with the paths in
+ * image coordinates
+ */
+class RasterObject {
+	List<Path2D.Float> paths = new ArrayList<>();
+	List<Boolean> exposuresOn = new ArrayList<>();
+	boolean hasOffPaths;
+	Polarity polarity;
+	Rectangle2D bounds;
+
+	void add(Path2D path, AffineTransform imageTransform, Exposure exposure) {
+		Path2D.Float imagePath = new Path2D.Float(path, imageTransform);
+		paths.add(imagePath);
+		exposuresOn.add(exposure == Exposure.ON);
+		if (exposure == Exposure.OFF)
+			hasOffPaths = true;
+		Rectangle2D pathBounds = imagePath.getBounds2D();
+		if (bounds == null)
+			bounds = pathBounds;
+		else
+			bounds.add(pathBounds);
+	}
+
+	/**
+	 * Draw the object into the target, using the rasterizer as layer if there
+	 * are erased areas. Only the window of the rasterizer is drawn.
+	 *
+	 * @param targetOriginY image row of the first row of the target
+	 */
+	void draw(ScanlineRasterizer rasterizer, BufferedImage target, int targetOriginY) {
+		if (!hasOffPaths) {
+			for (Path2D.Float path : paths)
+				rasterizer.paint(path.getPathIterator(null), target, targetOriginY, polarity);
+			return;
+		}
+		for (int p = 0; p < paths.size(); p++)
+			rasterizer.fill(paths.get(p).getPathIterator(null), exposuresOn.get(p));
+		rasterizer.multiplyTo(target, targetOriginY, polarity);
+		rasterizer.clear();
+	}
+}
@@ -0,0 +1,109 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects {@link RasterObject}s and bins them into the rectangular areas of
+ * the image they touch. The bins are numbered row by row. Within a bin, the
+ * objects are kept in the order they were added.
+ */
+class RasterObjectBins {
+	private final int binWidth;
+	private final int binHeight;
+	final int binsX;
+	final int binsY;
+
+	private final List<RasterObject> objects = new ArrayList<>();
+
+	/**
+	 * Indexes of the objects touching each bin, in drawing order
+	 */
+	private final int[][] binObjects;
+	private final int[] binObjectCounts;
+
+	/**
+	 * Last bin touched by each object
+	 */
+	private int[] lastBins = new int[16];
+
+	RasterObjectBins(int binWidth, int binHeight, int binsX, int binsY) {
+		this.binWidth = binWidth;
+		this.binHeight = binHeight;
+		this.binsX = binsX;
+		this.binsY = binsY;
+		binObjects = new int[binsX * binsY][];
+		binObjectCounts = new int[binsX * binsY];
+	}
+
+	/**
+	 * Add the object to all bins its bounds touch. Objects outside of all bins
+	 * are dropped.
+	 */
+	void add(RasterObject object) {
+		// the quarter pixel normalization moves the points by less than a pixel
+		Rectangle2D b = object.bounds;
+		int minBinX = Math.max(0, (int) Math.floor((b.getMinX() - 2) / binWidth));
+		int maxBinX = Math.min(binsX - 1, (int) Math.floor((b.getMaxX() + 2) / binWidth));
+		int minBinY = Math.max(0, (int) Math.floor((b.getMinY() - 2) / binHeight));
+		int maxBinY = Math.min(binsY - 1, (int) Math.floor((b.getMaxY() + 2) / binHeight));
+		if (minBinX > maxBinX || minBinY > maxBinY)
+			return;
+
+		int index = objects.size();
+		objects.add(object);
+		if (index == lastBins.length)
+			lastBins = Arrays.copyOf(lastBins, index * 2);
+		lastBins[index] = maxBinY * binsX + maxBinX;
+		for (int y = minBinY; y <= maxBinY; y++)
+			for (int x = minBinX; x <= maxBinX; x++)
+				addToBin(y * binsX + x, index);
+	}
+
+	private void addToBin(int bin, int objectIndex) {
+		int[] list = binObjects[bin];
+		int count = binObjectCounts[bin];
+		if (list == null)
+			list = binObjects[bin] = new int[16];
+		else if (count == list.length)
+			list = binObjects[bin] = Arrays.copyOf(list, count * 2);
+		list[count] = objectIndex;
+		binObjectCounts[bin] = count + 1;
+	}
+
+	int count(int bin) {
+		return binObjectCounts[bin];
+	}
+
+	/**
+	 * Return the i-th object of the bin
+	 */
+	RasterObject get(int bin, int i) {
+		return objects.get(binObjects[bin][i]);
+	}
+
+	/**
+	 * Empty the bin, releasing the objects not touching any later bin. Only
+	 * valid if the bins are drawn in order.
+	 */
+	void release(int bin) {
+		for (int i = 0; i < binObjectCounts[bin]; i++) {
+			int index = binObjects[bin][i];
+			if (lastBins[index] == bin)
+				objects.set(index, null);
+		}
+		binObjects[bin] = null;
+		binObjectCounts[bin] = 0;
+	}
+
+	/**
+	 * Remove all objects
+	 */
+	void clear() {
+		objects.clear();
+		Arrays.fill(binObjects, null);
+		Arrays.fill(binObjectCounts, 0);
+	}
+}
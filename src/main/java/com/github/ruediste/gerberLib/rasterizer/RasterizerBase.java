@@ -0,0 +1,44 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import java.awt.geom.AffineTransform;
+
+/**
+ * Base for the rasterizers, defining the image size and the transformation
+ * from mm to image pixels. The y axis points upwards in the Gerber coordinates
+ * and downwards in the image.
+ */
+public abstract class RasterizerBase extends Java2dRendererBase {
+
+	/**
+	 * Size of the image in pixels
+	 */
+	public final int width;
+	public final int height;
+	protected final double pointsPerMM;
+
+	/**
+	 * Transformation from mm to image pixels
+	 */
+	protected final AffineTransform imageTransform;
+
+	protected RasterizerBase(double widthMM, double heightMM, double offsetXMM, double offsetYMM,
+			double pointsPerMM) {
+		this.pointsPerMM = pointsPerMM;
+		width = (int) (widthMM * pointsPerMM);
+		height = (int) (heightMM * pointsPerMM);
+
+		// concatenated in the same way as by Graphics2D.transform()
+		imageTransform = new AffineTransform();
+		imageTransform.concatenate(AffineTransform.getTranslateInstance(0, height));
+		imageTransform.concatenate(AffineTransform.getScaleInstance(pointsPerMM, -pointsPerMM));
+		imageTransform.concatenate(AffineTransform.getTranslateInstance(offsetXMM, offsetYMM));
+	}
+
+	/**
+	 * Approximate arcs by line segments deviating at most a quarter pixel from
+	 * the arcs, instead of letting Java2D flatten them
+	 */
+	public void useResolutionArcTolerance() {
+		arcTolerance = 0.25 / pointsPerMM;
+	}
+}
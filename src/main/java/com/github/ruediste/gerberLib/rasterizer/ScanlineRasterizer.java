@@ -0,0 +1,524 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.util.Arrays;
+
+import com.github.ruediste.gerberLib.read.Polarity;
+
+/**
+ * Fills paths into a 1-bit image using the even-odd rule, with one bit per
+ * pixel packed into rows of longs.
+ *
+ * <p>
+ * The covered pixels are the same as for a non-antialiased
+ * {@link java.awt.Graphics2D#fill} with the default stroke control: the path is
+ * normalized to quarter pixels, curves are subdivided in single precision and
+ * the edges are stepped from pixel center to pixel center using the same
+ * fixed-point error terms. This keeps the output pixel-identical to the
+ * Java2D rendering.
+ */
+public class ScanlineRasterizer {
+	private static final int SUBDIVIDE_MAX = 10;
+	private static final float MAX_FLAT_SQ = 1.0f;
+	private static final int ERRSTEP_MAX = 0x7fffffff;
+
+	/**
+	 * The window of the image covered by the rasterizer. Pixels outside are
+	 * clipped.
+	 */
+	public final int originX;
+	public final int originY;
+	public final int width;
+	public final int height;
+	private final int wordsPerRow;
+
+	/**
+	 * The pixels of the window, row by row. The most significant bit of a word is
+	 * the leftmost pixel.
+	 */
+	public final long[] bits;
+
+	/**
+	 * Region written since the last {@link #clear()}, rows and words inclusive
+	 */
+	private int dirtyMinY = Integer.MAX_VALUE;
+	private int dirtyMaxY = -1;
+	private int dirtyMinWord = Integer.MAX_VALUE;
+	private int dirtyMaxWord = -1;
+
+	// edges of the current path
+	private int segmentCount;
+	private int[] segCurX = new int[64];
+	private int[] segCurY = new int[64];
+	private int[] segLastY = new int[64];
+	private int[] segError = new int[64];
+	private int[] segBumpX = new int[64];
+	private int[] segBumpErr = new int[64];
+	private int[] order = new int[64];
+	private int[] active = new int[64];
+	private int[] crossings = new int[64];
+
+	/**
+	 * Data of the target image while painting directly, null otherwise
+	 */
+	private byte[] paintData;
+	private int paintStride;
+	private int paintOriginY;
+
+	// state while reading the path
+	private float curX, curY, movX, movY, adjX, adjY;
+	private final float[] coords = new float[6];
+
+	public ScanlineRasterizer(int width, int height) {
+		this(0, 0, width, height);
+	}
+
+	/**
+	 * Create a rasterizer for a window of the image. Filling the same path into
+	 * windows covering an image gives the same pixels as filling it into the
+	 * whole image.
+	 * 
+	 * @param originX left edge of the window, has to be a multiple of 64
+	 */
+	public ScanlineRasterizer(int originX, int originY, int width, int height) {
+		if (originX % 64 != 0)
+			throw new IllegalArgumentException("originX has to be a multiple of 64");
+		this.originX = originX;
+		this.originY = originY;
+		this.width = width;
+		this.height = height;
+		wordsPerRow = (width + 63) >>> 6;
+		bits = new long[wordsPerRow * height];
+	}
+
+	/**
+	 * Fill the path, which has to use device coordinates. The covered pixels
+	 * are set if value is true, cleared otherwise.
+	 */
+	public void fill(PathIterator it, boolean value) {
+		segmentCount = 0;
+		curX = curY = movX = movY = adjX = adjY = 0;
+		while (!it.isDone()) {
+			float[] c = coords;
+			switch (it.currentSegment(c)) {
+			case PathIterator.SEG_MOVETO:
+				closePath();
+				adjust(c, 0);
+				movX = curX = c[0];
+				movY = curY = c[1];
+				break;
+			case PathIterator.SEG_LINETO:
+				adjust(c, 0);
+				appendSegment(curX, curY, c[0], c[1]);
+				curX = c[0];
+				curY = c[1];
+				break;
+			case PathIterator.SEG_QUADTO: {
+				float x1 = c[0], y1 = c[1];
+				float oldAdjX = adjX, oldAdjY = adjY;
+				adjust(c, 2);
+				x1 += (oldAdjX + adjX) / 2;
+				y1 += (oldAdjY + adjY) / 2;
+				subdivideQuad(0, curX, curY, x1, y1, c[2], c[3]);
+				curX = c[2];
+				curY = c[3];
+			}
+				break;
+			case PathIterator.SEG_CUBICTO: {
+				float x1 = c[0] + adjX, y1 = c[1] + adjY;
+				adjust(c, 4);
+				float x2 = c[2] + adjX, y2 = c[3] + adjY;
+				subdivideCubic(0, curX, curY, x1, y1, x2, y2, c[4], c[5]);
+				curX = c[4];
+				curY = c[5];
+			}
+				break;
+			case PathIterator.SEG_CLOSE:
+				closePath();
+				break;
+			default:
+				throw new IllegalStateException();
+			}
+			it.next();
+		}
+		closePath();
+		fillSegments(value);
+	}
+
+	/**
+	 * Fill the path directly into the target, which has to be a
+	 * {@link BufferedImage#TYPE_BYTE_BINARY} image containing the window,
+	 * bypassing the pixels of the rasterizer. Dark polarity paints black, clear
+	 * polarity white.
+	 */
+	public void paint(PathIterator it, BufferedImage target, Polarity polarity) {
+		paint(it, target, 0, polarity);
+	}
+
+	/**
+	 * Same as {@link #paint(PathIterator, BufferedImage, Polarity)}, for a
+	 * target holding a band of the image
+	 * 
+	 * @param targetOriginY image row of the first row of the target
+	 */
+	public void paint(PathIterator it, BufferedImage target, int targetOriginY, Polarity polarity) {
+		paintData = ((DataBufferByte) target.getRaster().getDataBuffer()).getData();
+		paintStride = ((MultiPixelPackedSampleModel) target.getSampleModel()).getScanlineStride();
+		paintOriginY = targetOriginY;
+		try {
+			fill(it, polarity == Polarity.CLEAR);
+		} finally {
+			paintData = null;
+		}
+	}
+
+	/**
+	 * Move the point at the offset to the quarter pixel, remembering the
+	 * adjustment for the control points
+	 */
+	private void adjust(float[] c, int offset) {
+		float x = c[offset], y = c[offset + 1];
+		float newX = (float) Math.floor(x + 0.25f) + 0.25f;
+		float newY = (float) Math.floor(y + 0.25f) + 0.25f;
+		adjX = newX - x;
+		adjY = newY - y;
+		c[offset] = newX;
+		c[offset + 1] = newY;
+	}
+
+	private void closePath() {
+		if (curX != movX || curY != movY) {
+			appendSegment(curX, curY, movX, movY);
+			curX = movX;
+			curY = movY;
+		}
+	}
+
+	private void subdivideQuad(int level, float x0, float y0, float x1, float y1, float x2, float y2) {
+		float minX = Math.min(x0, Math.min(x1, x2));
+		float maxX = Math.max(x0, Math.max(x1, x2));
+		float minY = Math.min(y0, Math.min(y1, y2));
+		float maxY = Math.max(y0, Math.max(y1, y2));
+		if (maxY <= originY || minY >= originY + height || minX >= originX + width) {
+			appendSegment(x0, y0, x2, y2);
+			return;
+		}
+		if (maxX <= originX) {
+			appendSegment(maxX, y0, maxX, y2);
+			return;
+		}
+		if (level < SUBDIVIDE_MAX && ptSegDistSq(x0, y0, x2, y2, x1, y1) > MAX_FLAT_SQ) {
+			float cx1 = (x0 + x1) / 2;
+			float cy1 = (y0 + y1) / 2;
+			float cx2 = (x1 + x2) / 2;
+			float cy2 = (y1 + y2) / 2;
+			float mx = (cx1 + cx2) / 2;
+			float my = (cy1 + cy2) / 2;
+			subdivideQuad(level + 1, x0, y0, cx1, cy1, mx, my);
+			subdivideQuad(level + 1, mx, my, cx2, cy2, x2, y2);
+			return;
+		}
+		appendSegment(x0, y0, x2, y2);
+	}
+
+	private void subdivideCubic(int level, float x0, float y0, float x1, float y1, float x2, float y2, float x3,
+			float y3) {
+		float minX = Math.min(Math.min(x0, x1), Math.min(x2, x3));
+		float maxX = Math.max(Math.max(x0, x1), Math.max(x2, x3));
+		float minY = Math.min(Math.min(y0, y1), Math.min(y2, y3));
+		float maxY = Math.max(Math.max(y0, y1), Math.max(y2, y3));
+		if (maxY <= originY || minY >= originY + height || minX >= originX + width) {
+			appendSegment(x0, y0, x3, y3);
+			return;
+		}
+		if (maxX <= originX) {
+			appendSegment(maxX, y0, maxX, y3);
+			return;
+		}
+		if (level < SUBDIVIDE_MAX && (ptSegDistSq(x0, y0, x3, y3, x1, y1) > MAX_FLAT_SQ
+				|| ptSegDistSq(x0, y0, x3, y3, x2, y2) > MAX_FLAT_SQ)) {
+			float ctrX = (x1 + x2) / 2;
+			float ctrY = (y1 + y2) / 2;
+			x1 = (x0 + x1) / 2;
+			y1 = (y0 + y1) / 2;
+			x2 = (x2 + x3) / 2;
+			y2 = (y2 + y3) / 2;
+			float x12 = (x1 + ctrX) / 2;
+			float y12 = (y1 + ctrY) / 2;
+			float x21 = (ctrX + x2) / 2;
+			float y21 = (ctrY + y2) / 2;
+			ctrX = (x12 + x21) / 2;
+			ctrY = (y12 + y21) / 2;
+			subdivideCubic(level + 1, x0, y0, x1, y1, x12, y12, ctrX, ctrY);
+			subdivideCubic(level + 1, ctrX, ctrY, x21, y21, x2, y2, x3, y3);
+			return;
+		}
+		appendSegment(x0, y0, x3, y3);
+	}
+
+	private static float ptSegDistSq(float x0, float y0, float x1, float y1, float px, float py) {
+		x1 -= x0;
+		y1 -= y0;
+		px -= x0;
+		py -= y0;
+		float dotProd = px * x1 + py * y1;
+		float projLenSq;
+		if (dotProd <= 0) {
+			projLenSq = 0;
+		} else {
+			px = x1 - px;
+			py = y1 - py;
+			dotProd = px * x1 + py * y1;
+			if (dotProd <= 0)
+				projLenSq = 0;
+			else
+				projLenSq = dotProd * dotProd / (x1 * x1 + y1 * y1);
+		}
+		float lenSq = px * px + py * py - projLenSq;
+		return lenSq < 0 ? 0 : lenSq;
+	}
+
+	/**
+	 * Add an edge, starting at the first pixel center row it crosses
+	 */
+	private void appendSegment(float x0, float y0, float x1, float y1) {
+		if (y0 > y1) {
+			float t = x0;
+			x0 = x1;
+			x1 = t;
+			t = y0;
+			y0 = y1;
+			y1 = t;
+		}
+		int startY = (int) Math.ceil(y0 - 0.5f);
+		int lastY = (int) Math.ceil(y1 - 0.5f);
+		if (startY >= lastY || startY >= originY + height || lastY <= originY)
+			return;
+
+		if (segmentCount == segCurX.length) {
+			int newLength = segmentCount * 2;
+			segCurX = Arrays.copyOf(segCurX, newLength);
+			segCurY = Arrays.copyOf(segCurY, newLength);
+			segLastY = Arrays.copyOf(segLastY, newLength);
+			segError = Arrays.copyOf(segError, newLength);
+			segBumpX = Arrays.copyOf(segBumpX, newLength);
+			segBumpErr = Arrays.copyOf(segBumpErr, newLength);
+		}
+
+		float dx = x1 - x0;
+		float dy = y1 - y0;
+		float slope = dx / dy;
+		float yStartBump = startY + 0.5f - y0;
+		x0 += yStartBump * dx / dy;
+		int startX = (int) Math.ceil(x0 - 0.5f);
+
+		int i = segmentCount++;
+		segCurX[i] = startX;
+		segCurY[i] = startY;
+		segLastY[i] = lastY;
+		segBumpX[i] = (int) Math.floor(slope);
+		segBumpErr[i] = (int) ((slope - Math.floor(slope)) * (double) ERRSTEP_MAX);
+		segError[i] = (int) ((x0 - (startX - 0.5f)) * (double) ERRSTEP_MAX);
+	}
+
+	/**
+	 * Fill the pixels between the edges, row by row
+	 */
+	private void fillSegments(boolean value) {
+		if (segmentCount == 0)
+			return;
+		if (order.length < segmentCount) {
+			order = new int[segCurX.length];
+			active = new int[segCurX.length];
+			crossings = new int[segCurX.length];
+		}
+
+		// sort the edges by their first row
+		int minY = Integer.MAX_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		for (int i = 0; i < segmentCount; i++) {
+			order[i] = i;
+			minY = Math.min(minY, segCurY[i]);
+			maxY = Math.max(maxY, segLastY[i]);
+		}
+		sortByStartRow(order, segmentCount);
+
+		int next = 0;
+		int activeCount = 0;
+		int y = Math.max(originY, minY);
+		maxY = Math.min(originY + height, maxY);
+		for (; y < maxY; y++) {
+			// activate the edges starting on or before this row
+			while (next < segmentCount && segCurY[order[next]] <= y) {
+				int s = order[next++];
+				if (segCurY[s] < y)
+					step(s, y - segCurY[s]);
+				if (y < segLastY[s])
+					active[activeCount++] = s;
+			}
+
+			// collect the crossings of the row
+			int crossingCount = 0;
+			int remaining = 0;
+			for (int a = 0; a < activeCount; a++) {
+				int s = active[a];
+				crossings[crossingCount++] = segCurX[s];
+				step(s, 1);
+				if (y + 1 < segLastY[s])
+					active[remaining++] = s;
+			}
+			activeCount = remaining;
+
+			Arrays.sort(crossings, 0, crossingCount);
+			for (int c = 0; c + 1 < crossingCount; c += 2)
+				fillSpan(y, crossings[c], crossings[c + 1], value);
+		}
+	}
+
+	private void sortByStartRow(int[] order, int count) {
+		// insertion sort, edges mostly arrive in order
+		for (int i = 1; i < count; i++) {
+			int s = order[i];
+			int key = segCurY[s];
+			int j = i - 1;
+			while (j >= 0 && segCurY[order[j]] > key) {
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = s;
+		}
+	}
+
+	/**
+	 * Advance the edge by the given number of rows
+	 */
+	private void step(int s, int rows) {
+		long err = segError[s] + (long) rows * segBumpErr[s];
+		segCurX[s] += rows * segBumpX[s] + (int) (err >>> 31);
+		segError[s] = (int) (err & ERRSTEP_MAX);
+		segCurY[s] += rows;
+	}
+
+	private void fillSpan(int y, int x0, int x1, boolean value) {
+		x0 = Math.max(x0, originX);
+		x1 = Math.min(x1, originX + width);
+		if (x0 >= x1)
+			return;
+		if (paintData != null) {
+			paintSpan(y, x0, x1, value);
+			return;
+		}
+		x0 -= originX;
+		x1 -= originX;
+		y -= originY;
+		int firstWord = x0 >>> 6;
+		int lastWord = (x1 - 1) >>> 6;
+		dirtyMinY = Math.min(dirtyMinY, y);
+		dirtyMaxY = Math.max(dirtyMaxY, y);
+		dirtyMinWord = Math.min(dirtyMinWord, firstWord);
+		dirtyMaxWord = Math.max(dirtyMaxWord, lastWord);
+
+		int rowStart = y * wordsPerRow;
+		for (int w = firstWord; w <= lastWord; w++) {
+			long mask = -1L;
+			if (w == firstWord)
+				mask &= -1L >>> (x0 & 63);
+			if (w == lastWord && (x1 & 63) != 0)
+				mask &= ~(-1L >>> (x1 & 63));
+			if (value)
+				bits[rowStart + w] |= mask;
+			else
+				bits[rowStart + w] &= ~mask;
+		}
+	}
+
+	private void paintSpan(int y, int x0, int x1, boolean value) {
+		int rowStart = (y - paintOriginY) * paintStride;
+		int firstByte = x0 >>> 3;
+		int lastByte = (x1 - 1) >>> 3;
+		for (int i = firstByte; i <= lastByte; i++) {
+			int mask = 0xff;
+			if (i == firstByte)
+				mask &= 0xff >>> (x0 & 7);
+			if (i == lastByte && (x1 & 7) != 0)
+				mask &= ~(0xff >>> (x1 & 7));
+			if (value)
+				paintData[rowStart + i] |= mask;
+			else
+				paintData[rowStart + i] &= ~mask;
+		}
+	}
+
+	/**
+	 * Paint the set pixels into the target, which has to be a
+	 * {@link BufferedImage#TYPE_BYTE_BINARY} image containing the window. Dark
+	 * polarity paints black, clear polarity white. Rasterizers of disjoint
+	 * windows can paint into the same image concurrently.
+	 */
+	public void multiplyTo(BufferedImage target, Polarity polarity) {
+		multiplyTo(target, 0, polarity);
+	}
+
+	/**
+	 * Same as {@link #multiplyTo(BufferedImage, Polarity)}, for a target holding
+	 * a band of the image
+	 * 
+	 * @param targetOriginY image row of the first row of the target
+	 */
+	public void multiplyTo(BufferedImage target, int targetOriginY, Polarity polarity) {
+		if (dirtyMaxY < 0)
+			return;
+		byte[] data = ((DataBufferByte) target.getRaster().getDataBuffer()).getData();
+		int stride = ((MultiPixelPackedSampleModel) target.getSampleModel()).getScanlineStride();
+		boolean dark = polarity == Polarity.DARK;
+		int originByte = originX / 8;
+		for (int y = dirtyMinY; y <= dirtyMaxY; y++) {
+			int rowStart = y * wordsPerRow;
+			int targetRowStart = (originY - targetOriginY + y) * stride + originByte;
+			for (int w = dirtyMinWord; w <= dirtyMaxWord; w++) {
+				long word = bits[rowStart + w];
+				if (word == 0)
+					continue;
+				for (int k = 0; k < 8; k++) {
+					int x = w * 8 + k;
+					if (originByte + x >= stride)
+						break;
+					int b = (int) (word >>> (56 - 8 * k)) & 0xff;
+					if (b == 0)
+						continue;
+					int idx = targetRowStart + x;
+					if (dark)
+						data[idx] &= ~b;
+					else
+						data[idx] |= b;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Clear all pixels written since the last call
+	 */
+	public void clear() {
+		for (int y = dirtyMinY; y <= dirtyMaxY; y++) {
+			int rowStart = y * wordsPerRow;
+			Arrays.fill(bits, rowStart + dirtyMinWord, rowStart + dirtyMaxWord + 1, 0L);
+		}
+		dirtyMinY = Integer.MAX_VALUE;
+		dirtyMaxY = -1;
+		dirtyMinWord = Integer.MAX_VALUE;
+		dirtyMaxWord = -1;
+	}
+
+	/**
+	 * Return the pixel at the given image coordinates, which have to lie within
+	 * the window
+	 */
+	public boolean get(int x, int y) {
+		x -= originX;
+		return (bits[(y - originY) * wordsPerRow + (x >>> 6)] & (1L << (63 - (x & 63)))) != 0;
+	}
+}
@@ -6,59 +6,95 @@ import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
 import java.awt.image.ComponentColorModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
 import java.awt.image.PixelInterleavedSampleModel;
 import java.awt.image.WritableRaster;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import com.github.ruediste.gerberLib.read.Polarity;
 
+/**
+ * Gray image which only allocates memory for the tiles written to. The pixels
+ * are stored with one bit each, all non-zero values are read back as 255.
+ */
 public class SparseBufferedImage {
 
 	public static class SparseDataBuffer extends DataBuffer {
-		private int tileSize;
-		private int width;
-		Map<Integer, byte[]> tiles = new HashMap<>();
-		private int tilesPerLine;
+		private final int tileSize;
+		private final int width;
+		private final int height;
+		private final int tilesPerLine;
+		private final int wordsPerTileRow;
+
+		/**
+		 * The tiles, indexed by tileY * tilesPerLine + tileX. Null if not written
+		 * yet. Each tile row starts with a new word, the most significant bit of a
+		 * word is the leftmost pixel.
+		 */
+		final long[][] tiles;
+
+		/**
+		 * Indexes of the allocated tiles, in allocation order
+		 */
+		private int[] allocatedTiles = new int[16];
+		private int allocatedCount;
 
 		public SparseDataBuffer(int width, int height, int tileSize) {
 			super(DataBuffer.TYPE_INT, width, height);
 			this.width = width;
+			this.height = height;
 			this.tileSize = tileSize;
 			this.tilesPerLine = (width / tileSize + 1);
-		}
-
-		byte[] getTile(int tileX, int tileY) {
-			int key = tilesPerLine * tileY + tileX;
-			return tiles.computeIfAbsent(key, x -> {
-				byte[] result = new byte[tileSize * tileSize];
-				return result;
-			});
+			this.wordsPerTileRow = (tileSize + 63) >>> 6;
+			tiles = new long[tilesPerLine * (height / tileSize + 1)][];
 		}
 
 		@Override
 		public int getElem(int bank, int i) {
 			int y = i / width;
-			int x = i % width;
-
-			int tileX = x / tileSize;
-			int tileY = y / tileSize;
-
-			return (getTile(tileX, tileY)[(y % tileSize) * tileSize + x % tileSize]) & 0xff;
+			int x = i - y * width;
+
+			long[] tile = tiles[(y / tileSize) * tilesPerLine + x / tileSize];
+			if (tile == null)
+				return 0;
+			x %= tileSize;
+			long word = tile[(y % tileSize) * wordsPerTileRow + (x >>> 6)];
+			return (word & (1L << (63 - (x & 63)))) != 0 ? 255 : 0;
 		}
 
 		@Override
 		public void setElem(int bank, int i, int val) {
 			int y = i / width;
-			int x = i % width;
-
-			int tileX = x / tileSize;
-			int tileY = y / tileSize;
-
-			getTile(tileX, tileY)[(y % tileSize) * tileSize + x % tileSize] = (byte) val;
-
+			int x = i - y * width;
+
+			int tileIndex = (y / tileSize) * tilesPerLine + x / tileSize;
+			long[] tile = tiles[tileIndex];
+			if (tile == null) {
+				if (val == 0)
+					return;
+				tile = tiles[tileIndex] = new long[tileSize * wordsPerTileRow];
+				if (allocatedCount == allocatedTiles.length)
+					allocatedTiles = Arrays.copyOf(allocatedTiles, allocatedCount * 2);
+				allocatedTiles[allocatedCount++] = tileIndex;
+			}
+			x %= tileSize;
+			int wordIndex = (y % tileSize) * wordsPerTileRow + (x >>> 6);
+			long mask = 1L << (63 - (x & 63));
+			if (val != 0)
+				tile[wordIndex] |= mask;
+			else
+				tile[wordIndex] &= ~mask;
 		}
 
+		/**
+		 * Release all tiles
+		 */
+		void clear() {
+			for (int i = 0; i < allocatedCount; i++)
+				tiles[allocatedTiles[i]] = null;
+			allocatedCount = 0;
+		}
 	}
 
 	public BufferedImage image;
@@ -80,32 +116,84 @@ public class SparseBufferedImage {
 
 	}
 
+	/**
+	 * Paint the set pixels into the target. Dark polarity paints black, clear
+	 * polarity white. {@link BufferedImage#TYPE_BYTE_BINARY} targets are painted
+	 * byte by byte if the tile size is a multiple of 8.
+	 */
 	public void multiplyTo(BufferedImage target, Polarity polarity) {
-		WritableRaster targetRaster = target.getRaster();
-
-		buffer.tiles.forEach((tileIndex, tile) -> {
-			int tileX = tileIndex % buffer.tilesPerLine;
-			int tileY = tileIndex / buffer.tilesPerLine;
+		if (target.getType() == BufferedImage.TYPE_BYTE_BINARY && buffer.tileSize % 8 == 0
+				&& ((MultiPixelPackedSampleModel) target.getSampleModel()).getPixelBitStride() == 1) {
+			multiplyToBinary(target, polarity);
+			return;
+		}
 
-			int baseX = tileX * buffer.tileSize;
-			int baseY = tileY * buffer.tileSize;
+		WritableRaster targetRaster = target.getRaster();
+		byte valueToWrite = polarity == Polarity.DARK ? 0 : (byte) 255;
+		byte[] elements = new byte[targetRaster.getNumDataElements()];
+		for (int t = 0; t < buffer.allocatedCount; t++) {
+			int tileIndex = buffer.allocatedTiles[t];
+			long[] tile = buffer.tiles[tileIndex];
+			int baseX = (tileIndex % buffer.tilesPerLine) * buffer.tileSize;
+			int baseY = (tileIndex / buffer.tilesPerLine) * buffer.tileSize;
+			for (int y = 0; y < buffer.tileSize; y++) {
+				for (int w = 0; w < buffer.wordsPerTileRow; w++) {
+					long word = tile[y * buffer.wordsPerTileRow + w];
+					while (word != 0) {
+						int bit = Long.numberOfLeadingZeros(word);
+						word &= ~(1L << (63 - bit));
+						int x = baseX + w * 64 + bit;
+
+						targetRaster.getDataElements(x, baseY + y, elements);
+						for (int i = 0; i < elements.length; i++) {
+							elements[i] = valueToWrite;
+						}
+						targetRaster.setDataElements(x, baseY + y, elements);
+					}
+				}
+			}
+		}
+	}
 
-			byte valueToWrite = polarity == Polarity.DARK ? 0 : (byte) 255;
+	/**
+	 * Clear the image, releasing the tiles written since the last clear. Allows
+	 * to reuse the image for multiple objects.
+	 */
+	public void clear() {
+		buffer.clear();
+	}
 
-			byte[] elements = new byte[targetRaster.getNumDataElements()];
-			for (int y = 0; y < buffer.tileSize; y++)
-				for (int x = 0; x < buffer.tileSize; x++) {
-					int value = tile[y * buffer.tileSize + x] & 0xff;
-					if (value == 0)
+	/**
+	 * Combine the tiles with the packed target bytes, skipping empty words
+	 */
+	private void multiplyToBinary(BufferedImage target, Polarity polarity) {
+		byte[] data = ((DataBufferByte) target.getRaster().getDataBuffer()).getData();
+		int stride = ((MultiPixelPackedSampleModel) target.getSampleModel()).getScanlineStride();
+		boolean dark = polarity == Polarity.DARK;
+		int tileBytes = buffer.tileSize / 8;
+		for (int t = 0; t < buffer.allocatedCount; t++) {
+			int tileIndex = buffer.allocatedTiles[t];
+			long[] tile = buffer.tiles[tileIndex];
+			int baseByte = (tileIndex % buffer.tilesPerLine) * tileBytes;
+			int baseY = (tileIndex / buffer.tilesPerLine) * buffer.tileSize;
+			int rows = Math.min(buffer.tileSize, buffer.height - baseY);
+			int bytes = Math.min(tileBytes, stride - baseByte);
+			for (int y = 0; y < rows; y++) {
+				int rowStart = (baseY + y) * stride + baseByte;
+				for (int w = 0; w < buffer.wordsPerTileRow; w++) {
+					long word = tile[y * buffer.wordsPerTileRow + w];
+					if (word == 0)
 						continue;
-
-					targetRaster.getDataElements(baseX + x, baseY + y, elements);
-					for (int i = 0; i < elements.length; i++) {
-						elements[i] = valueToWrite;
+					for (int k = 0; k < 8 && w * 8 + k < bytes; k++) {
+						int b = (int) (word >>> (56 - 8 * k)) & 0xff;
+						if (dark)
+							data[rowStart + w * 8 + k] &= ~b;
+						else
+							data[rowStart + w * 8 + k] |= b;
 					}
-					targetRaster.setDataElements(baseX + x, baseY + y, elements);
 				}
-		});
+			}
+		}
 	}
 
 }
@@ -0,0 +1,112 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes bilevel TIFF images compressed with CCITT Group 4. The image is
+ * stored as a single strip directly after the header, the directory follows
+ * the image data. Since the offset of the directory is part of the header, the
+ * writer requires a file to patch it at the end.
+ */
+public class TiffG4Writer implements BitmapWriter {
+	private static final int HEADER_SIZE = 8;
+
+	private final FileChannel channel;
+	private final OutputStream out;
+	private CcittG4Encoder encoder;
+	private int width;
+	private int height;
+	private double pointsPerMM;
+
+	public TiffG4Writer(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+	}
+
+	@Override
+	public void begin(int width, int height, double pointsPerMM) throws IOException {
+		this.width = width;
+		this.height = height;
+		this.pointsPerMM = pointsPerMM;
+		// little endian, the directory offset is written by finish()
+		out.write(new byte[] { 'I', 'I', 42, 0, 0, 0, 0, 0 });
+		encoder = new CcittG4Encoder(out, width);
+	}
+
+	@Override
+	public void writeRows(byte[] data, int stride, int rowCount) throws IOException {
+		for (int y = 0; y < rowCount; y++)
+			encoder.encodeRow(data, y * stride);
+	}
+
+	@Override
+	public void finish() throws IOException {
+		encoder.finish();
+		long dataLength = encoder.length;
+		// the directory has to start on a word boundary
+		if (dataLength % 2 != 0)
+			out.write(0);
+		long directoryOffset = HEADER_SIZE + dataLength + dataLength % 2;
+		if (directoryOffset > Integer.MAX_VALUE)
+			throw new IOException("Compressed image too large for TIFF");
+
+		int entryCount = 12;
+		ByteBuffer directory = ByteBuffer.allocate(2 + 12 * entryCount + 4 + 16).order(ByteOrder.LITTLE_ENDIAN);
+		int rationalOffset = (int) directoryOffset + 2 + 12 * entryCount + 4;
+		int pointsPerCentimeter = (int) Math.round(pointsPerMM * 10 * 1000);
+
+		directory.putShort((short) entryCount);
+		entry(directory, 256, 4, width); // image width
+		entry(directory, 257, 4, height); // image length
+		entry(directory, 258, 3, 1); // bits per sample
+		entry(directory, 259, 3, 4); // compression: CCITT T.6
+		entry(directory, 262, 3, 0); // photometric: white is zero
+		entry(directory, 273, 4, HEADER_SIZE); // strip offsets
+		entry(directory, 277, 3, 1); // samples per pixel
+		entry(directory, 278, 4, height); // rows per strip
+		entry(directory, 279, 4, (int) dataLength); // strip byte counts
+		entry(directory, 282, 5, rationalOffset); // x resolution
+		entry(directory, 283, 5, rationalOffset + 8); // y resolution
+		entry(directory, 296, 3, 3); // resolution unit: centimeter
+		directory.putInt(0); // no next directory
+		for (int i = 0; i < 2; i++) {
+			directory.putInt(pointsPerCentimeter);
+			directory.putInt(1000);
+		}
+		out.write(directory.array());
+		out.flush();
+
+		ByteBuffer offset = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+		offset.putInt(0, (int) directoryOffset);
+		channel.write(offset, 4);
+	}
+
+	/**
+	 * Add a directory entry with a single value, or the offset of the value for
+	 * rationals
+	 */
+	private void entry(ByteBuffer directory, int tag, int type, int value) {
+		directory.putShort((short) tag);
+		directory.putShort((short) type);
+		directory.putInt(1);
+		if (type == 3) {
+			directory.putShort((short) value);
+			directory.putShort((short) 0);
+		} else
+			directory.putInt(value);
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
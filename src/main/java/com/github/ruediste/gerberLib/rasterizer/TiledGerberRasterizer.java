@@ -0,0 +1,94 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import com.github.ruediste.gerberLib.parser.InputPosition;
+import com.github.ruediste.gerberLib.read.Polarity;
+
+/**
+ * Rasterizer rendering the image in tiles on multiple threads. The objects are
+ * collected and binned into the tiles they touch, and are drawn when
+ * {@link #render()} is called. Within a tile, the objects are drawn in the
+ * order they were received, so the image is identical to the one of the
+ * {@link GerberRasterizer}.
+ */
+public class TiledGerberRasterizer extends GerberRasterizer {
+
+	private final int tileSize;
+	private final RasterObjectBins tiles;
+	private RasterObject currentObject;
+
+	public TiledGerberRasterizer(double widthMM, double heightMM, double offsetXMM, double offsetYMM,
+			double pointsPerMM) {
+		this(widthMM, heightMM, offsetXMM, offsetYMM, pointsPerMM, 512);
+	}
+
+	/**
+	 * @param tileSize width and height of the tiles in pixels, has to be a
+	 *                 multiple of 64
+	 */
+	public TiledGerberRasterizer(double widthMM, double heightMM, double offsetXMM, double offsetYMM,
+			double pointsPerMM, int tileSize) {
+		super(widthMM, heightMM, offsetXMM, offsetYMM, pointsPerMM);
+		if (pointsPerMM <= 1)
+			throw new IllegalArgumentException("Tiled rasterization requires more than one point per mm");
+		if (tileSize <= 0 || tileSize % 64 != 0)
+			throw new IllegalArgumentException("The tile size has to be a positive multiple of 64");
+		this.tileSize = tileSize;
+		tiles = new RasterObjectBins(tileSize, tileSize, (width + tileSize - 1) / tileSize,
+				(height + tileSize - 1) / tileSize);
+	}
+
+	@Override
+	public void beginObject(InputPosition pos) {
+		currentObject = new RasterObject();
+	}
+
+	@Override
+	public void endPath(InputPosition pos, Exposure exposure) {
+		currentObject.add(currentPath, imageTransform, exposure);
+		currentPath = null;
+	}
+
+	@Override
+	public void endObject(InputPosition pos, Polarity polarity) {
+		RasterObject object = currentObject;
+		currentObject = null;
+		if (object.bounds == null)
+			return;
+		object.polarity = polarity;
+		tiles.add(object);
+	}
+
+	/**
+	 * Draw the collected objects into the {@link #image}, using the common
+	 * fork-join pool
+	 */
+	public void render() {
+		render(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Draw the collected objects into the {@link #image}, rendering the tiles in
+	 * parallel on the given pool. Afterwards, the collected objects are
+	 * discarded.
+	 */
+	public void render(ForkJoinPool pool) {
+		pool.submit(() -> IntStream.range(0, tiles.binsX * tiles.binsY).parallel().forEach(this::renderTile))
+				.join();
+		tiles.clear();
+	}
+
+	private void renderTile(int tile) {
+		int count = tiles.count(tile);
+		if (count == 0)
+			return;
+		int originX = (tile % tiles.binsX) * tileSize;
+		int originY = (tile / tiles.binsX) * tileSize;
+		ScanlineRasterizer rasterizer = new ScanlineRasterizer(originX, originY, Math.min(tileSize, width - originX),
+				Math.min(tileSize, height - originY));
+		for (int i = 0; i < count; i++)
+			tiles.get(tile, i).draw(rasterizer, image, 0);
+	}
+}
@@ -8,5 +8,9 @@ public class ApertureDefinition {
 	public ApertureTemplate template;
 	public List<Double> parameters = new ArrayList<>();
 	public int nr;
-	List<Runnable> handlerCalls;
+
+	/**
+	 * Content of block apertures, null for other apertures
+	 */
+	public GraphicsBlock block;
 }
@@ -5,4 +5,5 @@ import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroBody;
 public class ApertureTemplate {
 	public String name;
 	public MacroBody body;
+	public CompiledMacro compiled;
 }
@@ -0,0 +1,367 @@
+package com.github.ruediste.gerberLib.read;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroBody;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroExpression;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroExpressionBinaryOperation;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroExpressionUnaryMinus;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroExpressionValue;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroExpressionVariable;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroExpressionVisitor;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveCenterLine;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveCircle;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveComment;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveMoire;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveOutline;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitivePolygon;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveThermal;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveVectorLine;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroStatementVisitor;
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroVariableDefinitionStatement;
+
+/**
+ * A macro body compiled to postfix programs over a register file.
+ *
+ * <p>
+ * The register file (see {@link #createRegisters(List)}) holds the values of
+ * the macro variables, indexed by the variable number, followed by the stack
+ * used to evaluate the expressions. Unset variables have the value 0. Literals
+ * are parsed during compilation, evaluating a statement does not allocate.
+ *
+ * <p>
+ * Comments are dropped. For the primitives, the arguments are evaluated in the
+ * order of the macro primitive, except for the outline, where the rotation
+ * precedes the vertices:
+ * <ul>
+ * <li>{@link #CIRCLE}: exposure, diameter, centerX, centerY and optionally the
+ * rotation</li>
+ * <li>{@link #VECTOR_LINE}: exposure, width, startX, startY, endX, endY,
+ * rotation</li>
+ * <li>{@link #CENTER_LINE}: exposure, width, height, centerX, centerY,
+ * rotation</li>
+ * <li>{@link #OUTLINE}: exposure, numVertices, startX, startY, rotation,
+ * followed by the x and y of each vertex</li>
+ * <li>{@link #POLYGON}: exposure, numberOfVertices, centerX, centerY, diameter,
+ * rotation</li>
+ * <li>{@link #MOIRE}: centerX, centerY, diameter, thickness, gap, maxRings,
+ * crosshairThickness, crosshairLength, rotation</li>
+ * <li>{@link #THERMAL}: centerX, centerY, outerDiameter, innerDiameter, gap,
+ * rotation</li>
+ * </ul>
+ */
+public class CompiledMacro {
+
+	/**
+	 * Variable definition, assigns the variable when executed
+	 */
+	public static final int DEFINITION = -1;
+	public static final int CIRCLE = 1;
+	public static final int OUTLINE = 4;
+	public static final int POLYGON = 5;
+	public static final int MOIRE = 6;
+	public static final int THERMAL = 7;
+	public static final int VECTOR_LINE = 20;
+	public static final int CENTER_LINE = 21;
+
+	private static final int CONSTANT = 0;
+	private static final int VARIABLE = 1;
+	private static final int NEGATE = 2;
+	private static final int ADD = 3;
+	private static final int SUBTRACT = 4;
+	private static final int MULTIPLY = 5;
+	private static final int DIVIDE = 6;
+
+	/**
+	 * Kind of each statement
+	 */
+	private int[] statementKinds;
+
+	/**
+	 * Index of the first argument of each statement into
+	 * {@link #argumentExpressions}, with an additional entry at the end
+	 */
+	private int[] statementArguments;
+
+	/**
+	 * For definitions, the number of the assigned variable
+	 */
+	private int[] statementVariables;
+
+	private int[] argumentExpressions;
+
+	/**
+	 * Start of each expression in the code, with an additional entry at the end
+	 */
+	private int[] expressionStarts;
+
+	private int[] code;
+	private double[] constants;
+
+	/**
+	 * Number of variable registers, the stack starts after them
+	 */
+	private int variableCount;
+	private int maxStackDepth;
+
+	/**
+	 * Maximum number of arguments of a statement
+	 */
+	public int maxArgumentCount;
+
+	public static CompiledMacro compile(MacroBody body) {
+		return new Compiler().compile(body);
+	}
+
+	public int statementCount() {
+		return statementKinds.length;
+	}
+
+	public int argumentCount(int statement) {
+		return statementArguments[statement + 1] - statementArguments[statement];
+	}
+
+	/**
+	 * Create a register file with the variables $1, $2, ... set to the aperture
+	 * parameters
+	 */
+	public double[] createRegisters(List<Double> parameters) {
+		double[] registers = new double[variableCount + maxStackDepth];
+		for (int i = 0; i < parameters.size() && i + 1 < variableCount; i++)
+			registers[i + 1] = parameters.get(i);
+		return registers;
+	}
+
+	/**
+	 * Execute a statement. Definitions assign their variable, for primitives the
+	 * arguments are evaluated into the given array.
+	 *
+	 * @return the kind of the statement
+	 */
+	public int execute(int statement, double[] registers, double[] arguments) {
+		int kind = statementKinds[statement];
+		int first = statementArguments[statement];
+		if (kind == DEFINITION)
+			registers[statementVariables[statement]] = evaluate(argumentExpressions[first], registers);
+		else {
+			int end = statementArguments[statement + 1];
+			for (int i = first; i < end; i++)
+				arguments[i - first] = evaluate(argumentExpressions[i], registers);
+		}
+		return kind;
+	}
+
+	private double evaluate(int expression, double[] registers) {
+		final int stackBase = variableCount;
+		int sp = stackBase;
+		for (int i = expressionStarts[expression], end = expressionStarts[expression + 1]; i < end; i++) {
+			switch (code[i]) {
+			case CONSTANT:
+				registers[sp++] = constants[code[++i]];
+				break;
+			case VARIABLE:
+				registers[sp++] = registers[code[++i]];
+				break;
+			case NEGATE:
+				registers[sp - 1] = -registers[sp - 1];
+				break;
+			case ADD:
+				sp--;
+				registers[sp - 1] = registers[sp - 1] + registers[sp];
+				break;
+			case SUBTRACT:
+				sp--;
+				registers[sp - 1] = registers[sp - 1] - registers[sp];
+				break;
+			case MULTIPLY:
+				sp--;
+				registers[sp - 1] = registers[sp - 1] * registers[sp];
+				break;
+			case DIVIDE:
+				sp--;
+				registers[sp - 1] = registers[sp - 1] / registers[sp];
+				break;
+			default:
+				throw new IllegalStateException("Unknown op code " + code[i]);
+			}
+		}
+		return registers[stackBase];
+	}
+
+	private static class Compiler implements MacroExpressionVisitor<Void> {
+		private List<Integer> statementKinds = new ArrayList<>();
+		private List<Integer> statementArguments = new ArrayList<>();
+		private List<Integer> statementVariables = new ArrayList<>();
+		private List<Integer> argumentExpressions = new ArrayList<>();
+		private List<Integer> expressionStarts = new ArrayList<>();
+
+		private int[] code = new int[64];
+		private int codeLength;
+		private List<Double> constants = new ArrayList<>();
+
+		private int maxVariableNr;
+		private int stackDepth;
+		private int maxStackDepth;
+		private int maxArgumentCount;
+
+		CompiledMacro compile(MacroBody body) {
+			for (var statement : body.statements) {
+				statement.accept(new MacroStatementVisitor() {
+
+					@Override
+					public void visit(MacroVariableDefinitionStatement definition) {
+						maxVariableNr = Math.max(maxVariableNr, definition.variableNr);
+						statement(DEFINITION, definition.variableNr, definition.exp);
+					}
+
+					@Override
+					public void visit(MacroPrimitiveComment comment) {
+						// NOP
+					}
+
+					@Override
+					public void visit(MacroPrimitiveCircle circle) {
+						if (circle.rotationAngle == null)
+							statement(CIRCLE, 0, circle.exposure, circle.diameter, circle.centerX, circle.centerY);
+						else
+							statement(CIRCLE, 0, circle.exposure, circle.diameter, circle.centerX, circle.centerY,
+									circle.rotationAngle);
+					}
+
+					@Override
+					public void visit(MacroPrimitiveVectorLine line) {
+						statement(VECTOR_LINE, 0, line.exposure, line.width, line.startX, line.startY, line.endX,
+								line.endY, line.rotation);
+					}
+
+					@Override
+					public void visit(MacroPrimitiveCenterLine line) {
+						statement(CENTER_LINE, 0, line.exposure, line.width, line.height, line.centerX, line.centerY,
+								line.rotation);
+					}
+
+					@Override
+					public void visit(MacroPrimitiveOutline outline) {
+						List<MacroExpression> arguments = new ArrayList<>(List.of(outline.exposure,
+								outline.numVertices, outline.startX, outline.startY, outline.rotation));
+						for (var vertex : outline.vertices)
+							arguments.addAll(vertex);
+						statement(OUTLINE, 0, arguments.toArray(new MacroExpression[] {}));
+					}
+
+					@Override
+					public void visit(MacroPrimitivePolygon polygon) {
+						statement(POLYGON, 0, polygon.exposure, polygon.numberOfVertices, polygon.centerX,
+								polygon.centerY, polygon.diameter, polygon.rotation);
+					}
+
+					@Override
+					public void visit(MacroPrimitiveMoire moire) {
+						statement(MOIRE, 0, moire.centerX, moire.centerY, moire.diameter, moire.thickness, moire.gap,
+								moire.maxRings, moire.crosshairThickness, moire.crosshairLength, moire.rotation);
+					}
+
+					@Override
+					public void visit(MacroPrimitiveThermal thermal) {
+						statement(THERMAL, 0, thermal.centerX, thermal.centerY, thermal.outerDiameter,
+								thermal.innerDiameter, thermal.gap, thermal.rotation);
+					}
+				});
+			}
+
+			CompiledMacro result = new CompiledMacro();
+			result.statementKinds = toArray(statementKinds);
+			statementArguments.add(argumentExpressions.size());
+			result.statementArguments = toArray(statementArguments);
+			result.statementVariables = toArray(statementVariables);
+			result.argumentExpressions = toArray(argumentExpressions);
+			expressionStarts.add(codeLength);
+			result.expressionStarts = toArray(expressionStarts);
+			result.code = Arrays.copyOf(code, codeLength);
+			result.constants = constants.stream().mapToDouble(x -> x).toArray();
+			result.variableCount = maxVariableNr + 1;
+			result.maxStackDepth = maxStackDepth;
+			result.maxArgumentCount = maxArgumentCount;
+			return result;
+		}
+
+		private void statement(int kind, int variableNr, MacroExpression... arguments) {
+			statementKinds.add(kind);
+			statementVariables.add(variableNr);
+			statementArguments.add(argumentExpressions.size());
+			maxArgumentCount = Math.max(maxArgumentCount, arguments.length);
+			for (MacroExpression argument : arguments) {
+				argumentExpressions.add(expressionStarts.size());
+				expressionStarts.add(codeLength);
+				stackDepth = 0;
+				argument.accept(this);
+			}
+		}
+
+		private void emit(int value) {
+			if (codeLength == code.length)
+				code = Arrays.copyOf(code, code.length * 2);
+			code[codeLength++] = value;
+		}
+
+		private void push() {
+			stackDepth++;
+			maxStackDepth = Math.max(maxStackDepth, stackDepth);
+		}
+
+		@Override
+		public Void visit(MacroExpressionValue value) {
+			emit(CONSTANT);
+			emit(constants.size());
+			constants.add(Double.parseDouble(value.value));
+			push();
+			return null;
+		}
+
+		@Override
+		public Void visit(MacroExpressionBinaryOperation binaryOperation) {
+			binaryOperation.left.accept(this);
+			binaryOperation.right.accept(this);
+			switch (binaryOperation.operation) {
+			case DIVIDE:
+				emit(DIVIDE);
+				break;
+			case MINUS:
+				emit(SUBTRACT);
+				break;
+			case MULTIPLY:
+				emit(MULTIPLY);
+				break;
+			case PLUS:
+				emit(ADD);
+				break;
+			default:
+				throw new UnsupportedOperationException();
+			}
+			stackDepth--;
+			return null;
+		}
+
+		@Override
+		public Void visit(MacroExpressionUnaryMinus unaryMinus) {
+			unaryMinus.exp.accept(this);
+			emit(NEGATE);
+			return null;
+		}
+
+		@Override
+		public Void visit(MacroExpressionVariable variable) {
+			maxVariableNr = Math.max(maxVariableNr, variable.variableNr);
+			emit(VARIABLE);
+			emit(variable.variableNr);
+			push();
+			return null;
+		}
+
+		private static int[] toArray(List<Integer> list) {
+			return list.stream().mapToInt(x -> x).toArray();
+		}
+	}
+}
@@ -1,8 +1,6 @@
 package com.github.ruediste.gerberLib.read;
 
 import java.awt.geom.AffineTransform;
-import java.util.ArrayDeque;
-import java.util.Deque;
 
 import com.github.ruediste.gerberLib.linAlg.CoordinateLengthUnit;
 import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
@@ -13,8 +11,11 @@ import com.github.ruediste.gerberLib.parser.InterpolationMode;
 class GerberGraphicsState {
 	public GerberCoordinateFormatSpecification coordinateFormat;
 	public CoordinateLengthUnit unit;
-	public Double currentX;
-	public Double currentY;
+	/**
+	 * Current point in MM, NaN if not set
+	 */
+	public double currentX = Double.NaN;
+	public double currentY = Double.NaN;
 
 	public ApertureDefinition currentAperture;
 	public InterpolationMode interpolationMode = InterpolationMode.LINEAR;
@@ -29,11 +30,11 @@ class GerberGraphicsState {
 		return CoordinatePoint.of(currentX, currentY);
 	}
 
-	Deque<CoordinateTransformation> blockTransformations = new ArrayDeque<>();
-	{
-		blockTransformations.push(new CoordinateTransformation());
-	}
-	CoordinateTransformation apertureTransformation = new CoordinateTransformation();
+	/**
+	 * Transformation of the image, applied to all objects outside of blocks
+	 */
+	CoordinateTransformation transformation = CoordinateTransformation.IDENTITY;
+	CoordinateTransformation apertureTransformation = CoordinateTransformation.IDENTITY;
 
 	public void updateApertureTransformation() {
 		double mirrorX = 1;
@@ -58,6 +59,7 @@ class GerberGraphicsState {
 
 		AffineTransform t = AffineTransform.getRotateInstance(rotation * Math.PI / 180);
 		t.scale(mirrorX * scaling, mirrorY * scaling);
-		apertureTransformation = new CoordinateTransformation(t);
+		apertureTransformation = t.isIdentity() ? CoordinateTransformation.IDENTITY
+				: new CoordinateTransformation(t);
 	}
 }
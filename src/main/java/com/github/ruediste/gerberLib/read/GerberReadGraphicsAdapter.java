@@ -3,7 +3,6 @@ package com.github.ruediste.gerberLib.read;
 import static java.util.stream.Collectors.toList;
 
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
@@ -18,7 +17,7 @@ import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
 import com.github.ruediste.gerberLib.linAlg.CoordinateVector;
 import com.github.ruediste.gerberLib.parser.GerberCoordinateFormatSpecification;
 import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroBody;
-import com.github.ruediste.gerberLib.parser.GerberParsingEventHandler;
+import com.github.ruediste.gerberLib.parser.GerberParsingFixedPointEventHandler;
 import com.github.ruediste.gerberLib.parser.InputPosition;
 import com.github.ruediste.gerberLib.parser.InterpolationMode;
 
@@ -29,7 +28,7 @@ import com.github.ruediste.gerberLib.parser.InterpolationMode;
  * primitives.
  *
  */
-public class GerberReadGraphicsAdapter implements GerberParsingEventHandler {
+public class GerberReadGraphicsAdapter implements GerberParsingFixedPointEventHandler {
 
 	public Map<Integer, ApertureDefinition> aperturesDictionary = new HashMap<>();
 
@@ -43,6 +42,7 @@ public class GerberReadGraphicsAdapter implements GerberParsingEventHandler {
 	public GerberReadGraphicsAdapter(WarningCollector warningCollector, GerberReadGraphicsEventHandler handler) {
 		this.warningCollector = warningCollector;
 		this.handler = handler;
+		blocks.push(new GraphicsBlock.Builder(handler, state.transformation));
 	}
 
 	@Override
@@ -96,60 +96,106 @@ public class GerberReadGraphicsAdapter implements GerberParsingEventHandler {
 		state.coordinateFormat = format;
 	}
 
-	Double parseCoordinateX(String str) {
+	/**
+	 * Powers of ten which are exactly representable as double
+	 */
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	/**
+	 * @return the coordinate in MM or NaN if the string is null
+	 */
+	double parseCoordinateX(String str) {
 		return parseCoordinate(str, state.coordinateFormat.xIntegerDigits, state.coordinateFormat.xDecimalDigits);
 	}
 
-	Double parseCoordinateY(String str) {
+	/**
+	 * @return the coordinate in MM or NaN if the string is null
+	 */
+	double parseCoordinateY(String str) {
 		return parseCoordinate(str, state.coordinateFormat.yIntegerDigits, state.coordinateFormat.yDecimalDigits);
 	}
 
-	Double parseCoordinate(String str, int integerDigits, int decimalDigits) {
+	double parseCoordinate(String str, int integerDigits, int decimalDigits) {
 		if (str == null)
-			return null;
-		String tmp = str;
-		double sign = 1;
-		if (tmp.charAt(0) == '-') {
-			sign = -1;
-			tmp = tmp.substring(1);
-		} else if (tmp.charAt(0) == '+') {
-			tmp = tmp.substring(1);
-		}
-
-		while (tmp.length() < integerDigits + decimalDigits)
-			tmp = "0" + tmp;
-		double value = sign * Double.parseDouble(tmp.substring(0, integerDigits) + "." + tmp.substring(integerDigits));
-		return state.unit.convertTo(CoordinateLengthUnit.MM, value);
+			return Double.NaN;
+		int digits = str.length();
+		if (str.charAt(0) == '-' || str.charAt(0) == '+')
+			digits--;
+		// the digits are parsed as integer, which rounds the same way as the
+		// conversion of the fixed point value
+		return coordinate(Double.parseDouble(str), digits, integerDigits, decimalDigits);
+	}
+
+	/**
+	 * @return the coordinate in MM or NaN if the coordinate is absent
+	 */
+	double coordinateX(int present, int coordinate, long value) {
+		if ((present & coordinate) == 0)
+			return Double.NaN;
+		return coordinate(value, GerberParsingFixedPointEventHandler.digits(present, coordinate),
+				state.coordinateFormat.xIntegerDigits, state.coordinateFormat.xDecimalDigits);
+	}
+
+	/**
+	 * @return the coordinate in MM or NaN if the coordinate is absent
+	 */
+	double coordinateY(int present, int coordinate, long value) {
+		if ((present & coordinate) == 0)
+			return Double.NaN;
+		return coordinate(value, GerberParsingFixedPointEventHandler.digits(present, coordinate),
+				state.coordinateFormat.yIntegerDigits, state.coordinateFormat.yDecimalDigits);
+	}
+
+	/**
+	 * Convert the digits of a coordinate, interpreted as integer, to MM. Missing
+	 * leading digits are zeros. If there are more digits than the format
+	 * specifies, the integer digits are taken from the left.
+	 */
+	private double coordinate(double value, int digits, int integerDigits, int decimalDigits) {
+		int exponent = Math.max(decimalDigits, digits - integerDigits);
+		double divisor = exponent < POWERS_OF_TEN.length ? POWERS_OF_TEN[exponent] : Math.pow(10, exponent);
+		return state.unit.convertTo(CoordinateLengthUnit.MM, value / divisor);
 	}
 
-	private <T> T orFallback(T value, T fallback) {
-		if (value != null)
-			return value;
-		else
-			return fallback;
+	@Override
+	public void interpolateOperation(InputPosition pos, String x, String y, String i, String j) {
+		interpolate(pos, parseCoordinateX(x), parseCoordinateY(y), parseCoordinateX(i), parseCoordinateY(j));
 	}
 
 	@Override
-	public void interpolateOperation(InputPosition pos, String x, String y, String iStr, String jStr) {
+	public void interpolateOperation(InputPosition pos, int present, long x, long y, long i, long j) {
+		interpolate(pos, coordinateX(present, X, x), coordinateY(present, Y, y), coordinateX(present, I, i),
+				coordinateY(present, J, j));
+	}
 
-		if (state.currentX == null) {
+	/**
+	 * Coordinates are in MM, NaN for absent coordinates
+	 */
+	private void interpolate(InputPosition pos, double x, double y, double iOffset, double jOffset) {
+
+		if (Double.isNaN(state.currentX)) {
 			warningCollector.add(pos, "No initial x coordinate given. Defaulting to 0");
 			state.currentX = 0.;
 		}
-		if (state.currentY == null) {
+		if (Double.isNaN(state.currentY)) {
 			warningCollector.add(pos, "No initial y coordinate given. Defaulting to 0");
 			state.currentY = 0.;
 		}
 
 		double targetX = state.currentX;
 		double targetY = state.currentY;
-		if (x != null)
-			targetX = parseCoordinateX(x);
-		if (y != null)
-			targetY = parseCoordinateY(y);
+		if (!Double.isNaN(x))
+			targetX = x;
+		if (!Double.isNaN(y))
+			targetY = y;
 
-		Double i = orFallback(parseCoordinateX(iStr), 0.);
-		Double j = orFallback(parseCoordinateX(jStr), 0.);
+		double i = Double.isNaN(iOffset) ? 0. : iOffset;
+		double j = Double.isNaN(jOffset) ? 0. : jOffset;
 
 		ApertureDefinition aperture = state.currentAperture;
 		CoordinatePoint current = state.current();
@@ -160,24 +206,18 @@ public class GerberReadGraphicsAdapter implements GerberParsingEventHandler {
 		if (regionActive) {
 			if (!regionContourStarted) {
 				regionContourStarted = true;
-				callHandler(() -> handler.regionStartContour(pos));
+				blocks.peek().regionStartContour(pos);
 			}
-			callHandler(() -> {
-				InterpolateParameter params = new InterpolateParameter(pos, state.blockTransformations.peek(), current,
-						target, CoordinateVector.of(i, j), aperture, interpolationMode, quadrantMode, polarity);
-				handler.regionInterpolate(params);
-			});
+			blocks.peek().regionInterpolate(new InterpolateParameter(pos, state.transformation, current, target,
+					CoordinateVector.of(i, j), aperture, interpolationMode, quadrantMode, polarity));
 		} else {
 			if (aperture == null) {
 				warningCollector.add(pos, "No aperture defined, not drawing");
 				return;
 			}
 			// TODO: scaling
-			callHandler(() -> {
-				InterpolateParameter params = new InterpolateParameter(pos, state.blockTransformations.peek(), current,
-						target, CoordinateVector.of(i, j), aperture, interpolationMode, quadrantMode, polarity);
-				handler.interpolate(params);
-			});
+			blocks.peek().interpolate(new InterpolateParameter(pos, state.transformation, current, target,
+					CoordinateVector.of(i, j), aperture, interpolationMode, quadrantMode, polarity));
 		}
 		state.currentX = targetX;
 		state.currentY = targetY;
@@ -185,14 +225,23 @@ public class GerberReadGraphicsAdapter implements GerberParsingEventHandler {
 
 	@Override
 	public void moveOperation(InputPosition pos, String x, String y) {
+		move(pos, parseCoordinateX(x), parseCoordinateY(y));
+	}
+
+	@Override
+	public void moveOperation(InputPosition pos, int present, long x, long y) {
+		move(pos, coordinateX(present, X, x), coordinateY(present, Y, y));
+	}
+
+	private void move(InputPosition pos, double x, double y) {
 		if (regionContourStarted) {
-			callHandler(() -> handler.regionEndContour(pos));
+			blocks.peek().regionEndContour(pos);
 			regionContourStarted = false;
 		}
-		if (x != null)
-			state.currentX = parseCoordinateX(x);
-		if (y != null)
-			state.currentY = parseCoordinateY(y);
+		if (!Double.isNaN(x))
+			state.currentX = x;
+		if (!Double.isNaN(y))
+			state.currentY = y;
 	}
 
 	@Override
@@ -207,37 +256,36 @@ public class GerberReadGraphicsAdapter implements GerberParsingEventHandler {
 		ApertureTemplate tmpl = new ApertureTemplate();
 		tmpl.name = name;
 		tmpl.body = body;
+		tmpl.compiled = CompiledMacro.compile(body);
 		apertureTemplateDictionary.put(tmpl.name, tmpl);
 	}
 
 	@Override
 	public void flashOperation(InputPosition pos, String x, String y) {
+		flash(pos, parseCoordinateX(x), parseCoordinateY(y));
+	}
+
+	@Override
+	public void flashOperation(InputPosition pos, int present, long x, long y) {
+		flash(pos, coordinateX(present, X, x), coordinateY(present, Y, y));
+	}
+
+	private void flash(InputPosition pos, double x, double y) {
 		if (regionActive) {
 			warningCollector.add(pos, "flash not allowed in region");
 			return;
 		}
-		if (x != null)
-			state.currentX = parseCoordinateX(x);
-		if (y != null)
-			state.currentY = parseCoordinateY(y);
+		if (!Double.isNaN(x))
+			state.currentX = x;
+		if (!Double.isNaN(y))
+			state.currentY = y;
+		if (Double.isNaN(state.currentX) || Double.isNaN(state.currentY)) {
+			warningCollector.add(pos, "No current point for flash, not flashing");
+			return;
+		}
 
-		var current = state.current();
-		ApertureDefinition aperture = state.currentAperture;
-		CoordinateTransformation apertureTransformation = state.apertureTransformation.copy();
-		Polarity polarity = state.polarity;
-		callHandler(() -> {
-			CoordinateTransformation t = state.blockTransformations.peek().copy();
-			t.translate(current);
-			t.concatenate(apertureTransformation);
-			if (aperture.handlerCalls != null) {
-				// TODO: handle inversion of polarity
-				state.blockTransformations.push(t);
-				aperture.handlerCalls.forEach(Runnable::run);
-				state.blockTransformations.pop();
-			} else {
-				handler.flash(pos, t, aperture, polarity);
-			}
-		});
+		blocks.peek().flash(pos, state.current(), state.apertureTransformation, state.currentAperture,
+				state.polarity);
 	}
 
 	@Override
@@ -245,7 +293,7 @@ public class GerberReadGraphicsAdapter implements GerberParsingEventHandler {
 		if (regionActive)
 			warningCollector.add(pos, "region already started");
 		regionActive = true;
-		callHandler(() -> handler.regionBegin(pos));
+		blocks.peek().regionBegin(pos);
 	}
 
 	@Override
@@ -254,10 +302,10 @@ public class GerberReadGraphicsAdapter implements GerberParsingEventHandler {
 			warningCollector.add(pos, "no active region");
 		if (regionContourStarted) {
 			regionContourStarted = false;
-			callHandler(() -> handler.regionEndContour(pos));
+			blocks.peek().regionEndContour(pos);
 		}
 		regionActive = false;
-		callHandler(() -> handler.regionEnd(pos, state.polarity));
+		blocks.peek().regionEnd(pos, state.polarity);
 	}
 
 	@Override
@@ -274,70 +322,44 @@ public class GerberReadGraphicsAdapter implements GerberParsingEventHandler {
 			warningCollector.add(pos, "Unknown polarity " + polarity);
 	}
 
-	CoordinateTransformation blockApertureTransformation;
-	int blockDepth;
-	Deque<List<Runnable>> handlerCalls = new ArrayDeque<>();
-
-	private void callHandler(Runnable call) {
-		if (blockDepth == 0)
-			call.run();
-		else {
-			handlerCalls.peek().add(call);
-		}
-	}
+	/**
+	 * Receivers of the graphics events. The bottom one passes the events to the
+	 * handler, the others record the open blocks.
+	 */
+	private final Deque<GraphicsBlock.Builder> blocks = new ArrayDeque<>();
 
 	@Override
 	public void beginBlockAperture(int nr) {
-		blockDepth++;
-		handlerCalls.push(new ArrayList<>());
-		state.currentX = null;
-		state.currentY = null;
+		blocks.push(new GraphicsBlock.Builder());
+		state.currentX = Double.NaN;
+		state.currentY = Double.NaN;
 	}
 
 	@Override
 	public void endBlockAperture(int nr) {
-		blockDepth--;
 		ApertureDefinition def = new ApertureDefinition();
 		def.nr = nr;
-		def.handlerCalls = handlerCalls.pop();
+		def.block = blocks.pop().build();
 		aperturesDictionary.put(def.nr, def);
-		state.currentX = null;
-		state.currentY = null;
+		state.currentX = Double.NaN;
+		state.currentY = Double.NaN;
 	}
 
-	CoordinatePoint stepAndRepeatstartPoint;
-
 	@Override
 	public void beginStepAndRepeat(InputPosition pos) {
-		blockDepth++;
-		stepAndRepeatstartPoint = state.current();
-		handlerCalls.push(new ArrayList<>());
+		blocks.push(new GraphicsBlock.Builder());
 	}
 
 	@Override
 	public void endStepAndRepeat(InputPosition pos, String xRepeatsStr, String yRepeatsStr, String xDistanceStr,
 			String yDistanceStr) {
-
-		blockDepth--;
-
-		List<Runnable> handlerCalls = this.handlerCalls.pop();
-
-		var xRepeats = Integer.parseInt(xRepeatsStr);
-		var yRepeats = Integer.parseInt(yRepeatsStr);
-		var xDistance = Double.parseDouble(xDistanceStr);
-		var yDistance = Double.parseDouble(yDistanceStr);
-
-		for (int x = 0; x < xRepeats; x++) {
-			for (int y = 0; y < yRepeats; y++) {
-				CoordinateTransformation t = state.blockTransformations.peek().copy();
-				// t.translate(stepAndRepeatstartPoint);
-				t.translate(CoordinatePoint.of(x * xDistance, y * yDistance));
-				state.blockTransformations.push(t);
-				handlerCalls.forEach(Runnable::run);
-				state.blockTransformations.pop();
-			}
-
-		}
+		GraphicsBlock.StepAndRepeat stepAndRepeat = new GraphicsBlock.StepAndRepeat();
+		stepAndRepeat.block = blocks.pop().build();
+		stepAndRepeat.xRepeats = Integer.parseInt(xRepeatsStr);
+		stepAndRepeat.yRepeats = Integer.parseInt(yRepeatsStr);
+		stepAndRepeat.xDistance = Double.parseDouble(xDistanceStr);
+		stepAndRepeat.yDistance = Double.parseDouble(yDistanceStr);
+		blocks.peek().stepAndRepeat(stepAndRepeat);
 	}
 
 	@Override
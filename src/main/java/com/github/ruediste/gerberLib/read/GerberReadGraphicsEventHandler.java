@@ -1,5 +1,7 @@
 package com.github.ruediste.gerberLib.read;
 
+import java.util.List;
+
 import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
 import com.github.ruediste.gerberLib.parser.InputPosition;
 
@@ -35,4 +37,13 @@ public class GerberReadGraphicsEventHandler {
 			Polarity polarity) {
 	}
 
+	/**
+	 * Draw the block once for each transformation. Override to reuse work across
+	 * the instances, by default the block is replayed for each instance.
+	 */
+	public void blockInstances(GraphicsBlock block, List<CoordinateTransformation> transformations) {
+		for (CoordinateTransformation transformation : transformations)
+			block.replay(this, transformation);
+	}
+
 }
@@ -0,0 +1,241 @@
+package com.github.ruediste.gerberLib.read;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
+import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
+import com.github.ruediste.gerberLib.parser.InputPosition;
+
+/**
+ * Immutable display list of the graphics events of a block aperture or a step
+ * and repeat block, in block coordinates. Nested blocks are referenced, not
+ * expanded.
+ *
+ * <p>
+ * A block is drawn by passing it to
+ * {@link GerberReadGraphicsEventHandler#blockInstances(GraphicsBlock, List)},
+ * which by default replays it once per instance.
+ */
+public class GraphicsBlock {
+
+	private static final byte INTERPOLATE = 0;
+	private static final byte REGION_BEGIN = 1;
+	private static final byte REGION_START_CONTOUR = 2;
+	private static final byte REGION_INTERPOLATE = 3;
+	private static final byte REGION_END_CONTOUR = 4;
+	private static final byte REGION_END = 5;
+	private static final byte FLASH = 6;
+	private static final byte STEP_AND_REPEAT = 7;
+
+	private final byte[] kinds;
+	private final Object[] values;
+
+	private GraphicsBlock(byte[] kinds, Object[] values) {
+		this.kinds = kinds;
+		this.values = values;
+	}
+
+	/**
+	 * Number of events in the block, not counting the events of nested blocks
+	 */
+	public int size() {
+		return kinds.length;
+	}
+
+	/**
+	 * Pass the events of the block to the handler, applying the transformation.
+	 * Nested blocks are passed to
+	 * {@link GerberReadGraphicsEventHandler#blockInstances(GraphicsBlock, List)}.
+	 */
+	public void replay(GerberReadGraphicsEventHandler handler, CoordinateTransformation transformation) {
+		for (int i = 0; i < kinds.length; i++)
+			dispatch(handler, kinds[i], values[i], transformation);
+	}
+
+	private static void dispatch(GerberReadGraphicsEventHandler handler, byte kind, Object value,
+			CoordinateTransformation transformation) {
+		switch (kind) {
+		case INTERPOLATE:
+			handler.interpolate(withTransformation((InterpolateParameter) value, transformation));
+			break;
+		case REGION_BEGIN:
+			handler.regionBegin((InputPosition) value);
+			break;
+		case REGION_START_CONTOUR:
+			handler.regionStartContour((InputPosition) value);
+			break;
+		case REGION_INTERPOLATE:
+			handler.regionInterpolate(withTransformation((InterpolateParameter) value, transformation));
+			break;
+		case REGION_END_CONTOUR:
+			handler.regionEndContour((InputPosition) value);
+			break;
+		case REGION_END: {
+			RegionEnd regionEnd = (RegionEnd) value;
+			handler.regionEnd(regionEnd.pos, regionEnd.polarity);
+		}
+			break;
+		case FLASH: {
+			Flash flash = (Flash) value;
+			CoordinateTransformation t = transformation.translated(flash.point)
+					.concatenated(flash.apertureTransformation);
+			if (flash.aperture != null && flash.aperture.block != null) {
+				// TODO: handle inversion of polarity
+				handler.blockInstances(flash.aperture.block, List.of(t));
+			} else
+				handler.flash(flash.pos, t, flash.aperture, flash.polarity);
+		}
+			break;
+		case STEP_AND_REPEAT: {
+			StepAndRepeat stepAndRepeat = (StepAndRepeat) value;
+			handler.blockInstances(stepAndRepeat.block, stepAndRepeat.transformations(transformation));
+		}
+			break;
+		default:
+			throw new IllegalStateException("Unknown event kind " + kind);
+		}
+	}
+
+	private static InterpolateParameter withTransformation(InterpolateParameter p,
+			CoordinateTransformation transformation) {
+		if (p.transformation == transformation)
+			return p;
+		return new InterpolateParameter(p.pos, transformation, p.current, p.target, p.ij, p.currentAperture,
+				p.interpolationMode, p.quadrantMode, p.polarity);
+	}
+
+	private static class RegionEnd {
+		InputPosition pos;
+		Polarity polarity;
+	}
+
+	private static class Flash {
+		InputPosition pos;
+		CoordinatePoint point;
+		CoordinateTransformation apertureTransformation;
+		ApertureDefinition aperture;
+		Polarity polarity;
+	}
+
+	static class StepAndRepeat {
+		GraphicsBlock block;
+		int xRepeats;
+		int yRepeats;
+		double xDistance;
+		double yDistance;
+
+		/**
+		 * @return the transformations of the repetitions, relative to the given
+		 *         transformation
+		 */
+		List<CoordinateTransformation> transformations(CoordinateTransformation transformation) {
+			List<CoordinateTransformation> result = new ArrayList<>(xRepeats * yRepeats);
+			for (int x = 0; x < xRepeats; x++) {
+				for (int y = 0; y < yRepeats; y++) {
+					result.add(transformation.translated(x * xDistance, y * yDistance));
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Receives the graphics events, either recording them in a block or passing
+	 * them on directly
+	 */
+	static class Builder {
+		private final GerberReadGraphicsEventHandler handler;
+		private final CoordinateTransformation transformation;
+
+		private byte[] kinds = new byte[16];
+		private Object[] values = new Object[16];
+		private int size;
+
+		/**
+		 * Create a builder recording the events
+		 */
+		Builder() {
+			this(null, null);
+		}
+
+		/**
+		 * Create a builder passing the events to the handler
+		 */
+		Builder(GerberReadGraphicsEventHandler handler, CoordinateTransformation transformation) {
+			this.handler = handler;
+			this.transformation = transformation;
+		}
+
+		private void add(byte kind, Object value) {
+			if (handler != null) {
+				dispatch(handler, kind, value, transformation);
+				return;
+			}
+			if (size == kinds.length) {
+				kinds = Arrays.copyOf(kinds, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			kinds[size] = kind;
+			values[size] = value;
+			size++;
+		}
+
+		/**
+		 * The transformation of the parameter is ignored
+		 */
+		void interpolate(InterpolateParameter params) {
+			add(INTERPOLATE, params);
+		}
+
+		void regionBegin(InputPosition pos) {
+			add(REGION_BEGIN, pos);
+		}
+
+		void regionStartContour(InputPosition pos) {
+			add(REGION_START_CONTOUR, pos);
+		}
+
+		/**
+		 * The transformation of the parameter is ignored
+		 */
+		void regionInterpolate(InterpolateParameter params) {
+			add(REGION_INTERPOLATE, params);
+		}
+
+		void regionEndContour(InputPosition pos) {
+			add(REGION_END_CONTOUR, pos);
+		}
+
+		void regionEnd(InputPosition pos, Polarity polarity) {
+			RegionEnd regionEnd = new RegionEnd();
+			regionEnd.pos = pos;
+			regionEnd.polarity = polarity;
+			add(REGION_END, regionEnd);
+		}
+
+		/**
+		 * Flash the aperture at the point, after applying the aperture
+		 * transformation to it
+		 */
+		void flash(InputPosition pos, CoordinatePoint point, CoordinateTransformation apertureTransformation,
+				ApertureDefinition aperture, Polarity polarity) {
+			Flash flash = new Flash();
+			flash.pos = pos;
+			flash.point = point;
+			flash.apertureTransformation = apertureTransformation;
+			flash.aperture = aperture;
+			flash.polarity = polarity;
+			add(FLASH, flash);
+		}
+
+		void stepAndRepeat(StepAndRepeat stepAndRepeat) {
+			add(STEP_AND_REPEAT, stepAndRepeat);
+		}
+
+		GraphicsBlock build() {
+			return new GraphicsBlock(Arrays.copyOf(kinds, size), Arrays.copyOf(values, size));
+		}
+	}
+}
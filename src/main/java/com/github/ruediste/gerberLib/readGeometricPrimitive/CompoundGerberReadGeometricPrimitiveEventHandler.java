@@ -2,17 +2,31 @@ package com.github.ruediste.gerberLib.readGeometricPrimitive;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
 import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
 import com.github.ruediste.gerberLib.parser.InputPosition;
 import com.github.ruediste.gerberLib.read.Polarity;
 
-public class CompoundGerberReadGeometricPrimitiveEventHandler implements GerberReadGeometricPrimitiveEventHandler {
+/**
+ * Passes all events to multiple handlers. Shapes, blocks and packed paths are
+ * passed on to the delegates implementing
+ * {@link GerberReadGeometricPrimitiveShapeEventHandler},
+ * {@link GerberReadGeometricPrimitiveBlockEventHandler} and
+ * {@link GerberReadGeometricPrimitivePackedPathEventHandler} respectively, and
+ * expanded for the others.
+ */
+public class CompoundGerberReadGeometricPrimitiveEventHandler implements GerberReadGeometricPrimitiveShapeEventHandler,
+		GerberReadGeometricPrimitiveBlockEventHandler, GerberReadGeometricPrimitivePackedPathEventHandler {
 
 	public List<GerberReadGeometricPrimitiveEventHandler> delegates = new ArrayList<>();
 
+	private final Map<Integer, GerberReadGeometricPrimitiveEventRecorder> shapes = new HashMap<>();
+	private final Map<Integer, GerberReadGeometricPrimitiveEventRecorder> blocks = new HashMap<>();
+
 	public CompoundGerberReadGeometricPrimitiveEventHandler() {
 	}
 
@@ -42,14 +56,77 @@ public class CompoundGerberReadGeometricPrimitiveEventHandler implements GerberR
 		delegates.forEach(x -> x.addArc(pos, transformation, p, w, h, angSt, angExt));
 	}
 
+	@Override
+	public void addCircularArc(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint center,
+			double radius, double angSt, double angExt) {
+		delegates.forEach(x -> x.addCircularArc(pos, transformation, center, radius, angSt, angExt));
+	}
+
 	@Override
 	public void endPath(InputPosition pos, Exposure exposure) {
 		delegates.forEach(x -> x.endPath(pos, exposure));
 	}
 
+	@Override
+	public void path(InputPosition pos, PackedPath path, Exposure exposure) {
+		for (var delegate : delegates) {
+			if (delegate instanceof GerberReadGeometricPrimitivePackedPathEventHandler)
+				((GerberReadGeometricPrimitivePackedPathEventHandler) delegate).path(pos, path, exposure);
+			else {
+				delegate.beginPath(pos);
+				path.replay(delegate, pos);
+				delegate.endPath(pos, exposure);
+			}
+		}
+	}
+
 	@Override
 	public void endObject(InputPosition pos, Polarity polarity) {
 		delegates.forEach(x -> x.endObject(pos, polarity));
 	}
 
+	@Override
+	public void defineShape(int id, GerberReadGeometricPrimitiveEventRecorder shape) {
+		shapes.put(id, shape);
+		for (var delegate : delegates) {
+			if (delegate instanceof GerberReadGeometricPrimitiveShapeEventHandler)
+				((GerberReadGeometricPrimitiveShapeEventHandler) delegate).defineShape(id, shape);
+		}
+	}
+
+	@Override
+	public void placeShape(InputPosition pos, int id, CoordinateTransformation transformation, Polarity polarity) {
+		for (var delegate : delegates) {
+			if (delegate instanceof GerberReadGeometricPrimitiveShapeEventHandler)
+				((GerberReadGeometricPrimitiveShapeEventHandler) delegate).placeShape(pos, id, transformation,
+						polarity);
+			else {
+				delegate.beginObject(pos);
+				shapes.get(id).replay(delegate, pos, transformation);
+				delegate.endObject(pos, polarity);
+			}
+		}
+	}
+
+	@Override
+	public void defineBlock(int id, GerberReadGeometricPrimitiveEventRecorder block) {
+		blocks.put(id, block);
+		for (var delegate : delegates) {
+			if (delegate instanceof GerberReadGeometricPrimitiveBlockEventHandler)
+				((GerberReadGeometricPrimitiveBlockEventHandler) delegate).defineBlock(id, block);
+		}
+	}
+
+	@Override
+	public void placeBlock(int id, List<CoordinateTransformation> transformations) {
+		for (var delegate : delegates) {
+			if (delegate instanceof GerberReadGeometricPrimitiveBlockEventHandler)
+				((GerberReadGeometricPrimitiveBlockEventHandler) delegate).placeBlock(id, transformations);
+			else {
+				for (CoordinateTransformation transformation : transformations)
+					blocks.get(id).replayTransformed(delegate, transformation);
+			}
+		}
+	}
+
 }
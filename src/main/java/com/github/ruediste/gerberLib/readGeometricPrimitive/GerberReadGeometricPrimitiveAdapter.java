@@ -1,28 +1,22 @@
 package com.github.ruediste.gerberLib.readGeometricPrimitive;
 
-import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.github.ruediste.gerberLib.WarningCollector;
 import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
 import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
 import com.github.ruediste.gerberLib.linAlg.CoordinateVector;
-import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveCenterLine;
-import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveCircle;
-import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveComment;
-import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveMoire;
-import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveOutline;
-import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitivePolygon;
-import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveThermal;
-import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroPrimitiveVectorLine;
-import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroStatementVisitor;
-import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroVariableDefinitionStatement;
+import com.github.ruediste.gerberLib.linAlg.MutableCoordinatePoint;
+import com.github.ruediste.gerberLib.linAlg.MutableCoordinateVector;
 import com.github.ruediste.gerberLib.parser.InputPosition;
 import com.github.ruediste.gerberLib.parser.InterpolationMode;
 import com.github.ruediste.gerberLib.read.ApertureDefinition;
+import com.github.ruediste.gerberLib.read.CompiledMacro;
 import com.github.ruediste.gerberLib.read.GerberReadGraphicsEventHandler;
+import com.github.ruediste.gerberLib.read.GraphicsBlock;
 import com.github.ruediste.gerberLib.read.InterpolateParameter;
-import com.github.ruediste.gerberLib.read.MacroExpressionEvaluator;
 import com.github.ruediste.gerberLib.read.Polarity;
 import com.github.ruediste.gerberLib.read.QuadrantMode;
 import com.github.ruediste.gerberLib.read.StandardApertureTemplate;
@@ -30,12 +24,116 @@ import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricP
 
 public class GerberReadGeometricPrimitiveAdapter extends GerberReadGraphicsEventHandler {
 	private GerberReadGeometricPrimitiveEventHandler handler;
+	private GerberReadGeometricPrimitiveShapeEventHandler shapeHandler;
+	private GerberReadGeometricPrimitiveBlockEventHandler blockHandler;
 	private WarningCollector warningCollector;
 
+	private static class Shape {
+		GerberReadGeometricPrimitiveEventRecorder primitives = new GerberReadGeometricPrimitiveEventRecorder();
+		/**
+		 * Id passed to the shape handler, -1 if not defined yet, -2 if the shape
+		 * cannot be reused
+		 */
+		int id = -1;
+	}
+
+	/**
+	 * Expanded apertures. The primitives of an aperture definition do not depend
+	 * on the flash, only the transformation does.
+	 */
+	private final Map<ApertureDefinition, Shape> shapes = new IdentityHashMap<>();
+	private int nextShapeId;
+
+	private static class Block {
+		GerberReadGeometricPrimitiveEventRecorder primitives = new GerberReadGeometricPrimitiveEventRecorder();
+		/**
+		 * Id passed to the block handler, -1 if not defined yet
+		 */
+		int id = -1;
+	}
+
+	/**
+	 * Expanded step and repeat blocks and block apertures. The primitives of a
+	 * block do not depend on the instance, only the transformation does.
+	 */
+	private final Map<GraphicsBlock, Block> blocks = new IdentityHashMap<>();
+	private int nextBlockId;
+
+	/**
+	 * Scratch objects of the geometric calculations. Only the points passed to
+	 * the handler are allocated.
+	 */
+	private final MutableCoordinatePoint center = new MutableCoordinatePoint();
+	private final MutableCoordinatePoint midPoint = new MutableCoordinatePoint();
+	private final MutableCoordinatePoint projection = new MutableCoordinatePoint();
+	private final MutableCoordinatePoint p1 = new MutableCoordinatePoint();
+	private final MutableCoordinatePoint p2 = new MutableCoordinatePoint();
+	private final MutableCoordinateVector v1 = new MutableCoordinateVector();
+	private final MutableCoordinateVector v2 = new MutableCoordinateVector();
+
 	public GerberReadGeometricPrimitiveAdapter(WarningCollector warningCollector,
 			GerberReadGeometricPrimitiveEventHandler handler) {
 		this.warningCollector = warningCollector;
 		this.handler = handler;
+		if (handler instanceof GerberReadGeometricPrimitivePackedPathEventHandler)
+			this.handler = new PathPacker((GerberReadGeometricPrimitivePackedPathEventHandler) handler);
+		if (handler instanceof GerberReadGeometricPrimitiveShapeEventHandler)
+			shapeHandler = (GerberReadGeometricPrimitiveShapeEventHandler) handler;
+		if (handler instanceof GerberReadGeometricPrimitiveBlockEventHandler)
+			blockHandler = (GerberReadGeometricPrimitiveBlockEventHandler) handler;
+	}
+
+	@Override
+	public void blockInstances(GraphicsBlock block, List<CoordinateTransformation> transformations) {
+		if (transformations.isEmpty())
+			return;
+
+		Block expanded = blocks.get(block);
+		if (expanded == null) {
+			expanded = new Block();
+			int warningCount = warningCollector.warnings.size();
+			expandBlock(block, expanded.primitives);
+			if (warningCollector.warnings.size() != warningCount) {
+				// blocks producing warnings are expanded for each instance, to repeat
+				// the warnings
+				expanded.primitives.replayTransformed(handler, transformations.get(0));
+				for (int i = 1; i < transformations.size(); i++)
+					block.replay(this, transformations.get(i));
+				return;
+			}
+			blocks.put(block, expanded);
+		}
+
+		if (blockHandler != null) {
+			if (expanded.id == -1) {
+				expanded.id = nextBlockId++;
+				blockHandler.defineBlock(expanded.id, expanded.primitives);
+			}
+			blockHandler.placeBlock(expanded.id, transformations);
+		} else {
+			for (CoordinateTransformation transformation : transformations)
+				expanded.primitives.replayTransformed(handler, transformation);
+		}
+	}
+
+	/**
+	 * Pass the primitives of a block, in block coordinates, to the recorder.
+	 * Nested blocks and flashes are expanded into the recorder as well.
+	 */
+	private void expandBlock(GraphicsBlock block, GerberReadGeometricPrimitiveEventRecorder recorder) {
+		var savedHandler = handler;
+		var savedShapeHandler = shapeHandler;
+		var savedBlockHandler = blockHandler;
+		handler = recorder;
+		shapeHandler = null;
+		blockHandler = null;
+		try {
+			block.replay(this, CoordinateTransformation.IDENTITY);
+		} finally {
+			handler = savedHandler;
+			shapeHandler = savedShapeHandler;
+			blockHandler = savedBlockHandler;
+		}
 	}
 
 	@Override
@@ -60,20 +158,17 @@ public class GerberReadGeometricPrimitiveAdapter extends GerberReadGraphicsEvent
 		InterpolationMode interpolationMode = params.interpolationMode;
 		if (interpolationMode == InterpolationMode.LINEAR) {
 			if (!start.equals(end)) { // todo: handle properly
-				var normal = start.vectorTo(end).normal().normalize();
-				CoordinateVector offset = normal.scale(width2);
-				var p1 = start.plus(offset);
-				var p2 = end.plus(offset);
-				var p3 = end.minus(offset);
-				var p4 = start.minus(offset);
+				var offset = v1.setVector(start, end).normal().normalize().scale(width2);
+				var p1 = start.plus(offset.x, offset.y);
+				var p2 = end.plus(offset.x, offset.y);
+				var p3 = end.minus(offset.x, offset.y);
+				var p4 = start.minus(offset.x, offset.y);
 
 				handler.beginPath(pos);
 				handler.addLine(pos, params.transformation, p1, p2);
-				var corner = end.minus(CoordinateVector.of(width2, width2));
-				handler.addArc(pos, params.transformation, corner, width, width, offset.angle(), -180);
+				handler.addCircularArc(pos, params.transformation, end, width2, offset.angle(), -180);
 				handler.addLine(pos, params.transformation, p3, p4);
-				corner = start.minus(CoordinateVector.of(width2, width2));
-				handler.addArc(pos, params.transformation, corner, width, width, offset.negate().angle(), -180);
+				handler.addCircularArc(pos, params.transformation, start, width2, offset.negate().angle(), -180);
 				handler.endPath(pos, Exposure.ON);
 			}
 		} else if (interpolationMode == InterpolationMode.CIRCULAR_CLOCKWISE
@@ -85,54 +180,50 @@ public class GerberReadGeometricPrimitiveAdapter extends GerberReadGraphicsEvent
 				switch (quadrantMode) {
 				case MULTI: {
 					var radius = params.ij.length();
-					CoordinatePoint center = start.plus(params.ij);
+					center.set(start).plus(params.ij);
 					var radiusOuter = radius + width2;
 					var radiusInner = radius - width2;
 					handler.beginPath(pos);
-					handler.addArc(pos, params.transformation, center.minus(radiusOuter, radiusOuter), radiusOuter * 2,
-							radiusOuter * 2, 0, 360);
+					handler.addCircularArc(pos, params.transformation, center.toPoint(), radiusOuter, 0, 360);
 					handler.endPath(pos, Exposure.ON);
 
 					handler.beginPath(pos);
-					handler.addArc(pos, params.transformation, center.minus(radiusInner, radiusInner), radiusInner * 2,
-							radiusInner * 2, 0, 360);
+					handler.addCircularArc(pos, params.transformation, center.toPoint(), radiusInner, 0, 360);
 					handler.endPath(pos, Exposure.OFF);
 				}
 					break;
 				case SINGLE: {
 					handler.beginPath(pos);
-					handler.addArc(pos, params.transformation, start.minus(width2, width2), width, width, 0,
-							clockWise ? -360 : 360);
+					handler.addCircularArc(pos, params.transformation, start, width2, 0, clockWise ? -360 : 360);
 					handler.endPath(pos, Exposure.ON);
 				}
 					break;
 				default:
 					throw new UnsupportedOperationException();
 				}
-			} else {
-				CoordinatePoint center = calculateCircleCenter(start, end, params.ij, quadrantMode, clockWise);
-				double startAngle = center.vectorTo(start).angle();
-				double endAngle = center.vectorTo(end).angle();
-				var offsetStart = center.vectorTo(start).normalize().scale(width * 0.5);
-				var offsetEnd = center.vectorTo(end).normalize().scale(width * 0.5);
-
-				double radius = center.vectorTo(start).length();
+			} else if (calculateCircleCenter(start, end, params.ij, quadrantMode, clockWise, center)) {
+				double startAngle = v1.setVector(center, start).angle();
+				double endAngle = v2.setVector(center, end).angle();
+				double radius = v1.length();
+				var offsetStart = v1.normalize().scale(width * 0.5);
+				var offsetEnd = v2.normalize().scale(width * 0.5);
+
 				double radiusOuter = radius + offsetStart.length();
-				double diameterOuter = radiusOuter * 2;
 				double radiusInner = radius - offsetStart.length();
-				double diameterInner = radiusInner * 2;
+				CoordinatePoint arcCenter = center.toPoint();
 
 				handler.beginPath(pos);
-				handler.addArc(pos, params.transformation, center.minus(radiusOuter, radiusOuter), diameterOuter,
-						diameterOuter, startAngle, angle(startAngle, endAngle, clockWise));
-				handler.addArc(pos, params.transformation, end.minus(width2, width2), width, width, offsetEnd.angle(),
+				handler.addCircularArc(pos, params.transformation, arcCenter, radiusOuter, startAngle,
+						angle(startAngle, endAngle, clockWise));
+				handler.addCircularArc(pos, params.transformation, end, width2, offsetEnd.angle(),
 						clockWise ? -180 : 180);
-				handler.addArc(pos, params.transformation, center.minus(radiusInner, radiusInner), diameterInner,
-						diameterInner, endAngle, angle(endAngle, startAngle, !clockWise));
-				handler.addArc(pos, params.transformation, start.minus(width2, width2), width, width,
-						offsetStart.angle(), clockWise ? 180 : -180);
+				handler.addCircularArc(pos, params.transformation, arcCenter, radiusInner, endAngle,
+						angle(endAngle, startAngle, !clockWise));
+				handler.addCircularArc(pos, params.transformation, start, width2, offsetStart.angle(),
+						clockWise ? 180 : -180);
 				handler.endPath(pos, Exposure.ON);
-			}
+			} else
+				warningCollector.add(pos, "Unable to determine the center of the arc");
 		} else
 			warningCollector.add(pos, "Unsupported interpolationMode " + interpolationMode);
 
@@ -140,31 +231,40 @@ public class GerberReadGeometricPrimitiveAdapter extends GerberReadGraphicsEvent
 
 	}
 
-	private CoordinatePoint calculateCircleCenter(CoordinatePoint start, CoordinatePoint end, CoordinateVector ij,
-			QuadrantMode quadrantMode, boolean clockWise) {
-		CoordinateVector d = start.vectorTo(end);
-		var midPoint = start.plus(d.scale(0.5));
+	/**
+	 * Calculate the center of the arc from start to end and store it in the
+	 * result
+	 * 
+	 * @return false if no center could be determined
+	 */
+	private boolean calculateCircleCenter(CoordinatePoint start, CoordinatePoint end, CoordinateVector ij,
+			QuadrantMode quadrantMode, boolean clockWise, MutableCoordinatePoint result) {
+		var d = v1.setVector(start, end);
+		midPoint.set(start).plus(d.x * 0.5, d.y * 0.5);
 		var midLineD = d.normal();
 		if (quadrantMode == QuadrantMode.MULTI) {
-			var centerOrig = start.plus(ij);
-			return midPoint.projectPointToLine(centerOrig, midLineD);
+			result.set(midPoint).projectPointToLine(start.x + ij.x, start.y + ij.y, midLineD.x, midLineD.y);
+			return true;
 		} else {
-			CoordinatePoint[] candidates = new CoordinatePoint[] { start.plus(ij), start.minus(ij),
-					start.plus(ij.x, -ij.y), start.plus(-ij.x, ij.y) };
-			CoordinatePoint bestCenter = null;
-			Double bestDeviation = null;
-			for (CoordinatePoint candidate : candidates) {
-				var proj = midPoint.projectPointToLine(candidate, midLineD);
-				var span = Math.abs(angle(proj.vectorTo(start).angle(), proj.vectorTo(end).angle(), clockWise));
+			boolean found = false;
+			double bestDeviation = 0;
+			// candidates: start+ij, start-ij, start+(i,-j), start+(-i,j)
+			for (int candidate = 0; candidate < 4; candidate++) {
+				double cx = candidate == 0 || candidate == 2 ? start.x + ij.x : start.x - ij.x;
+				double cy = candidate == 0 || candidate == 3 ? start.y + ij.y : start.y - ij.y;
+				var proj = projection.set(midPoint).projectPointToLine(cx, cy, midLineD.x, midLineD.y);
+				var span = Math.abs(angle(v2.setVector(proj, start).angle(), v2.setVector(proj, end).angle(),
+						clockWise));
 				if (span > 90)
 					continue;
-				double deviation = proj.vectorTo(candidate).length();
-				if (bestCenter == null || deviation < bestDeviation) {
-					bestCenter = proj;
+				double deviation = v2.set(cx - proj.x, cy - proj.y).length();
+				if (!found || deviation < bestDeviation) {
+					result.set(proj);
 					bestDeviation = deviation;
+					found = true;
 				}
 			}
-			return bestCenter;
+			return found;
 		}
 	}
 
@@ -190,20 +290,50 @@ public class GerberReadGeometricPrimitiveAdapter extends GerberReadGraphicsEvent
 			warningCollector.add(pos, "No current aperture for flash operation");
 			return;
 		}
-		handler.beginObject(pos);
+
+		Shape shape = shapes.get(aperture);
+		if (shape == null) {
+			shape = new Shape();
+			int warningCount = warningCollector.warnings.size();
+			expandAperture(pos, aperture, shape.primitives);
+			// expansions producing warnings are repeated, to repeat the warnings
+			if (warningCollector.warnings.size() == warningCount)
+				shapes.put(aperture, shape);
+			else
+				shape.id = -2;
+		}
+
+		if (shapeHandler != null && shape.id != -2) {
+			if (shape.id == -1) {
+				shape.id = nextShapeId++;
+				shapeHandler.defineShape(shape.id, shape.primitives);
+			}
+			shapeHandler.placeShape(pos, shape.id, transformation, polarity);
+		} else {
+			handler.beginObject(pos);
+			shape.primitives.replay(handler, pos, transformation);
+			handler.endObject(pos, polarity);
+		}
+	}
+
+	/**
+	 * Pass the primitives of an aperture, in aperture coordinates, to the handler
+	 */
+	private void expandAperture(InputPosition pos, ApertureDefinition aperture,
+			GerberReadGeometricPrimitiveEventHandler handler) {
+		CoordinateTransformation transformation = CoordinateTransformation.IDENTITY;
 		if (aperture.standardTemplate != null) {
 
 			switch (aperture.standardTemplate) {
 			case C: {
 				var diameter = aperture.parameters.get(0);
 				handler.beginPath(pos);
-				handler.addArc(pos, transformation, CoordinatePoint.of(-diameter / 2, -diameter / 2), diameter,
-						diameter, 0, 360);
+				handler.addCircularArc(pos, transformation, CoordinatePoint.of(0, 0), diameter / 2, 0, 360);
 				handler.endPath(pos, Exposure.ON);
 				if (aperture.parameters.size() >= 2) {
 					var hole = aperture.parameters.get(1);
 					handler.beginPath(pos);
-					handler.addArc(pos, transformation, CoordinatePoint.of(-hole / 2, -hole / 2), hole, hole, 0, 360);
+					handler.addCircularArc(pos, transformation, CoordinatePoint.of(0, 0), hole / 2, 0, 360);
 					handler.endPath(pos, Exposure.OFF);
 				}
 			}
@@ -228,7 +358,7 @@ public class GerberReadGeometricPrimitiveAdapter extends GerberReadGraphicsEvent
 					var hole = aperture.parameters.get(2);
 
 					handler.beginPath(pos);
-					handler.addArc(pos, transformation, CoordinatePoint.of(-hole / 2, -hole / 2), hole, hole, 0, 360);
+					handler.addCircularArc(pos, transformation, CoordinatePoint.of(0, 0), hole / 2, 0, 360);
 					handler.endPath(pos, Exposure.OFF);
 				}
 			}
@@ -262,7 +392,7 @@ public class GerberReadGeometricPrimitiveAdapter extends GerberReadGraphicsEvent
 				if (aperture.parameters.size() >= 3) {
 					var hole = aperture.parameters.get(2);
 					handler.beginPath(pos);
-					handler.addArc(pos, transformation, CoordinatePoint.of(-hole / 2, -hole / 2), hole, hole, 0, 360);
+					handler.addCircularArc(pos, transformation, CoordinatePoint.of(0, 0), hole / 2, 0, 360);
 					handler.endPath(pos, Exposure.OFF);
 				}
 			}
@@ -295,8 +425,7 @@ public class GerberReadGeometricPrimitiveAdapter extends GerberReadGraphicsEvent
 
 				if (holeDiameter != null) {
 					handler.beginPath(pos);
-					handler.addArc(pos, transformation, CoordinatePoint.of(-holeDiameter / 2, -holeDiameter / 2),
-							holeDiameter, holeDiameter, 0, 360);
+					handler.addCircularArc(pos, transformation, CoordinatePoint.of(0, 0), holeDiameter / 2, 0, 360);
 					handler.endPath(pos, Exposure.OFF);
 				}
 
@@ -306,283 +435,197 @@ public class GerberReadGeometricPrimitiveAdapter extends GerberReadGraphicsEvent
 				warningCollector.add(pos, "Unsuported standard apterture " + aperture.standardTemplate);
 			}
 
-		} else {
-			MacroExpressionEvaluator evaluator = new MacroExpressionEvaluator(warningCollector);
-			List<Double> parameters = aperture.parameters;
-			for (int i = 0; i < parameters.size(); i++) {
-				evaluator.set(i + 1, parameters.get(i));
-			}
-			// System.out.println("Values " + evaluator);
-			for (var statement : aperture.template.body.statements) {
-				// System.out.println("Flashing " + statement);
-				statement.accept(new MacroStatementVisitor() {
-
-					@Override
-					public void visit(MacroVariableDefinitionStatement macroVariableDefinitionStatement) {
-						Double value = evaluator.evaluate(macroVariableDefinitionStatement.exp);
-						evaluator.set(macroVariableDefinitionStatement.variableNr, value);
-						// System.out.println("New Values " + evaluator);
-					}
-
-					@Override
-					public void visit(MacroPrimitiveComment macroPrimitiveComment) {
-						// NOP
-					}
+		} else
+			expandMacro(pos, aperture, transformation, handler);
+	}
 
-					@Override
-					public void visit(MacroPrimitiveCircle circle) {
-						Double exposureValue = evaluator.evaluate(circle.exposure);
-						var diameter = evaluator.evaluate(circle.diameter);
-						Double centerX = evaluator.evaluate(circle.centerX);
-						Double centerY = evaluator.evaluate(circle.centerY);
-						if (exposureValue == null || diameter == null || centerX == null || centerY == null)
-							return;
-						var exposure = exposureValue == 0 ? Exposure.OFF : Exposure.ON;
-						var center = CoordinatePoint.of(centerX, centerY);
-						if (circle.rotationAngle != null) {
-							var rotation = evaluator.evaluate(circle.rotationAngle);
-							if (rotation == null)
-								return;
-							center = center.rotate(rotation);
-						}
-
-						var radius = diameter / 2;
-
-						handler.beginPath(pos);
-						handler.addArc(pos, transformation, center.minus(radius, radius), diameter, diameter, 0, 360);
-						handler.endPath(pos, exposure);
-					}
+	private void expandMacro(InputPosition pos, ApertureDefinition aperture, CoordinateTransformation transformation,
+			GerberReadGeometricPrimitiveEventHandler handler) {
+		CompiledMacro macro = aperture.template.compiled;
+		double[] registers = macro.createRegisters(aperture.parameters);
+		double[] args = new double[macro.maxArgumentCount];
+		for (int statement = 0; statement < macro.statementCount(); statement++) {
+			switch (macro.execute(statement, registers, args)) {
+			case CompiledMacro.DEFINITION:
+				break;
+			case CompiledMacro.CIRCLE: {
+				var exposure = args[0] == 0 ? Exposure.OFF : Exposure.ON;
+				var diameter = args[1];
+				var center = p1.set(args[2], args[3]);
+				if (macro.argumentCount(statement) > 4)
+					center.rotate(args[4]);
 
-					@Override
-					public void visit(MacroPrimitiveVectorLine line) {
-						Double exposureValue = evaluator.evaluate(line.exposure);
-						var width = evaluator.evaluate(line.width);
-						var startX = evaluator.evaluate(line.startX);
-						var startY = evaluator.evaluate(line.startY);
-						var endX = evaluator.evaluate(line.endX);
-						var endY = evaluator.evaluate(line.endY);
-						var rotationValue = evaluator.evaluate(line.rotation);
-						if (exposureValue == null || width == null || startX == null || startY == null || endX == null
-								|| endY == null || rotationValue == null)
-							return;
-
-						double r = rotationValue;
-						var start = CoordinatePoint.of(startX, startY).rotate(r);
-						var end = CoordinatePoint.of(endX, endY).rotate(r);
-
-						var d = start.vectorTo(end);
-						var n = d.normal().normalize().scale(width / 2);
-						var exposure = exposureValue == 0 ? Exposure.OFF : Exposure.ON;
-
-						addRectangle(pos, transformation, exposure, start.plus(n), end.plus(n), end.minus(n),
-								start.minus(n));
-					}
+				var radius = diameter / 2;
 
-					@Override
-					public void visit(MacroPrimitiveCenterLine line) {
-						Double exposureValue = evaluator.evaluate(line.exposure);
-						var width = evaluator.evaluate(line.width);
-						var height = evaluator.evaluate(line.height);
-						var centerX = evaluator.evaluate(line.centerX);
-						var centerY = evaluator.evaluate(line.centerY);
-						var rotationValue = evaluator.evaluate(line.rotation);
-						if (exposureValue == null || width == null || height == null || centerX == null
-								|| centerY == null || rotationValue == null)
-							return;
-						var exposure = exposureValue == 0 ? Exposure.OFF : Exposure.ON;
-						double r = rotationValue;
-						var center = CoordinatePoint.of(centerX, centerY).rotate(r);
-						var dw = CoordinateVector.of(width / 2, 0).rotate(r);
-						var dh = CoordinateVector.of(0, height / 2).rotate(r);
-						addRectangle(pos, transformation, exposure, center.plus(dw).plus(dh), center.plus(dw).minus(dh),
-								center.minus(dw).minus(dh), center.minus(dw).plus(dh));
-					}
+				handler.beginPath(pos);
+				handler.addCircularArc(pos, transformation, center.toPoint(), radius, 0, 360);
+				handler.endPath(pos, exposure);
+			}
+				break;
+			case CompiledMacro.VECTOR_LINE: {
+				var width = args[1];
+				double r = args[6];
+				var start = p1.set(args[2], args[3]).rotate(r);
+				var end = p2.set(args[4], args[5]).rotate(r);
+
+				var n = v1.set(end.x - start.x, end.y - start.y).normal().normalize().scale(width / 2);
+				var exposure = args[0] == 0 ? Exposure.OFF : Exposure.ON;
+
+				addRectangle(handler, pos, transformation, exposure,
+						CoordinatePoint.of(start.x + n.x, start.y + n.y), CoordinatePoint.of(end.x + n.x, end.y + n.y),
+						CoordinatePoint.of(end.x - n.x, end.y - n.y),
+						CoordinatePoint.of(start.x - n.x, start.y - n.y));
+			}
+				break;
+			case CompiledMacro.CENTER_LINE: {
+				var exposure = args[0] == 0 ? Exposure.OFF : Exposure.ON;
+				var width = args[1];
+				var height = args[2];
+				double r = args[5];
+				var center = CoordinatePoint.of(args[3], args[4]).rotate(r);
+				var dw = v1.set(width / 2, 0).rotate(r).toVector();
+				var dh = v2.set(0, height / 2).rotate(r).toVector();
+				addRectangle(handler, pos, transformation, exposure, center.plus(dw).plus(dh),
+						center.plus(dw).minus(dh), center.minus(dw).minus(dh), center.minus(dw).plus(dh));
+			}
+				break;
+			case CompiledMacro.OUTLINE: {
+				var exposure = args[0] == 0 ? Exposure.OFF : Exposure.ON;
+				double r = args[4];
+				CoordinatePoint startPoint = p1.set(args[2], args[3]).rotate(r).toPoint();
+				CoordinatePoint lastPoint = startPoint;
+				handler.beginPath(pos);
+				for (int i = 5; i + 1 < macro.argumentCount(statement); i += 2) {
+					var point = p1.set(args[i], args[i + 1]).rotate(r).toPoint();
+					handler.addLine(pos, transformation, lastPoint, point);
+					lastPoint = point;
+				}
+				handler.endPath(pos, exposure);
+			}
+				break;
+			case CompiledMacro.POLYGON: {
+				var r = args[5];
 
-					@Override
-					public void visit(MacroPrimitiveOutline line) {
-						Double exposureValue = evaluator.evaluate(line.exposure);
-						var startX = evaluator.evaluate(line.startX);
-						var startY = evaluator.evaluate(line.startY);
-						var rotationValue = evaluator.evaluate(line.rotation);
-						if (exposureValue == null || startX == null || startY == null || rotationValue == null)
-							return;
-						List<CoordinatePoint> vertices = new ArrayList<>();
-						for (var v : line.vertices) {
-							var x = evaluator.evaluate(v.get(0));
-							var y = evaluator.evaluate(v.get(1));
-							if (x == null || y == null)
-								return;
-							vertices.add(CoordinatePoint.of(x, y));
-						}
-						var exposure = exposureValue == 0 ? Exposure.OFF : Exposure.ON;
-						double r = rotationValue;
-						CoordinatePoint startPoint = CoordinatePoint.of(startX, startY).rotate(r);
-						CoordinatePoint lastPoint = startPoint;
-						handler.beginPath(pos);
-						for (var vertex : vertices) {
-							var point = vertex.rotate(r);
-							handler.addLine(pos, transformation, lastPoint, point);
-							lastPoint = point;
-
-						}
-						handler.endPath(pos, exposure);
-					}
+				int verticesCount = (int) args[1];
+				double sectionAngle = 360. / verticesCount;
+				var exposure = args[0] == 0 ? Exposure.OFF : Exposure.ON;
+				var radius = args[4] / 2;
+				var cx = args[2];
+				var cy = args[3];
+				CoordinatePoint startPoint = p1.set(cx + radius, cy).rotate(r).toPoint();
+				CoordinatePoint lastPoint = startPoint;
 
-					@Override
-					public void visit(MacroPrimitivePolygon polygon) {
-						var exposureValue = evaluator.evaluate(polygon.exposure);
-						var numberOfVertices = evaluator.evaluate(polygon.numberOfVertices);
-						var centerX = evaluator.evaluate(polygon.centerX);
-						var centerY = evaluator.evaluate(polygon.centerY);
-						var diameter = evaluator.evaluate(polygon.diameter);
-						var rotation = evaluator.evaluate(polygon.rotation);
-						if (centerX == null || centerY == null || diameter == null || exposureValue == null
-								|| numberOfVertices == null || rotation == null)
-							return;
-						var r = rotation;
-
-						int verticesCount = (int) (double) numberOfVertices;
-						double sectionAngle = 360. / verticesCount;
-						var exposure = exposureValue == 0 ? Exposure.OFF : Exposure.ON;
-						var radius = diameter / 2;
-						var center = CoordinatePoint.of(centerX, centerY);
-						CoordinatePoint startPoint = center.plusX(radius).rotate(r);
-						CoordinatePoint lastPoint = startPoint;
-
-						handler.beginPath(pos);
-						for (int i = 1; i < verticesCount; i++) {
-							double angle = i * sectionAngle;
-							var p = center.plus(CoordinateVector.of(radius, angle)).rotate(r);
-							handler.addLine(pos, transformation, lastPoint, p);
-							lastPoint = p;
-						}
-						handler.addLine(pos, transformation, lastPoint, startPoint);
-						handler.endPath(pos, exposure);
+				handler.beginPath(pos);
+				for (int i = 1; i < verticesCount; i++) {
+					double angle = i * sectionAngle;
+					var p = p1.set(cx + radius, cy + angle).rotate(r).toPoint();
+					handler.addLine(pos, transformation, lastPoint, p);
+					lastPoint = p;
+				}
+				handler.addLine(pos, transformation, lastPoint, startPoint);
+				handler.endPath(pos, exposure);
+			}
+				break;
+			case CompiledMacro.MOIRE: {
+				var center = CoordinatePoint.of(args[0], args[1]);
+				var rotatedCenter = center.rotate(args[8]);
+				var diameter = args[2];
+				var thickness = args[3];
+				var gap = args[4];
+				var maxRings = args[5];
+				var crosshairThickness = args[6];
+				var crosshairLength = args[7];
+				var r = args[8];
+				for (int i = 0; i < (int) maxRings; i++) {
+					var d = diameter - (2 * i * (thickness + gap));
+					if (d <= 0)
+						break;
+					handler.beginPath(pos);
+					handler.addCircularArc(pos, transformation, rotatedCenter, d / 2, 0, 360);
+					handler.endPath(pos, Exposure.ON);
 
-					}
+					d -= gap * 2;
+					if (d <= 0)
+						break;
+					handler.beginPath(pos);
+					handler.addCircularArc(pos, transformation, rotatedCenter, d / 2, 0, 360);
+					handler.endPath(pos, Exposure.OFF);
+				}
 
-					@Override
-					public void visit(MacroPrimitiveMoire moire) {
-						var centerX = evaluator.evaluate(moire.centerX);
-						var centerY = evaluator.evaluate(moire.centerY);
-						var diameter = evaluator.evaluate(moire.diameter);
-						var thickness = evaluator.evaluate(moire.thickness);
-						var gap = evaluator.evaluate(moire.gap);
-						var maxRings = evaluator.evaluate(moire.maxRings);
-						var crosshairThickness = evaluator.evaluate(moire.crosshairThickness);
-						var crosshairLength = evaluator.evaluate(moire.crosshairLength);
-						var rotation = evaluator.evaluate(moire.rotation);
-						if (centerX == null || centerY == null || diameter == null || thickness == null || gap == null
-								|| maxRings == null || crosshairThickness == null || crosshairLength == null
-								|| rotation == null)
-							return;
-
-						var r = rotation;
-						var center = CoordinatePoint.of(centerX, centerY);
-						for (int i = 0; i < (int) (double) maxRings; i++) {
-							var d = diameter - (2 * i * (thickness + gap));
-							if (d <= 0)
-								break;
-							handler.beginPath(pos);
-							handler.addArc(pos, transformation, center.rotate(r).minus(d / 2, d / 2), d, d, 0, 360);
-							handler.endPath(pos, Exposure.ON);
-
-							d -= gap * 2;
-							if (d <= 0)
-								break;
-							handler.beginPath(pos);
-							handler.addArc(pos, transformation, center.rotate(r).minus(d / 2, d / 2), d, d, 0, 360);
-							handler.endPath(pos, Exposure.OFF);
-						}
-
-						if (thickness > 0) {
-							{
-								var p1 = center.plus(-crosshairThickness / 2, crosshairLength / 2).rotate(r);
-								var p2 = center.plus(crosshairThickness / 2, crosshairLength / 2).rotate(r);
-								var p3 = center.plus(crosshairThickness / 2, -crosshairLength / 2).rotate(r);
-								var p4 = center.minus(crosshairThickness / 2, crosshairLength / 2).rotate(r);
-								addRectangle(pos, transformation, Exposure.ON, p1, p2, p3, p4);
-							}
-							{
-								var p1 = center.plus(-crosshairLength / 2, crosshairThickness / 2).rotate(r);
-								var p2 = center.plus(crosshairLength / 2, crosshairThickness / 2).rotate(r);
-								var p3 = center.plus(crosshairLength / 2, -crosshairThickness / 2).rotate(r);
-								var p4 = center.minus(crosshairLength / 2, crosshairThickness / 2).rotate(r);
-								addRectangle(pos, transformation, Exposure.ON, p1, p2, p3, p4);
-							}
-						}
+				if (thickness > 0) {
+					{
+						var p1 = center.plus(-crosshairThickness / 2, crosshairLength / 2).rotate(r);
+						var p2 = center.plus(crosshairThickness / 2, crosshairLength / 2).rotate(r);
+						var p3 = center.plus(crosshairThickness / 2, -crosshairLength / 2).rotate(r);
+						var p4 = center.minus(crosshairThickness / 2, crosshairLength / 2).rotate(r);
+						addRectangle(handler, pos, transformation, Exposure.ON, p1, p2, p3, p4);
 					}
-
-					private void addRectangle(InputPosition pos, CoordinateTransformation transformation,
-							Exposure exposure, CoordinatePoint p1, CoordinatePoint p2, CoordinatePoint p3,
-							CoordinatePoint p4) {
-						handler.beginPath(pos);
-						handler.addLine(pos, transformation, p1, p2);
-						handler.addLine(pos, transformation, p2, p3);
-						handler.addLine(pos, transformation, p3, p4);
-						handler.addLine(pos, transformation, p4, p1);
-						handler.endPath(pos, exposure);
+					{
+						var p1 = center.plus(-crosshairLength / 2, crosshairThickness / 2).rotate(r);
+						var p2 = center.plus(crosshairLength / 2, crosshairThickness / 2).rotate(r);
+						var p3 = center.plus(crosshairLength / 2, -crosshairThickness / 2).rotate(r);
+						var p4 = center.minus(crosshairLength / 2, crosshairThickness / 2).rotate(r);
+						addRectangle(handler, pos, transformation, Exposure.ON, p1, p2, p3, p4);
 					}
+				}
+			}
+				break;
+			case CompiledMacro.THERMAL: {
+				var outerDiameter = args[2];
+				double outerRadius = outerDiameter / 2;
+				var innerDiameter = args[3];
+				var center = CoordinatePoint.of(args[0], args[1]).rotate(args[5]);
+				var gap = args[4];
 
-					@Override
-					public void visit(MacroPrimitiveThermal thermal) {
-						var outerDiameter = evaluator.evaluate(thermal.outerDiameter);
-						Double outerRadius = outerDiameter / 2;
-						var innerDiameter = evaluator.evaluate(thermal.innerDiameter);
-						Double centerX = evaluator.evaluate(thermal.centerX);
-						Double centerY = evaluator.evaluate(thermal.centerY);
-						Double gap = evaluator.evaluate(thermal.gap);
-						if (outerDiameter == null || innerDiameter == null || centerX == null || centerY == null
-								|| gap == null)
-							return;
-						var center = CoordinatePoint.of(centerX, centerY);
-						var rotation = evaluator.evaluate(thermal.rotation);
-						if (rotation != null) {
-							center = center.rotate(rotation);
-						}
-
-						handler.beginPath(pos);
-						handler.addArc(pos, transformation, center.minus(outerRadius, outerRadius), outerDiameter,
-								outerDiameter, 0, 360);
-						handler.endPath(pos, Exposure.ON);
-						handler.beginPath(pos);
-						handler.addArc(pos, transformation, center.minus(innerDiameter / 2, innerDiameter / 2),
-								innerDiameter, innerDiameter, 0, 360);
-						handler.endPath(pos, Exposure.OFF);
-
-						gap = gap / 2;
-						{
-							handler.beginPath(pos);
-							CoordinatePoint p1 = center.plus(-gap, outerRadius);
-							CoordinatePoint p2 = center.plus(gap, outerRadius);
-							CoordinatePoint p3 = center.plus(gap, -outerRadius);
-							CoordinatePoint p4 = center.minus(gap, outerRadius);
-							handler.addLine(pos, transformation, p1, p2);
-							handler.addLine(pos, transformation, p2, p3);
-							handler.addLine(pos, transformation, p3, p4);
-							handler.addLine(pos, transformation, p4, p1);
-							handler.endPath(pos, Exposure.OFF);
-						}
-						{
-							handler.beginPath(pos);
-							CoordinatePoint p1 = center.plus(outerRadius, gap);
-							CoordinatePoint p2 = center.plus(outerRadius, -gap);
-							CoordinatePoint p3 = center.minus(outerRadius, gap);
-							CoordinatePoint p4 = center.plus(-outerRadius, gap);
-							handler.addLine(pos, transformation, p1, p2);
-							handler.addLine(pos, transformation, p2, p3);
-							handler.addLine(pos, transformation, p3, p4);
-							handler.addLine(pos, transformation, p4, p1);
-							handler.endPath(pos, Exposure.OFF);
-						}
-
-					}
+				handler.beginPath(pos);
+				handler.addCircularArc(pos, transformation, center, outerRadius, 0, 360);
+				handler.endPath(pos, Exposure.ON);
+				handler.beginPath(pos);
+				handler.addCircularArc(pos, transformation, center, innerDiameter / 2, 0, 360);
+				handler.endPath(pos, Exposure.OFF);
 
-				});
+				gap = gap / 2;
+				{
+					handler.beginPath(pos);
+					CoordinatePoint p1 = center.plus(-gap, outerRadius);
+					CoordinatePoint p2 = center.plus(gap, outerRadius);
+					CoordinatePoint p3 = center.plus(gap, -outerRadius);
+					CoordinatePoint p4 = center.minus(gap, outerRadius);
+					handler.addLine(pos, transformation, p1, p2);
+					handler.addLine(pos, transformation, p2, p3);
+					handler.addLine(pos, transformation, p3, p4);
+					handler.addLine(pos, transformation, p4, p1);
+					handler.endPath(pos, Exposure.OFF);
+				}
+				{
+					handler.beginPath(pos);
+					CoordinatePoint p1 = center.plus(outerRadius, gap);
+					CoordinatePoint p2 = center.plus(outerRadius, -gap);
+					CoordinatePoint p3 = center.minus(outerRadius, gap);
+					CoordinatePoint p4 = center.plus(-outerRadius, gap);
+					handler.addLine(pos, transformation, p1, p2);
+					handler.addLine(pos, transformation, p2, p3);
+					handler.addLine(pos, transformation, p3, p4);
+					handler.addLine(pos, transformation, p4, p1);
+					handler.endPath(pos, Exposure.OFF);
+				}
+			}
+				break;
+			default:
+				throw new UnsupportedOperationException();
 			}
 		}
+	}
 
-		handler.endObject(pos, polarity);
+	private void addRectangle(GerberReadGeometricPrimitiveEventHandler handler, InputPosition pos,
+			CoordinateTransformation transformation, Exposure exposure, CoordinatePoint p1, CoordinatePoint p2,
+			CoordinatePoint p3, CoordinatePoint p4) {
+		handler.beginPath(pos);
+		handler.addLine(pos, transformation, p1, p2);
+		handler.addLine(pos, transformation, p2, p3);
+		handler.addLine(pos, transformation, p3, p4);
+		handler.addLine(pos, transformation, p4, p1);
+		handler.endPath(pos, exposure);
 	}
 
 	@Override
@@ -612,8 +655,8 @@ public class GerberReadGeometricPrimitiveAdapter extends GerberReadGraphicsEvent
 				switch (quadrantMode) {
 				case MULTI: {
 					var radius = params.ij.length();
-					handler.addArc(params.pos, params.transformation, start.minus(radius, radius), radius * 2,
-							radius * 2, 0, clockWise ? -360 : 360);
+					handler.addCircularArc(params.pos, params.transformation, start, radius, 0,
+							clockWise ? -360 : 360);
 				}
 					break;
 				case SINGLE:
@@ -622,18 +665,16 @@ public class GerberReadGeometricPrimitiveAdapter extends GerberReadGraphicsEvent
 				default:
 					throw new UnsupportedOperationException();
 				}
-			} else {
-
-				CoordinatePoint center = calculateCircleCenter(start, end, params.ij, quadrantMode, clockWise);
-				double startAngle = center.vectorTo(start).angle();
-				double endAngle = center.vectorTo(end).angle();
+			} else if (calculateCircleCenter(start, end, params.ij, quadrantMode, clockWise, center)) {
+				double startAngle = v1.setVector(center, start).angle();
+				double endAngle = v2.setVector(center, end).angle();
 
-				double radius = center.vectorTo(start).length();
-				double diameter = radius * 2;
+				double radius = v1.length();
 
-				handler.addArc(params.pos, params.transformation, center.minus(radius, radius), diameter, diameter,
-						startAngle, angle(startAngle, endAngle, clockWise));
-			}
+				handler.addCircularArc(params.pos, params.transformation, center.toPoint(), radius, startAngle,
+						angle(startAngle, endAngle, clockWise));
+			} else
+				warningCollector.add(params.pos, "Unable to determine the center of the arc");
 		} else
 			warningCollector.add(params.pos, "Unsupported interpolationMode " + interpolationMode);
 	}
@@ -0,0 +1,35 @@
+package com.github.ruediste.gerberLib.readGeometricPrimitive;
+
+import java.util.List;
+
+import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
+
+/**
+ * Extension of the {@link GerberReadGeometricPrimitiveEventHandler} receiving
+ * step and repeat blocks and flashes of block apertures as instances of a
+ * block. A block is defined once and then placed with the transformations of
+ * all its instances, allowing to process the block once and reuse the result.
+ *
+ * <p>
+ * Placing a block is equivalent to
+ *
+ * <pre>
+ * for (CoordinateTransformation transformation : transformations)
+ * 	block.replayTransformed(this, transformation);
+ * </pre>
+ *
+ * Blocks producing warnings are still reported as primitives.
+ */
+public interface GerberReadGeometricPrimitiveBlockEventHandler extends GerberReadGeometricPrimitiveEventHandler {
+
+	/**
+	 * Define a block. The block contains complete objects in block coordinates
+	 * and must not be modified.
+	 */
+	void defineBlock(int id, GerberReadGeometricPrimitiveEventRecorder block);
+
+	/**
+	 * Place a block previously defined, once for each transformation
+	 */
+	void placeBlock(int id, List<CoordinateTransformation> transformations);
+}
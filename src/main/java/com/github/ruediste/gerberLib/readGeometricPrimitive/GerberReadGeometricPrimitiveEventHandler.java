@@ -37,6 +37,22 @@ public interface GerberReadGeometricPrimitiveEventHandler {
 	void addArc(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint p, double w, double h,
 			double angSt, double angExt);
 
+	/**
+	 * Add an arc of a circle. By default, the arc is passed on to
+	 * {@link #addArc}. Handlers with a native representation of circular arcs
+	 * can override this method to avoid converting them.
+	 * 
+	 * @param center The center of the circle.
+	 * @param radius The radius of the circle.
+	 * @param angSt  The starting angle of the arc in degrees.
+	 * @param angExt The angular extent of the arc in degrees.
+	 */
+	default void addCircularArc(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint center,
+			double radius, double angSt, double angExt) {
+		addArc(pos, transformation, CoordinatePoint.of(center.x - radius, center.y - radius), radius * 2, radius * 2,
+				angSt, angExt);
+	}
+
 	void endPath(InputPosition pos, Exposure exposure);
 
 	void endObject(InputPosition pos, Polarity polarity);
@@ -0,0 +1,287 @@
+package com.github.ruediste.gerberLib.readGeometricPrimitive;
+
+import java.awt.geom.AffineTransform;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
+import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
+import com.github.ruediste.gerberLib.parser.InputPosition;
+import com.github.ruediste.gerberLib.parser.InputPositionTable;
+import com.github.ruediste.gerberLib.read.Polarity;
+
+/**
+ * Records the geometric primitive events in primitive arrays, to replay them
+ * later or to store them (see {@link #write(DataOutput)}).
+ *
+ * <p>
+ * Transformations are stored once per distinct instance. Handlers relying on
+ * the identity of the transformation instances see the same sharing pattern
+ * on replay.
+ */
+public class GerberReadGeometricPrimitiveEventRecorder implements GerberReadGeometricPrimitiveEventHandler {
+
+	private static final int BEGIN_OBJECT = 0;
+	private static final int BEGIN_PATH = 1;
+	private static final int ADD_LINE = 2;
+	private static final int ADD_ARC = 3;
+	private static final int END_PATH = 4;
+	private static final int END_OBJECT = 5;
+	private static final int ADD_CIRCULAR_ARC = 6;
+
+	private static final Exposure[] EXPOSURES = Exposure.values();
+	private static final Polarity[] POLARITIES = Polarity.values();
+
+	private int[] ints = new int[1024];
+	private int intCount;
+	private double[] doubles = new double[1024];
+	private int doubleCount;
+
+	private final List<CoordinateTransformation> transformations = new ArrayList<>();
+	private final Map<CoordinateTransformation, Integer> transformationIndexes = new IdentityHashMap<>();
+	private InputPositionTable positions = new InputPositionTable();
+
+	private void addInt(int value) {
+		if (intCount == ints.length)
+			ints = Arrays.copyOf(ints, ints.length * 2);
+		ints[intCount++] = value;
+	}
+
+	private void addDouble(double value) {
+		if (doubleCount == doubles.length)
+			doubles = Arrays.copyOf(doubles, doubles.length * 2);
+		doubles[doubleCount++] = value;
+	}
+
+	private void event(int code, InputPosition pos) {
+		addInt(code);
+		addInt(pos.inputIndex);
+		addInt(positions.id(pos));
+	}
+
+	private void addTransformation(CoordinateTransformation transformation) {
+		Integer idx = transformationIndexes.get(transformation);
+		if (idx == null) {
+			idx = transformations.size();
+			transformations.add(transformation);
+			transformationIndexes.put(transformation, idx);
+		}
+		addInt(idx);
+	}
+
+	@Override
+	public void beginObject(InputPosition pos) {
+		event(BEGIN_OBJECT, pos);
+	}
+
+	@Override
+	public void beginPath(InputPosition pos) {
+		event(BEGIN_PATH, pos);
+	}
+
+	@Override
+	public void addLine(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint p1,
+			CoordinatePoint p2) {
+		event(ADD_LINE, pos);
+		addTransformation(transformation);
+		addDouble(p1.x);
+		addDouble(p1.y);
+		addDouble(p2.x);
+		addDouble(p2.y);
+	}
+
+	@Override
+	public void addArc(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint p, double w,
+			double h, double angSt, double angExt) {
+		event(ADD_ARC, pos);
+		addTransformation(transformation);
+		addDouble(p.x);
+		addDouble(p.y);
+		addDouble(w);
+		addDouble(h);
+		addDouble(angSt);
+		addDouble(angExt);
+	}
+
+	@Override
+	public void addCircularArc(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint center,
+			double radius, double angSt, double angExt) {
+		event(ADD_CIRCULAR_ARC, pos);
+		addTransformation(transformation);
+		addDouble(center.x);
+		addDouble(center.y);
+		addDouble(radius);
+		addDouble(angSt);
+		addDouble(angExt);
+	}
+
+	@Override
+	public void endPath(InputPosition pos, Exposure exposure) {
+		event(END_PATH, pos);
+		addInt(exposure.ordinal());
+	}
+
+	@Override
+	public void endObject(InputPosition pos, Polarity polarity) {
+		event(END_OBJECT, pos);
+		addInt(polarity.ordinal());
+	}
+
+	/**
+	 * Pass all recorded events to the handler, in the order they were recorded
+	 */
+	public void replay(GerberReadGeometricPrimitiveEventHandler handler) {
+		replay(handler, null, null);
+	}
+
+	/**
+	 * Pass all recorded events to the handler, replacing the recorded positions
+	 * and transformations by the given ones. Used to place recorded shapes.
+	 */
+	public void replay(GerberReadGeometricPrimitiveEventHandler handler, InputPosition position,
+			CoordinateTransformation transformation) {
+		replay(handler, position, transformation, null);
+	}
+
+	/**
+	 * Pass all recorded events to the handler, preceding the recorded
+	 * transformations by the given one. Used to place recorded blocks.
+	 */
+	public void replayTransformed(GerberReadGeometricPrimitiveEventHandler handler,
+			CoordinateTransformation transformation) {
+		CoordinateTransformation[] transformed = new CoordinateTransformation[transformations.size()];
+		for (int k = 0; k < transformed.length; k++)
+			transformed[k] = transformation.concatenated(transformations.get(k));
+		replay(handler, null, null, transformed);
+	}
+
+	/**
+	 * @param transformation if not null, replaces all recorded transformations
+	 * @param transformed    if not null, replaces the recorded transformations by
+	 *                       index
+	 */
+	private void replay(GerberReadGeometricPrimitiveEventHandler handler, InputPosition position,
+			CoordinateTransformation transformation, CoordinateTransformation[] transformed) {
+		PathPacker packer = null;
+		if (handler instanceof GerberReadGeometricPrimitivePackedPathEventHandler) {
+			packer = new PathPacker((GerberReadGeometricPrimitivePackedPathEventHandler) handler);
+			handler = packer;
+		}
+		int i = 0;
+		int d = 0;
+		while (i < intCount) {
+			int code = ints[i++];
+			InputPosition pos = position;
+			if (pos == null)
+				pos = positions.position(ints[i], ints[i + 1]);
+			i += 2;
+			switch (code) {
+			case BEGIN_OBJECT:
+				handler.beginObject(pos);
+				break;
+			case BEGIN_PATH:
+				handler.beginPath(pos);
+				break;
+			case ADD_LINE: {
+				CoordinateTransformation t = transformation(ints[i], transformation, transformed);
+				i++;
+				if (packer != null)
+					packer.addLine(pos, t, doubles[d], doubles[d + 1], doubles[d + 2], doubles[d + 3]);
+				else
+					handler.addLine(pos, t, CoordinatePoint.of(doubles[d], doubles[d + 1]),
+							CoordinatePoint.of(doubles[d + 2], doubles[d + 3]));
+				d += 4;
+				break;
+			}
+			case ADD_ARC: {
+				CoordinateTransformation t = transformation(ints[i], transformation, transformed);
+				i++;
+				if (packer != null)
+					packer.addArc(pos, t, doubles[d], doubles[d + 1], doubles[d + 2], doubles[d + 3], doubles[d + 4],
+							doubles[d + 5]);
+				else
+					handler.addArc(pos, t, CoordinatePoint.of(doubles[d], doubles[d + 1]), doubles[d + 2],
+							doubles[d + 3], doubles[d + 4], doubles[d + 5]);
+				d += 6;
+				break;
+			}
+			case ADD_CIRCULAR_ARC: {
+				CoordinateTransformation t = transformation(ints[i], transformation, transformed);
+				i++;
+				if (packer != null)
+					packer.addCircularArc(pos, t, doubles[d], doubles[d + 1], doubles[d + 2], doubles[d + 3],
+							doubles[d + 4]);
+				else
+					handler.addCircularArc(pos, t, CoordinatePoint.of(doubles[d], doubles[d + 1]), doubles[d + 2],
+							doubles[d + 3], doubles[d + 4]);
+				d += 5;
+				break;
+			}
+			case END_PATH:
+				handler.endPath(pos, EXPOSURES[ints[i++]]);
+				break;
+			case END_OBJECT:
+				handler.endObject(pos, POLARITIES[ints[i++]]);
+				break;
+			default:
+				throw new IllegalStateException("Unknown event code " + code);
+			}
+		}
+	}
+
+	private CoordinateTransformation transformation(int index, CoordinateTransformation transformation,
+			CoordinateTransformation[] transformed) {
+		if (transformation != null)
+			return transformation;
+		if (transformed != null)
+			return transformed[index];
+		return transformations.get(index);
+	}
+
+	/**
+	 * Write the recorded events. Read them back using {@link #read(DataInput)}.
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(transformations.size());
+		double[] matrix = new double[6];
+		for (CoordinateTransformation t : transformations) {
+			t.inner.getMatrix(matrix);
+			for (double value : matrix)
+				out.writeDouble(value);
+		}
+		positions.write(out);
+		out.writeInt(intCount);
+		for (int i = 0; i < intCount; i++)
+			out.writeInt(ints[i]);
+		out.writeInt(doubleCount);
+		for (int i = 0; i < doubleCount; i++)
+			out.writeDouble(doubles[i]);
+	}
+
+	public static GerberReadGeometricPrimitiveEventRecorder read(DataInput in) throws IOException {
+		GerberReadGeometricPrimitiveEventRecorder result = new GerberReadGeometricPrimitiveEventRecorder();
+		int transformationCount = in.readInt();
+		for (int i = 0; i < transformationCount; i++) {
+			double[] matrix = new double[6];
+			for (int j = 0; j < 6; j++)
+				matrix[j] = in.readDouble();
+			result.transformations.add(CoordinateTransformation.of(new AffineTransform(matrix)));
+		}
+		result.positions = InputPositionTable.read(in);
+		result.intCount = in.readInt();
+		result.ints = new int[Math.max(16, result.intCount)];
+		for (int i = 0; i < result.intCount; i++)
+			result.ints[i] = in.readInt();
+		result.doubleCount = in.readInt();
+		result.doubles = new double[Math.max(16, result.doubleCount)];
+		for (int i = 0; i < result.doubleCount; i++)
+			result.doubles[i] = in.readDouble();
+		return result;
+	}
+}
@@ -0,0 +1,26 @@
+package com.github.ruediste.gerberLib.readGeometricPrimitive;
+
+import com.github.ruediste.gerberLib.parser.InputPosition;
+
+/**
+ * Extension of the {@link GerberReadGeometricPrimitiveEventHandler} receiving
+ * each path in a single call, with the segments packed into an array. Calling
+ * {@link #path} is equivalent to
+ *
+ * <pre>
+ * beginPath(pos);
+ * path.replay(this, pos);
+ * endPath(pos, exposure);
+ * </pre>
+ *
+ * Paths whose segments use different transformations are still passed as
+ * individual segments.
+ */
+public interface GerberReadGeometricPrimitivePackedPathEventHandler extends GerberReadGeometricPrimitiveEventHandler {
+
+	/**
+	 * Add a path to the current object. The path is reused after the call
+	 * returns and must not be kept.
+	 */
+	void path(InputPosition pos, PackedPath path, Exposure exposure);
+}
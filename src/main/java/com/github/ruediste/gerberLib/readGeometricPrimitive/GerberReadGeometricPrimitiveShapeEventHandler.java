@@ -0,0 +1,36 @@
+package com.github.ruediste.gerberLib.readGeometricPrimitive;
+
+import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
+import com.github.ruediste.gerberLib.parser.InputPosition;
+import com.github.ruediste.gerberLib.read.Polarity;
+
+/**
+ * Extension of the {@link GerberReadGeometricPrimitiveEventHandler} receiving
+ * flashes of standard and macro apertures as shapes. A shape is defined once
+ * per aperture and then placed for each flash, allowing to process the shape
+ * once and reuse the result.
+ *
+ * <p>
+ * Placing a shape is equivalent to
+ *
+ * <pre>
+ * beginObject(pos);
+ * shape.replay(this, pos, transformation);
+ * endObject(pos, polarity);
+ * </pre>
+ *
+ * Flashes of apertures producing warnings are still reported as primitives.
+ */
+public interface GerberReadGeometricPrimitiveShapeEventHandler extends GerberReadGeometricPrimitiveEventHandler {
+
+	/**
+	 * Define a shape. The shape contains the paths (beginPath, addLine, addArc
+	 * and endPath) in aperture coordinates and must not be modified.
+	 */
+	void defineShape(int id, GerberReadGeometricPrimitiveEventRecorder shape);
+
+	/**
+	 * Place a shape previously defined, as a separate object
+	 */
+	void placeShape(InputPosition pos, int id, CoordinateTransformation transformation, Polarity polarity);
+}
@@ -0,0 +1,124 @@
+package com.github.ruediste.gerberLib.readGeometricPrimitive;
+
+import java.util.Arrays;
+
+import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
+import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
+import com.github.ruediste.gerberLib.parser.InputPosition;
+
+/**
+ * The segments of a path, packed into a double array. Each segment starts
+ * with its type, followed by its parameters:
+ * 
+ * <ul>
+ * <li>{@link #LINE}: x1, y1, x2, y2</li>
+ * <li>{@link #ARC}: x, y, w, h, angSt, angExt, see
+ * {@link GerberReadGeometricPrimitiveEventHandler#addArc}</li>
+ * <li>{@link #CIRCULAR_ARC}: centerX, centerY, radius, angSt, angExt, see
+ * {@link GerberReadGeometricPrimitiveEventHandler#addCircularArc}</li>
+ * </ul>
+ * 
+ * All segments use the same transformation. Iterate the segments as follows:
+ * 
+ * <pre>
+ * for (int i = 0; i &lt; path.size; i += PackedPath.segmentLength((int) path.data[i])) {
+ * 	switch ((int) path.data[i]) {
+ * 	...
+ * 	}
+ * }
+ * </pre>
+ */
+public class PackedPath {
+	public static final int LINE = 0;
+	public static final int ARC = 1;
+	public static final int CIRCULAR_ARC = 2;
+
+	public CoordinateTransformation transformation = CoordinateTransformation.IDENTITY;
+
+	/**
+	 * The segments. Only the first {@link #size} entries are valid.
+	 */
+	public double[] data = new double[64];
+	public int size;
+
+	/**
+	 * Number of entries of a segment of the given type, including the type
+	 */
+	public static int segmentLength(int type) {
+		switch (type) {
+		case LINE:
+			return 5;
+		case ARC:
+			return 7;
+		case CIRCULAR_ARC:
+			return 6;
+		default:
+			throw new IllegalArgumentException("Unknown segment type " + type);
+		}
+	}
+
+	public void clear() {
+		transformation = CoordinateTransformation.IDENTITY;
+		size = 0;
+	}
+
+	private void ensureCapacity(int count) {
+		if (size + count > data.length)
+			data = Arrays.copyOf(data, Math.max(data.length * 2, size + count));
+	}
+
+	public void addLine(double x1, double y1, double x2, double y2) {
+		ensureCapacity(5);
+		data[size++] = LINE;
+		data[size++] = x1;
+		data[size++] = y1;
+		data[size++] = x2;
+		data[size++] = y2;
+	}
+
+	public void addArc(double x, double y, double w, double h, double angSt, double angExt) {
+		ensureCapacity(7);
+		data[size++] = ARC;
+		data[size++] = x;
+		data[size++] = y;
+		data[size++] = w;
+		data[size++] = h;
+		data[size++] = angSt;
+		data[size++] = angExt;
+	}
+
+	public void addCircularArc(double centerX, double centerY, double radius, double angSt, double angExt) {
+		ensureCapacity(6);
+		data[size++] = CIRCULAR_ARC;
+		data[size++] = centerX;
+		data[size++] = centerY;
+		data[size++] = radius;
+		data[size++] = angSt;
+		data[size++] = angExt;
+	}
+
+	/**
+	 * Pass the segments to the handler as individual addLine, addArc and
+	 * addCircularArc events
+	 */
+	public void replay(GerberReadGeometricPrimitiveEventHandler handler, InputPosition pos) {
+		for (int i = 0; i < size; i += segmentLength((int) data[i])) {
+			switch ((int) data[i]) {
+			case LINE:
+				handler.addLine(pos, transformation, CoordinatePoint.of(data[i + 1], data[i + 2]),
+						CoordinatePoint.of(data[i + 3], data[i + 4]));
+				break;
+			case ARC:
+				handler.addArc(pos, transformation, CoordinatePoint.of(data[i + 1], data[i + 2]), data[i + 3],
+						data[i + 4], data[i + 5], data[i + 6]);
+				break;
+			case CIRCULAR_ARC:
+				handler.addCircularArc(pos, transformation, CoordinatePoint.of(data[i + 1], data[i + 2]), data[i + 3],
+						data[i + 4], data[i + 5]);
+				break;
+			default:
+				throw new IllegalStateException();
+			}
+		}
+	}
+}
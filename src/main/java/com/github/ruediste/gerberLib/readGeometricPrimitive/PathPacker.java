@@ -0,0 +1,115 @@
+package com.github.ruediste.gerberLib.readGeometricPrimitive;
+
+import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
+import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
+import com.github.ruediste.gerberLib.parser.InputPosition;
+import com.github.ruediste.gerberLib.read.Polarity;
+
+/**
+ * Collects the segments of each path into a {@link PackedPath} and passes the
+ * path on in a single call
+ */
+class PathPacker implements GerberReadGeometricPrimitiveEventHandler {
+
+	private final GerberReadGeometricPrimitivePackedPathEventHandler target;
+	private final PackedPath path = new PackedPath();
+
+	/**
+	 * Set if the segments of the current path use different transformations.
+	 * The path is passed on as individual segments.
+	 */
+	private boolean unpacked;
+
+	PathPacker(GerberReadGeometricPrimitivePackedPathEventHandler target) {
+		this.target = target;
+	}
+
+	@Override
+	public void beginObject(InputPosition pos) {
+		target.beginObject(pos);
+	}
+
+	@Override
+	public void beginPath(InputPosition pos) {
+		path.clear();
+		unpacked = false;
+	}
+
+	@Override
+	public void addLine(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint p1,
+			CoordinatePoint p2) {
+		if (pack(pos, transformation))
+			path.addLine(p1.x, p1.y, p2.x, p2.y);
+		else
+			target.addLine(pos, transformation, p1, p2);
+	}
+
+	void addLine(InputPosition pos, CoordinateTransformation transformation, double x1, double y1, double x2,
+			double y2) {
+		if (pack(pos, transformation))
+			path.addLine(x1, y1, x2, y2);
+		else
+			target.addLine(pos, transformation, CoordinatePoint.of(x1, y1), CoordinatePoint.of(x2, y2));
+	}
+
+	@Override
+	public void addArc(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint p, double w,
+			double h, double angSt, double angExt) {
+		addArc(pos, transformation, p.x, p.y, w, h, angSt, angExt);
+	}
+
+	void addArc(InputPosition pos, CoordinateTransformation transformation, double x, double y, double w, double h,
+			double angSt, double angExt) {
+		if (pack(pos, transformation))
+			path.addArc(x, y, w, h, angSt, angExt);
+		else
+			target.addArc(pos, transformation, CoordinatePoint.of(x, y), w, h, angSt, angExt);
+	}
+
+	@Override
+	public void addCircularArc(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint center,
+			double radius, double angSt, double angExt) {
+		addCircularArc(pos, transformation, center.x, center.y, radius, angSt, angExt);
+	}
+
+	void addCircularArc(InputPosition pos, CoordinateTransformation transformation, double centerX, double centerY,
+			double radius, double angSt, double angExt) {
+		if (pack(pos, transformation))
+			path.addCircularArc(centerX, centerY, radius, angSt, angExt);
+		else
+			target.addCircularArc(pos, transformation, CoordinatePoint.of(centerX, centerY), radius, angSt, angExt);
+	}
+
+	/**
+	 * @return true if the segment can be added to the packed path
+	 */
+	private boolean pack(InputPosition pos, CoordinateTransformation transformation) {
+		if (unpacked)
+			return false;
+		if (path.size == 0) {
+			path.transformation = transformation;
+			return true;
+		}
+		if (path.transformation == transformation || path.transformation.equals(transformation))
+			return true;
+
+		// pass the segments collected so far on individually
+		target.beginPath(pos);
+		path.replay(target, pos);
+		unpacked = true;
+		return false;
+	}
+
+	@Override
+	public void endPath(InputPosition pos, Exposure exposure) {
+		if (unpacked)
+			target.endPath(pos, exposure);
+		else
+			target.path(pos, path, exposure);
+	}
+
+	@Override
+	public void endObject(InputPosition pos, Polarity polarity) {
+		target.endObject(pos, polarity);
+	}
+}
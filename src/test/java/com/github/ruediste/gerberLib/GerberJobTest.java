@@ -0,0 +1,57 @@
+package com.github.ruediste.gerberLib;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.read.GerberReadGraphicsAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveAdapter;
+
+public class GerberJobTest {
+
+	@Test
+	public void testMatchesSequential() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			var job = GerberJob.ofDirectory(Path.of("samples/kicadX3"), executor);
+			assertEquals(19, job.files.size());
+
+			var results = job.run(file -> new GerberBoundingBoxCollector());
+			assertEquals(job.files.size(), results.size());
+			for (var result : results) {
+				assertTrue(result.isSuccess(), result.toString());
+
+				WarningCollector warningCollector = new WarningCollector();
+				var expected = new GerberBoundingBoxCollector();
+				new GerberParser(new GerberReadGraphicsAdapter(warningCollector,
+						new GerberReadGeometricPrimitiveAdapter(warningCollector, expected)), result.file).file();
+
+				assertEquals(expected.getBounds(), result.handler.getBounds(), result.file.toString());
+				assertEquals(warningCollector.warnings.size(), result.warningCollector.warnings.size());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			var results = new GerberJob(List.of(Path.of("samples/missing.gbr")), executor)
+					.run(file -> new GerberBoundingBoxCollector());
+			assertEquals(1, results.size());
+			assertFalse(results.get(0).isSuccess());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
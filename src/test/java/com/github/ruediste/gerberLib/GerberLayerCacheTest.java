@@ -0,0 +1,85 @@
+package com.github.ruediste.gerberLib;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.read.GerberReadGraphicsAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventHandler;
+
+public class GerberLayerCacheTest {
+
+	@TempDir
+	Path cacheDir;
+
+	@Test
+	public void testHitMatchesParsing() throws IOException {
+		Path file = Path.of("samples/examples20201015/4-6-4_Nested_blocks.gbr");
+		List<String> expected = new ArrayList<>();
+		WarningCollector expectedWarnings = new WarningCollector();
+		new GerberParser(new GerberReadGraphicsAdapter(expectedWarnings,
+				new GerberReadGeometricPrimitiveAdapter(expectedWarnings, loggingHandler(expected))), file).file();
+
+		var cache = new GerberLayerCache(cacheDir, 100_000_000);
+		for (int i = 0; i < 2; i++) {
+			List<String> actual = new ArrayList<>();
+			WarningCollector warnings = new WarningCollector();
+			cache.read(file, warnings, loggingHandler(actual));
+			assertEquals(expected, actual);
+			assertEquals(expectedWarnings.toString(), warnings.toString());
+			assertEquals(1, entryCount());
+		}
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		var cache = new GerberLayerCache(cacheDir, 1);
+		cache.read(Path.of("samples/examples20201015/sample_macro.gbr"), new WarningCollector(),
+				new GerberBoundingBoxCollector());
+		assertEquals(0, entryCount());
+
+		cache = new GerberLayerCache(cacheDir, 100_000_000);
+		cache.read(Path.of("samples/examples20201015/sample_macro.gbr"), new WarningCollector(),
+				new GerberBoundingBoxCollector());
+		cache.read(Path.of("samples/examples20201015/SMD_prim_20.gbr"), new WarningCollector(),
+				new GerberBoundingBoxCollector());
+		assertEquals(2, entryCount());
+	}
+
+	private long entryCount() throws IOException {
+		try (Stream<Path> files = Files.list(cacheDir)) {
+			return files.count();
+		}
+	}
+
+	private GerberReadGeometricPrimitiveEventHandler loggingHandler(List<String> log) {
+		return (GerberReadGeometricPrimitiveEventHandler) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { GerberReadGeometricPrimitiveEventHandler.class }, (proxy, method, args) -> {
+					StringBuilder sb = new StringBuilder(method.getName());
+					for (Object arg : args) {
+						sb.append(" ");
+						if (arg instanceof CoordinateTransformation) {
+							double[] matrix = new double[6];
+							((CoordinateTransformation) arg).inner.getMatrix(matrix);
+							sb.append(Arrays.toString(matrix));
+						} else
+							sb.append(arg);
+					}
+					log.add(sb.toString());
+					return null;
+				});
+	}
+}
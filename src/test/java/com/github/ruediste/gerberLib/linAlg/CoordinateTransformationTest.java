@@ -0,0 +1,33 @@
+package com.github.ruediste.gerberLib.linAlg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.geom.AffineTransform;
+
+import org.junit.jupiter.api.Test;
+
+public class CoordinateTransformationTest {
+
+	@Test
+	public void testComposition() throws Exception {
+		var rotation = CoordinateTransformation.of(AffineTransform.getRotateInstance(0.3));
+		assertSame(rotation, rotation.concatenated(CoordinateTransformation.IDENTITY));
+		assertSame(rotation, CoordinateTransformation.IDENTITY.concatenated(rotation));
+		assertSame(rotation, rotation.translated(0, 0));
+		assertSame(CoordinateTransformation.IDENTITY, CoordinateTransformation.of(new AffineTransform()));
+
+		var translation = CoordinateTransformation.IDENTITY.translated(1, 2).translated(3, 4);
+		assertTrue(translation.isTranslation());
+		assertFalse(translation.translated(1, 1).concatenated(rotation).isTranslation());
+		assertEquals(CoordinatePoint.of(5, 7), translation.transform(CoordinatePoint.of(1, 1)));
+
+		var expected = new AffineTransform();
+		expected.translate(1, 2);
+		expected.translate(3, 4);
+		expected.concatenate(rotation.inner);
+		assertEquals(expected, translation.concatenated(rotation).inner);
+	}
+}
@@ -0,0 +1,27 @@
+package com.github.ruediste.gerberLib.linAlg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class MutableCoordinateVectorTest {
+
+	@Test
+	public void testMatchesImmutable() throws Exception {
+		var start = CoordinatePoint.of(1.3, -2.7);
+		var end = CoordinatePoint.of(-4.1, 0.35);
+
+		var expected = start.vectorTo(end).normal().normalize().scale(0.127).rotate(33);
+		var actual = new MutableCoordinateVector().setVector(start, end).normal().normalize().scale(0.127)
+				.rotate(33);
+		assertEquals(expected.x, actual.x);
+		assertEquals(expected.y, actual.y);
+		assertEquals(expected.angle(), actual.angle());
+
+		var direction = CoordinateVector.of(0.3, 1.7);
+		var projected = start.projectPointToLine(end, direction);
+		var mutableProjected = new MutableCoordinatePoint().set(start).projectPointToLine(end.x, end.y, direction.x,
+				direction.y);
+		assertEquals(projected, mutableProjected.toPoint());
+	}
+}
@@ -1,7 +1,9 @@
 package com.github.ruediste.gerberLib.parser;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 
@@ -22,6 +24,7 @@ public class BlockApertureTest {
 	public void test() {
 		WarningCollector warningCollector = new WarningCollector();
 		GerberReadGraphicsEventHandler handler = mock(GerberReadGraphicsEventHandler.class);
+		doCallRealMethod().when(handler).blockInstances(any(), any());
 		new GerberParser(new GerberReadGraphicsAdapter(warningCollector, handler),
 				"%FSLAX42Y42*%\n" + "%MOMM*%\n" + "%ADD10C,7.5*%\n" + "%ABD11*%\n" + "D10*\n" + "X200Y200D02*\n"
 						+ "Y300D01*\n" + "%AB*%\n" + "D11*\n" + "X500Y500D03*\n" + "X1000Y500D03*\n" + "M02*").file();
@@ -1,13 +1,24 @@
 package com.github.ruediste.gerberLib.parser;
 
+import static com.github.ruediste.gerberLib.parser.GerberParsingFixedPointEventHandler.J;
+import static com.github.ruediste.gerberLib.parser.GerberParsingFixedPointEventHandler.X;
+import static com.github.ruediste.gerberLib.parser.GerberParsingFixedPointEventHandler.Y;
+import static com.github.ruediste.gerberLib.parser.GerberParsingFixedPointEventHandler.digits;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 public class GerberParserTest {
 
@@ -35,4 +46,58 @@ public class GerberParserTest {
 		parser("G04 Hello World*").comment_G04();
 		verify(handler).comment(any(), eq(" Hello World"));
 	}
+
+	@Test
+	public void testOperationFastPath() throws Exception {
+		var parser = parser("X-100Y+200I3J4D01*X5D02*Y6D03*X1\nY2D01*");
+		parser.statement();
+		verify(handler).interpolateOperation(any(), eq("-100"), eq("+200"), eq("3"), eq("4"));
+		parser.statement();
+		verify(handler).moveOperation(any(), eq("5"), isNull());
+		parser.statement();
+		verify(handler).flashOperation(any(), isNull(), eq("6"));
+		assertEquals(31, parser.ctx.state.pos.getLinePos());
+
+		// new lines within the statement are left to the grammar
+		parser.statement();
+		verify(handler).interpolateOperation(any(), eq("1"), eq("2"), isNull(), isNull());
+		assertEquals(2, parser.ctx.state.pos.getLineNr());
+	}
+
+	@Test
+	public void testOperationFixedPoint() throws Exception {
+		var fixedPointHandler = mock(GerberParsingFixedPointEventHandler.class);
+		handler = fixedPointHandler;
+		var parser = parser("X-100J4D01*Y+6D03*X12345678901234567890D02*");
+		parser.statement();
+		verify(fixedPointHandler).interpolateOperation(any(),
+				intThat(present -> (present & 0xF) == (X | J) && digits(present, X) == 3 && digits(present, J) == 1),
+				eq(-100L), eq(0L), eq(0L), eq(4L));
+		parser.statement();
+		verify(fixedPointHandler).flashOperation(any(),
+				intThat(present -> (present & 0xF) == Y && digits(present, Y) == 1), eq(0L), eq(6L));
+
+		// too large for a long, reported as string
+		parser.statement();
+		verify(fixedPointHandler).moveOperation(any(), eq("12345678901234567890"), isNull());
+		verify(fixedPointHandler, never()).moveOperation(any(), anyInt(), anyLong(), anyLong());
+	}
+
+	@Test
+	public void testPositions() throws Exception {
+		var parser = parser("G04 a*\n%LPD*%\nM02*");
+		parser.file();
+
+		// resolved after the line index has been detached from the input
+		var positions = ArgumentCaptor.forClass(InputPosition.class);
+		verify(handler).comment(positions.capture(), eq(" a"));
+		verify(handler).loadPolarity(positions.capture(), any());
+		assertEquals("Line 1:1", positions.getAllValues().get(0).toString());
+		assertEquals("Line 2:1", positions.getAllValues().get(1).toString());
+
+		// the alternatives tried at the start of a statement share one copy
+		var ctx = parser.ctx;
+		ctx.state.pos.inputIndex = 7;
+		assertSame(ctx.copyPos(), ctx.copyPos());
+	}
 }
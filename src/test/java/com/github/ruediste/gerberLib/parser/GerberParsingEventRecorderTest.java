@@ -0,0 +1,67 @@
+package com.github.ruediste.gerberLib.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.ruediste.gerberLib.WarningCollector;
+import com.github.ruediste.gerberLib.read.GerberReadGraphicsAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventHandler;
+
+public class GerberParsingEventRecorderTest {
+
+	@Test
+	public void testReplayMatchesParsing() throws IOException {
+		List<Path> paths;
+		try (Stream<Path> files = Files.walk(Paths.get("samples"))) {
+			paths = files.filter(x -> x.toString().endsWith(".gbr")).sorted().collect(Collectors.toList());
+		}
+		for (Path path : paths) {
+			String content = Files.readString(path);
+
+			List<String> expected = new ArrayList<>();
+			new GerberParser(adapter(expected), content).file();
+
+			GerberParsingEventRecorder recorder = new GerberParsingEventRecorder();
+			new GerberParser(recorder, content).file();
+			List<String> actual = new ArrayList<>();
+			recorder.replay(adapter(actual));
+
+			assertEquals(expected, actual, path.toString());
+		}
+	}
+
+	/**
+	 * Adapter chain logging the geometric primitives, including the positions
+	 */
+	private GerberParsingEventHandler adapter(List<String> log) {
+		WarningCollector warningCollector = new WarningCollector();
+		var handler = (GerberReadGeometricPrimitiveEventHandler) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { GerberReadGeometricPrimitiveEventHandler.class },
+				(proxy, method, args) -> {
+					StringBuilder sb = new StringBuilder(method.getName());
+					for (Object arg : args) {
+						sb.append(" ");
+						if (arg instanceof InputPosition)
+							sb.append(arg).append("@").append(((InputPosition) arg).inputIndex);
+						else
+							sb.append(arg);
+					}
+					log.add(sb.toString());
+					return null;
+				});
+		return new GerberReadGraphicsAdapter(warningCollector,
+				new GerberReadGeometricPrimitiveAdapter(warningCollector, handler));
+	}
+}
@@ -2,6 +2,12 @@ package com.github.ruediste.gerberLib.parser;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.jupiter.api.Test;
 
 public class InputPositionTest {
@@ -11,12 +17,60 @@ public class InputPositionTest {
 	@Test
 	public void testLineWithMarker() throws Exception {
 		InputPosition pos = new InputPosition();
-		pos.lineNr = 2;
-		pos.linePos = 6;
 		pos.inputIndex = 16;
-		pos.lineStartIndex = 11;
+		pos.setLine(11, 2, 6);
 
 		assertEquals("\nSecond Line\n     ^", "\n" + pos.lineWithMarker(sampleText));
 	}
 
+	@Test
+	public void testLazyLine() throws Exception {
+		var lines = new LineIndex(new StringParsingInput(sampleText));
+		InputPosition pos = new InputPosition(16, lines);
+		assertEquals("Line 2:6", pos.toString());
+		assertEquals(11, pos.getLineStartIndex());
+
+		pos.inputIndex = 3;
+		assertEquals("Line 1:4", pos.toString());
+		assertEquals("Line 2:1", new InputPosition(11, lines).toString());
+	}
+
+	@Test
+	public void testDetach() throws Exception {
+		var lines = new LineIndex(new StringParsingInput(sampleText));
+		InputPosition pos = new InputPosition(16, lines);
+		lines.detach(16);
+		assertEquals("Line 2:6", pos.toString());
+		assertEquals("Line 1:4", new InputPosition(3, lines).toString());
+	}
+
+	@Test
+	public void testConcurrentResolve() throws Exception {
+		int lineCount = 10000;
+		int[] lineStarts = new int[lineCount];
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lineCount; i++) {
+			lineStarts[i] = sb.length();
+			sb.append("X").append(i).append("D01*\n");
+		}
+		var lines = new LineIndex(new StringParsingInput(sb.toString()));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				int first = t;
+				futures.add(executor.submit(() -> {
+					for (int i = first; i < lineCount; i += 4) {
+						var pos = new InputPosition(lineStarts[i] + 2, lines);
+						assertEquals("Line " + (i + 1) + ":3", pos.toString());
+					}
+				}));
+			}
+			for (var future : futures)
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
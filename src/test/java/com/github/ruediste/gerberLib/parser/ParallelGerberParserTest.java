@@ -0,0 +1,115 @@
+package com.github.ruediste.gerberLib.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+public class ParallelGerberParserTest {
+
+	@Test
+	public void testSplit() {
+		String input = "G04 a*\n%FSLAX26Y26*%\nG36*X1D02*X2D01*G37*%SRX2Y2I1J1*%X1D03*%SR*%%ABD10*%X1D03*%AB*%X3D03*M02*";
+		var chunks = ParallelGerberParser.split(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)), 1);
+		List<String> texts = new ArrayList<>();
+		for (var chunk : chunks)
+			texts.add(input.substring(chunk.start.inputIndex, chunk.end));
+		assertEquals(List.of("G04 a*", "\n%FSLAX26Y26*%", "\nG36*X1D02*X2D01*G37*", "%SRX2Y2I1J1*%X1D03*%SR*%",
+				"%ABD10*%X1D03*%AB*%", "X3D03*", "M02*"), texts);
+		assertEquals(2, chunks.get(2).start.getLineNr());
+		assertEquals(14, chunks.get(2).start.getLinePos());
+		assertEquals(3, chunks.get(3).start.getLineNr());
+		assertEquals(21, chunks.get(3).start.getLinePos());
+	}
+
+	@Test
+	public void testSamplesMatchSequential() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for (String name : new String[] { "samples/kicadX3/dvk-mx8m-bsb-F_Cu.gbr",
+					"samples/examples20201015/4-6-4_Nested_blocks.gbr", "samples/examples20201015/sample_macro.gbr",
+					"samples/2019 10 11 Component_layer_from_spec.gbr" }) {
+				Path path = Path.of(name);
+				for (var handlerType : List.of(GerberParsingFixedPointEventHandler.class,
+						GerberParsingEventHandler.class)) {
+					List<String> expected = new ArrayList<>();
+					new GerberParser(loggingHandler(expected, handlerType), Files.readString(path)).file();
+
+					List<String> actual = new ArrayList<>();
+					var parser = new ParallelGerberParser(loggingHandler(actual, handlerType), path, executor);
+					parser.targetChunkSize = 4096;
+					parser.file();
+					assertEquals(expected, actual, name);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testOriginalCoordinateStrings() throws Exception {
+		StringBuilder input = new StringBuilder("%FSLAX26Y26*%\n");
+		for (int i = 0; i < 100; i++)
+			input.append("X+00" + i + "Y-0001D02*\nX0120I+5J-006D01*\nY0D03*\n");
+		input.append("M02*");
+		ByteBuffer bytes = ByteBuffer.wrap(input.toString().getBytes(StandardCharsets.UTF_8));
+
+		List<String> expected = new ArrayList<>();
+		new GerberParser(loggingHandler(expected, GerberParsingEventHandler.class), input.toString()).file();
+		assertTrue(expected.contains("moveOperation Line 2:1@14/14 +000 -0001"), expected.get(1));
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<String> actual = new ArrayList<>();
+			var parser = new ParallelGerberParser(loggingHandler(actual, GerberParsingEventHandler.class), bytes,
+					executor);
+			parser.targetChunkSize = 256;
+			parser.file();
+			assertEquals(expected, actual);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSplitCount() throws Exception {
+		var chunks = ParallelGerberParser.split(
+				ByteBuffer.wrap(Files.readAllBytes(Path.of("samples/kicadX3/dvk-mx8m-bsb-F_Cu.gbr"))), 64 * 1024);
+		assertTrue(chunks.size() > 10, "" + chunks.size());
+	}
+
+	/**
+	 * Handler logging the events, including the positions
+	 */
+	private GerberParsingEventHandler loggingHandler(List<String> log,
+			Class<? extends GerberParsingEventHandler> handlerType) {
+		return (GerberParsingEventHandler) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { handlerType }, (proxy, method, args) -> {
+					StringBuilder sb = new StringBuilder(method.getName());
+					for (Object arg : args) {
+						sb.append(" ");
+						if (arg instanceof InputPosition)
+							sb.append(arg).append("@").append(((InputPosition) arg).inputIndex).append("/")
+									.append(((InputPosition) arg).getLineStartIndex());
+						else if (arg == null || arg instanceof String || arg instanceof Number || arg instanceof Enum
+								|| arg instanceof List)
+							sb.append(arg);
+						else
+							sb.append(arg.getClass().getSimpleName());
+					}
+					log.add(sb.toString());
+					return null;
+				});
+	}
+}
@@ -0,0 +1,80 @@
+package com.github.ruediste.gerberLib.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.ruediste.gerberLib.GerberBoundingBoxCollector;
+import com.github.ruediste.gerberLib.WarningCollector;
+import com.github.ruediste.gerberLib.read.GerberReadGraphicsAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveAdapter;
+
+public class ParsingInputTest {
+
+	@Test
+	public void testChannelUtf8() {
+		var input = new ChannelParsingInput(new ByteArrayInputStream("aä€😀b".getBytes(StandardCharsets.UTF_8)));
+		StringBuilder sb = new StringBuilder();
+		for (int idx = 0; !input.isEof(idx); idx = input.nextIndex(idx))
+			sb.appendCodePoint(input.codePointAt(idx));
+		assertEquals("aä€😀b", sb.toString());
+	}
+
+	@Test
+	public void testMappedUtf8() {
+		var input = new MappedParsingInput(ByteBuffer.wrap("aä€😀b".getBytes(StandardCharsets.UTF_8)));
+		StringBuilder sb = new StringBuilder();
+		for (int idx = 0; !input.isEof(idx); idx = input.nextIndex(idx))
+			sb.appendCodePoint(input.codePointAt(idx));
+		assertEquals("aä€😀b", sb.toString());
+	}
+
+	@Test
+	public void testComment() {
+		GerberParsingEventHandler handler = mock(GerberParsingEventHandler.class);
+		new GerberParser(handler, new ByteArrayInputStream("G04 Grüße*\nM02*".getBytes(StandardCharsets.UTF_8)))
+				.file();
+		verify(handler).comment(any(), eq(" Grüße"));
+	}
+
+	@Test
+	public void testSamplesMatchStringInput() throws IOException {
+		for (String name : new String[] { "samples/kicadX3/dvk-mx8m-bsb-F_Cu.gbr",
+				"samples/examples20201015/4-6-4_Nested_blocks.gbr", "samples/examples20201015/sample_macro.gbr" }) {
+			Path path = Paths.get(name);
+			String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+			var expected = bounds(collector -> new GerberParser(collector, content));
+
+			ChannelParsingInput input = new ChannelParsingInput(Channels.newChannel(Files.newInputStream(path)), 256);
+			var actual = bounds(collector -> new GerberParser(collector, input));
+			assertEquals(expected.getBounds(), actual.getBounds(), name);
+			assertTrue(input.bufferCapacity() <= 4096, "buffer grew to " + input.bufferCapacity());
+
+			var mapped = bounds(collector -> new GerberParser(collector, path));
+			assertEquals(expected.getBounds(), mapped.getBounds(), name);
+		}
+	}
+
+	private GerberBoundingBoxCollector bounds(Function<GerberParsingEventHandler, GerberParser> parserFactory) {
+		GerberBoundingBoxCollector collector = new GerberBoundingBoxCollector();
+		WarningCollector warningCollector = new WarningCollector();
+		parserFactory.apply(new GerberReadGraphicsAdapter(warningCollector,
+				new GerberReadGeometricPrimitiveAdapter(warningCollector, collector))).file();
+		return collector;
+	}
+}
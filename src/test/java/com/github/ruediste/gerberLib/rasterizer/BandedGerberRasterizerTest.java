@@ -0,0 +1,103 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.ruediste.gerberLib.GerberBoundingBoxCollector;
+import com.github.ruediste.gerberLib.WarningCollector;
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.read.GerberReadGraphicsAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventRecorder;
+
+public class BandedGerberRasterizerTest {
+
+	private GerberReadGeometricPrimitiveEventRecorder recorder;
+	private Rectangle2D bounds;
+	private double pointsPerMM;
+	private GerberRasterizer sequential;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		WarningCollector warningCollector = new WarningCollector();
+		String content = new String(Files.readAllBytes(Paths.get("samples/kicadX3/dvk-mx8m-bsb-F_Cu.gbr")),
+				StandardCharsets.UTF_8);
+		recorder = new GerberReadGeometricPrimitiveEventRecorder();
+		new GerberParser(new GerberReadGraphicsAdapter(warningCollector,
+				new GerberReadGeometricPrimitiveAdapter(warningCollector, recorder)), content).file();
+		var boundsCollector = new GerberBoundingBoxCollector();
+		recorder.replay(boundsCollector);
+		bounds = boundsCollector.getBounds();
+		pointsPerMM = 1000 / Math.max(bounds.getWidth(), bounds.getHeight());
+
+		sequential = new GerberRasterizer(bounds.getWidth() + 1, bounds.getHeight() + 1, 0.5 - bounds.getMinX(),
+				0.5 - bounds.getMinY(), pointsPerMM);
+		recorder.replay(sequential);
+	}
+
+	private BandedGerberRasterizer banded() {
+		var banded = new BandedGerberRasterizer(bounds.getWidth() + 1, bounds.getHeight() + 1,
+				0.5 - bounds.getMinX(), 0.5 - bounds.getMinY(), pointsPerMM, 100);
+		recorder.replay(banded);
+		return banded;
+	}
+
+	@Test
+	public void testPbm() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		banded().render(new PbmWriter(out));
+		byte[] pbm = out.toByteArray();
+
+		BufferedImage image = sequential.image;
+		byte[] header = ("P4\n" + image.getWidth() + " " + image.getHeight() + "\n")
+				.getBytes(StandardCharsets.US_ASCII);
+		assertArrayEquals(header, Arrays.copyOf(pbm, header.length));
+		int stride = (image.getWidth() + 7) / 8;
+		assertEquals(header.length + stride * image.getHeight(), pbm.length);
+		for (int y = 0; y < image.getHeight(); y++)
+			for (int x = 0; x < image.getWidth(); x++) {
+				boolean black = (pbm[header.length + y * stride + x / 8] & (0x80 >>> (x & 7))) != 0;
+				assertEquals(image.getRGB(x, y) == 0xff000000, black);
+			}
+	}
+
+	@Test
+	public void testPng() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		banded().render(new PngWriter(out));
+		assertSamePixels(sequential.image, ImageIO.read(new ByteArrayInputStream(out.toByteArray())));
+	}
+
+	@Test
+	public void testTiff(@TempDir Path dir) throws IOException {
+		File file = dir.resolve("image.tif").toFile();
+		banded().render(new TiffG4Writer(file));
+		assertSamePixels(sequential.image, ImageIO.read(file));
+	}
+
+	private void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		for (int y = 0; y < expected.getHeight(); y++)
+			for (int x = 0; x < expected.getWidth(); x++)
+				assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+	}
+}
@@ -0,0 +1,21 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class Java2dRendererBaseTest {
+
+	@Test
+	public void testArcSegmentCount() {
+		assertEquals(3, Java2dRendererBase.arcSegmentCount(1, 360, 10));
+		assertEquals(1, Java2dRendererBase.arcSegmentCount(1, 10, 10));
+		assertEquals(2, Java2dRendererBase.arcSegmentCount(1, -180, 10));
+
+		// a quarter segment deviates 1-cos(pi/4) from the arc
+		double tolerance = 1 - Math.cos(Math.PI / 4) + 1e-9;
+		assertEquals(4, Java2dRendererBase.arcSegmentCount(1, 360, tolerance));
+		assertEquals(6, Java2dRendererBase.arcSegmentCount(2, 360, tolerance));
+		assertEquals(2, Java2dRendererBase.arcSegmentCount(1, -180, tolerance));
+	}
+}
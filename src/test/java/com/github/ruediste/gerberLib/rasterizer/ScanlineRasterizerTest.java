@@ -0,0 +1,71 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.ruediste.gerberLib.read.Polarity;
+
+public class ScanlineRasterizerTest {
+
+	@Test
+	public void testMatchesJava2d() {
+		Random random = new Random(0);
+		int width = 150;
+		int height = 100;
+		for (int i = 0; i < 200; i++) {
+			double scale = 1.5 + random.nextDouble() * 30;
+			Path2D.Double path = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+			double size = width / scale;
+			path.append(new Arc2D.Double(random.nextDouble() * size, random.nextDouble() * size,
+					random.nextDouble() * size / 2, random.nextDouble() * size / 2, random.nextDouble() * 360,
+					random.nextDouble() * 720 - 360, Arc2D.OPEN), false);
+			path.moveTo(random.nextDouble() * size, random.nextDouble() * size);
+			for (int p = 0; p < 5; p++)
+				path.lineTo(random.nextDouble() * size * 1.4 - size * 0.2,
+						random.nextDouble() * size * 1.4 - size * 0.2);
+			path.closePath();
+
+			BufferedImage expected = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+			Graphics2D g = expected.createGraphics();
+			g.transform(AffineTransform.getTranslateInstance(0, height));
+			g.transform(AffineTransform.getScaleInstance(scale, -scale));
+			g.setColor(Color.WHITE);
+			g.fill(path);
+
+			ScanlineRasterizer rasterizer = new ScanlineRasterizer(width, height);
+			rasterizer.fill(path.getPathIterator(g.getTransform()), true);
+			for (int y = 0; y < height; y++)
+				for (int x = 0; x < width; x++)
+					assertEquals(expected.getRaster().getSample(x, y, 0) != 0, rasterizer.get(x, y),
+							"shape " + i + " at " + x + "," + y);
+		}
+	}
+
+	@Test
+	public void testMultiplyTo() {
+		BufferedImage target = new BufferedImage(100, 10, BufferedImage.TYPE_BYTE_BINARY);
+		ScanlineRasterizer rasterizer = new ScanlineRasterizer(100, 10);
+		rasterizer.fill(new Path2D.Double(new Rectangle(10, 2, 80, 5)).getPathIterator(null), true);
+		rasterizer.fill(new Path2D.Double(new Rectangle(20, 3, 10, 2)).getPathIterator(null), false);
+		rasterizer.multiplyTo(target, Polarity.CLEAR);
+		rasterizer.clear();
+		assertEquals(false, rasterizer.get(50, 4));
+
+		assertEquals(0, target.getRaster().getSample(9, 4, 0));
+		assertEquals(1, target.getRaster().getSample(10, 4, 0));
+		assertEquals(0, target.getRaster().getSample(25, 4, 0));
+		assertEquals(1, target.getRaster().getSample(89, 4, 0));
+		assertEquals(0, target.getRaster().getSample(90, 4, 0));
+		assertEquals(0, target.getRaster().getSample(50, 1, 0));
+	}
+}
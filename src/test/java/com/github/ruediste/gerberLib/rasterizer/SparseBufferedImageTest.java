@@ -1,5 +1,7 @@
 package com.github.ruediste.gerberLib.rasterizer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.geom.Arc2D;
@@ -32,4 +34,36 @@ public class SparseBufferedImageTest {
 		sparse.multiplyTo(target, Polarity.DARK);
 //		ImageIO.write(target, "png", new FileOutputStream("test.png"));
 	}
+
+	@Test
+	public void testBinaryTarget() {
+		for (int tileSize : new int[] { 10, 64 }) {
+			BufferedImage expected = createWhiteBinaryImage(150, 100);
+			{
+				Graphics2D g = expected.createGraphics();
+				g.setColor(Color.BLACK);
+				g.fill(new Arc2D.Double(10, 10, 120, 70, 0, 200, Arc2D.PIE));
+			}
+			BufferedImage target = createWhiteBinaryImage(150, 100);
+			SparseBufferedImage sparse = new SparseBufferedImage(150, 100, tileSize);
+			{
+				Graphics2D g = sparse.image.createGraphics();
+				g.setColor(Color.WHITE);
+				g.fill(new Arc2D.Double(10, 10, 120, 70, 0, 200, Arc2D.PIE));
+			}
+			sparse.multiplyTo(target, Polarity.DARK);
+			for (int y = 0; y < 100; y++)
+				for (int x = 0; x < 150; x++)
+					assertEquals(expected.getRGB(x, y), target.getRGB(x, y),
+							"tile size " + tileSize + " at " + x + "," + y);
+		}
+	}
+
+	private BufferedImage createWhiteBinaryImage(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, width, height);
+		return image;
+	}
 }
@@ -0,0 +1,52 @@
+package com.github.ruediste.gerberLib.rasterizer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.ruediste.gerberLib.GerberBoundingBoxCollector;
+import com.github.ruediste.gerberLib.WarningCollector;
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.read.GerberReadGraphicsAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveAdapter;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventRecorder;
+
+public class TiledGerberRasterizerTest {
+
+	@Test
+	public void testMatchesSequential() throws IOException {
+		WarningCollector warningCollector = new WarningCollector();
+		String content = new String(Files.readAllBytes(Paths.get("samples/kicadX3/dvk-mx8m-bsb-F_Cu.gbr")),
+				StandardCharsets.UTF_8);
+		var recorder = new GerberReadGeometricPrimitiveEventRecorder();
+		new GerberParser(new GerberReadGraphicsAdapter(warningCollector,
+				new GerberReadGeometricPrimitiveAdapter(warningCollector, recorder)), content).file();
+		var boundsCollector = new GerberBoundingBoxCollector();
+		recorder.replay(boundsCollector);
+		Rectangle2D bounds = boundsCollector.getBounds();
+		double pointsPerMM = 1000 / Math.max(bounds.getWidth(), bounds.getHeight());
+
+		var sequential = new GerberRasterizer(bounds.getWidth() + 1, bounds.getHeight() + 1, 0.5 - bounds.getMinX(),
+				0.5 - bounds.getMinY(), pointsPerMM);
+		recorder.replay(sequential);
+
+		var tiled = new TiledGerberRasterizer(bounds.getWidth() + 1, bounds.getHeight() + 1, 0.5 - bounds.getMinX(),
+				0.5 - bounds.getMinY(), pointsPerMM, 64);
+		recorder.replay(tiled);
+		tiled.render();
+
+		assertArrayEquals(data(sequential.image), data(tiled.image));
+	}
+
+	private byte[] data(BufferedImage image) {
+		return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+	}
+}
@@ -0,0 +1,47 @@
+package com.github.ruediste.gerberLib.read;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.github.ruediste.gerberLib.parser.GerberMacroBodyParser.MacroBody;
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.parser.GerberParsingEventHandler;
+
+public class CompiledMacroTest {
+
+	@Test
+	public void testExecute() {
+		GerberParsingEventHandler handler = mock(GerberParsingEventHandler.class);
+		new GerberParser(handler,
+				"%AMTEST*\n0 comment*\n$5=$1/2-$3*\n$6=-$5x2*\n21,1,$1,$2-$6,$9,(1+2)x3,$4*\n1,0,$5,0,0*%\nM02*").file();
+		ArgumentCaptor<MacroBody> body = ArgumentCaptor.forClass(MacroBody.class);
+		verify(handler).apertureMacro(any(), eq("TEST"), body.capture());
+
+		CompiledMacro macro = CompiledMacro.compile(body.getValue());
+		assertEquals(4, macro.statementCount());
+		assertEquals(6, macro.maxArgumentCount);
+
+		double[] registers = macro.createRegisters(List.of(1., 0.5, 0.2, 30.));
+		double[] args = new double[macro.maxArgumentCount];
+		assertEquals(CompiledMacro.DEFINITION, macro.execute(0, registers, args));
+		assertEquals(CompiledMacro.DEFINITION, macro.execute(1, registers, args));
+		assertEquals(-0.6, registers[6], 1e-12);
+
+		assertEquals(CompiledMacro.CENTER_LINE, macro.execute(2, registers, args));
+		assertEquals(6, macro.argumentCount(2));
+		assertArrayEquals(new double[] { 1, 1, 0.5 + 0.6, 0, 9, 30 }, args, 1e-12);
+
+		assertEquals(CompiledMacro.CIRCLE, macro.execute(3, registers, args));
+		assertEquals(4, macro.argumentCount(3));
+		assertEquals(0.3, args[1], 1e-12);
+	}
+}
@@ -0,0 +1,46 @@
+package com.github.ruediste.gerberLib.read;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.ruediste.gerberLib.WarningCollector;
+import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
+import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.parser.InputPosition;
+
+public class GerberReadGraphicsAdapterTest {
+
+	@Test
+	public void testCoordinatesIndependentOfParsingPath() {
+		// the new line within the statement forces the grammar instead of the
+		// fixed point fast path
+		for (String separator : new String[] { "", "\n" }) {
+			assertEquals(CoordinatePoint.of(12.3456, 0), flash("X123456" + separator + "Y0D03*"), separator);
+			assertEquals(CoordinatePoint.of(0.0005, -1.2), flash("X5" + separator + "Y-12000D03*"), separator);
+			assertEquals(CoordinatePoint.of(0.012, 0), flash("X+00120" + separator + "Y0D03*"), separator);
+			// more digits than specified by the format: the integer digits are
+			// taken from the left
+			assertEquals(CoordinatePoint.of(12.34567, 0), flash("X1234567" + separator + "Y0D03*"), separator);
+			assertEquals(CoordinatePoint.of(0.1234567, 0), flash("X001234567" + separator + "Y0D03*"), separator);
+		}
+	}
+
+	private CoordinatePoint flash(String operation) {
+		List<CoordinatePoint> flashes = new ArrayList<>();
+		WarningCollector warningCollector = new WarningCollector();
+		new GerberParser(new GerberReadGraphicsAdapter(warningCollector, new GerberReadGraphicsEventHandler() {
+			@Override
+			public void flash(InputPosition pos, CoordinateTransformation transformation, ApertureDefinition aperture,
+					Polarity polarity) {
+				flashes.add(transformation.transform(CoordinatePoint.of(0, 0)));
+			}
+		}), "%FSLAX24Y24*%\n%MOMM*%\n%ADD10C,0.1*%\nD10*\n" + operation + "\nM02*").file();
+		assertEquals(1, flashes.size());
+		return flashes.get(0);
+	}
+}
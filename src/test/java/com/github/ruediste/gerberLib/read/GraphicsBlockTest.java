@@ -0,0 +1,62 @@
+package com.github.ruediste.gerberLib.read;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.ruediste.gerberLib.WarningCollector;
+import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
+import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.parser.InputPosition;
+
+public class GraphicsBlockTest {
+
+	private static final String STEP_AND_REPEAT = "%FSLAX26Y26*%\n%MOMM*%\n%ADD10C,0.1*%\n%ADD11R,1X1*%\n"
+			+ "%SRX3Y2I5.0J2.0*%\nD10*\nX0Y0D02*\nX1000000Y0D01*\nD11*\nX0Y0D03*\n%SR*%\nM02*";
+
+	@Test
+	public void testStepAndRepeatInstances() {
+		List<GraphicsBlock> blocks = new ArrayList<>();
+		List<List<CoordinateTransformation>> instances = new ArrayList<>();
+		WarningCollector warningCollector = new WarningCollector();
+		new GerberParser(new GerberReadGraphicsAdapter(warningCollector, new GerberReadGraphicsEventHandler() {
+			@Override
+			public void blockInstances(GraphicsBlock block, List<CoordinateTransformation> transformations) {
+				blocks.add(block);
+				instances.add(transformations);
+			}
+		}), STEP_AND_REPEAT).file();
+
+		assertEquals(1, blocks.size());
+		assertEquals(2, blocks.get(0).size());
+		assertEquals(6, instances.get(0).size());
+		assertEquals(CoordinatePoint.of(10, 2), instances.get(0).get(5).transform(CoordinatePoint.of(0, 0)));
+	}
+
+	@Test
+	public void testStepAndRepeatReplay() {
+		List<CoordinatePoint> flashes = new ArrayList<>();
+		List<CoordinatePoint> interpolations = new ArrayList<>();
+		WarningCollector warningCollector = new WarningCollector();
+		new GerberParser(new GerberReadGraphicsAdapter(warningCollector, new GerberReadGraphicsEventHandler() {
+			@Override
+			public void interpolate(InterpolateParameter params) {
+				interpolations.add(params.transformation.transform(params.target));
+			}
+
+			@Override
+			public void flash(InputPosition pos, CoordinateTransformation transformation, ApertureDefinition aperture,
+					Polarity polarity) {
+				flashes.add(transformation.transform(CoordinatePoint.of(0, 0)));
+			}
+		}), STEP_AND_REPEAT).file();
+
+		assertEquals(List.of(CoordinatePoint.of(0, 0), CoordinatePoint.of(0, 2), CoordinatePoint.of(5, 0),
+				CoordinatePoint.of(5, 2), CoordinatePoint.of(10, 0), CoordinatePoint.of(10, 2)), flashes);
+		assertEquals(CoordinatePoint.of(11, 2), interpolations.get(5));
+	}
+}
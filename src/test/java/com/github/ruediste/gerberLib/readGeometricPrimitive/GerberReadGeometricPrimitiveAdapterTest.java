@@ -2,8 +2,24 @@ package com.github.ruediste.gerberLib.readGeometricPrimitive;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import org.junit.jupiter.api.Test;
 
+import com.github.ruediste.gerberLib.WarningCollector;
+import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
+import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
+import com.github.ruediste.gerberLib.parser.GerberParser;
+import com.github.ruediste.gerberLib.parser.InputPosition;
+import com.github.ruediste.gerberLib.read.GerberReadGraphicsAdapter;
+import com.github.ruediste.gerberLib.read.GraphicsBlock;
+import com.github.ruediste.gerberLib.read.Polarity;
+
 public class GerberReadGeometricPrimitiveAdapterTest {
 
 	@Test
@@ -21,4 +37,145 @@ public class GerberReadGeometricPrimitiveAdapterTest {
 
 	}
 
+	/**
+	 * Logs the events. The translations of the lines and arcs are collected
+	 * separately.
+	 */
+	private static class EventLog implements GerberReadGeometricPrimitiveEventHandler {
+		List<String> events = new ArrayList<>();
+		List<Double> translations = new ArrayList<>();
+
+		@Override
+		public void beginObject(InputPosition pos) {
+			events.add("beginObject");
+		}
+
+		@Override
+		public void beginPath(InputPosition pos) {
+			events.add("beginPath");
+		}
+
+		@Override
+		public void addLine(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint p1,
+				CoordinatePoint p2) {
+			events.add("line " + p1 + " " + p2);
+			translations.add(transformation.inner.getTranslateX());
+		}
+
+		@Override
+		public void addArc(InputPosition pos, CoordinateTransformation transformation, CoordinatePoint p, double w,
+				double h, double angSt, double angExt) {
+			events.add("arc " + p + " " + w + " " + h + " " + angSt + " " + angExt);
+			translations.add(transformation.inner.getTranslateX());
+		}
+
+		@Override
+		public void endPath(InputPosition pos, Exposure exposure) {
+			events.add("endPath " + exposure);
+		}
+
+		@Override
+		public void endObject(InputPosition pos, Polarity polarity) {
+			events.add("endObject " + polarity);
+		}
+	}
+
+	private static class ShapeEventLog extends EventLog implements GerberReadGeometricPrimitiveShapeEventHandler {
+
+		@Override
+		public void defineShape(int id, GerberReadGeometricPrimitiveEventRecorder shape) {
+			events.add("define " + id);
+		}
+
+		@Override
+		public void placeShape(InputPosition pos, int id, CoordinateTransformation transformation,
+				Polarity polarity) {
+			events.add("place " + id + " " + transformation.inner.getTranslateX());
+		}
+	}
+
+	private static class BlockEventLog extends EventLog implements GerberReadGeometricPrimitiveBlockEventHandler {
+
+		@Override
+		public void defineBlock(int id, GerberReadGeometricPrimitiveEventRecorder block) {
+			events.add("defineBlock " + id);
+		}
+
+		@Override
+		public void placeBlock(int id, List<CoordinateTransformation> transformations) {
+			events.add("placeBlock " + id + " " + transformations.stream()
+					.map(t -> t.getTranslateX() + "," + t.getTranslateY()).collect(Collectors.toList()));
+		}
+	}
+
+	private void parse(String input, GerberReadGeometricPrimitiveEventHandler handler) {
+		WarningCollector warningCollector = new WarningCollector();
+		parse(input, new GerberReadGeometricPrimitiveAdapter(warningCollector, handler), warningCollector);
+	}
+
+	private void parse(String input, GerberReadGeometricPrimitiveAdapter adapter, WarningCollector warningCollector) {
+		new GerberParser(new GerberReadGraphicsAdapter(warningCollector, adapter), input).file();
+		assertEquals(0, warningCollector.warnings.size());
+	}
+
+	private String serialize(GerberReadGeometricPrimitiveEventRecorder recorder) throws IOException {
+		var out = new ByteArrayOutputStream();
+		recorder.write(new DataOutputStream(out));
+		return out.toString("ISO-8859-1");
+	}
+
+	@Test
+	public void testMacroFlashedTwice() {
+		EventLog log = new EventLog();
+		parse("%FSLAX26Y26*%\n%MOMM*%\n%AMTWO*\n1,1,$1,0,0*\n21,0,$1,$2,0,0,30*%\n%ADD10TWO,1.0X0.5*%\n"
+				+ "D10*\nX0Y0D03*\nX10000000Y0D03*\nM02*", log);
+
+		int half = log.events.size() / 2;
+		assertEquals(List.of("beginObject", "beginPath"), log.events.subList(0, 2));
+		assertEquals(2, log.events.stream().filter(x -> x.equals("beginObject")).count());
+		assertEquals(log.events.subList(0, half), log.events.subList(half, log.events.size()));
+		assertEquals(List.of(0., 0., 0., 0., 0., 10., 10., 10., 10., 10.), log.translations);
+	}
+
+	@Test
+	public void testShapes() throws IOException {
+		String input = "%FSLAX26Y26*%\n%MOMM*%\n%ADD10C,1*%\n%ADD11R,1X2*%\nD10*\nX0Y0D03*\nD11*\nX1000000Y0D03*\n"
+				+ "D10*\nX2000000Y0D03*\nX0Y0D02*\nX1000000Y0D01*\nM02*";
+		ShapeEventLog log = new ShapeEventLog();
+		GerberReadGeometricPrimitiveEventRecorder expanded = new GerberReadGeometricPrimitiveEventRecorder();
+		parse(input, new CompoundGerberReadGeometricPrimitiveEventHandler(expanded, log));
+
+		assertEquals(List.of("define 0", "place 0 0.0", "define 1", "place 1 1.0", "place 0 2.0", "beginObject"),
+				log.events.subList(0, 6));
+
+		// the delegate not handling shapes receives the same primitives as without
+		// shapes
+		GerberReadGeometricPrimitiveEventRecorder direct = new GerberReadGeometricPrimitiveEventRecorder();
+		parse(input, direct);
+		assertEquals(serialize(direct), serialize(expanded));
+	}
+
+	@Test
+	public void testStepAndRepeatInstances() throws IOException {
+		String input = "%FSLAX26Y26*%\n%MOMM*%\n%ADD10C,0.1*%\n%ADD11R,1X1*%\n"
+				+ "%SRX2Y2I5.0J2.0*%\nD10*\nX0Y0D02*\nX1000000Y0D01*\nD11*\nX0Y0D03*\n%SR*%\nM02*";
+		BlockEventLog log = new BlockEventLog();
+		GerberReadGeometricPrimitiveEventRecorder expanded = new GerberReadGeometricPrimitiveEventRecorder();
+		parse(input, new CompoundGerberReadGeometricPrimitiveEventHandler(expanded, log));
+
+		assertEquals(List.of("defineBlock 0", "placeBlock 0 [0.0,0.0, 0.0,2.0, 5.0,0.0, 5.0,2.0]"), log.events);
+
+		// the delegate not handling blocks receives the same primitives as when
+		// replaying the block for each instance
+		GerberReadGeometricPrimitiveEventRecorder replayed = new GerberReadGeometricPrimitiveEventRecorder();
+		WarningCollector warningCollector = new WarningCollector();
+		parse(input, new GerberReadGeometricPrimitiveAdapter(warningCollector, replayed) {
+			@Override
+			public void blockInstances(GraphicsBlock block, List<CoordinateTransformation> transformations) {
+				for (CoordinateTransformation transformation : transformations)
+					block.replay(this, transformation);
+			}
+		}, warningCollector);
+		assertEquals(serialize(replayed), serialize(expanded));
+	}
 }
@@ -0,0 +1,64 @@
+package com.github.ruediste.gerberLib.readGeometricPrimitive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.ruediste.gerberLib.linAlg.CoordinatePoint;
+import com.github.ruediste.gerberLib.linAlg.CoordinateTransformation;
+import com.github.ruediste.gerberLib.parser.InputPosition;
+import com.github.ruediste.gerberLib.read.Polarity;
+import com.github.ruediste.gerberLib.readGeometricPrimitive.GerberReadGeometricPrimitiveEventHandler.Exposure;
+
+public class PathPackerTest {
+
+	private static class PackedRecorder extends GerberReadGeometricPrimitiveEventRecorder
+			implements GerberReadGeometricPrimitivePackedPathEventHandler {
+		List<Integer> pathSizes = new ArrayList<>();
+
+		@Override
+		public void path(InputPosition pos, PackedPath path, Exposure exposure) {
+			pathSizes.add(path.size);
+			beginPath(pos);
+			path.replay(this, pos);
+			endPath(pos, exposure);
+		}
+	}
+
+	@Test
+	public void testReplay() throws IOException {
+		InputPosition pos = new InputPosition();
+		var translation = CoordinateTransformation.translation(1, 2);
+		var expected = new GerberReadGeometricPrimitiveEventRecorder();
+		expected.beginObject(pos);
+		expected.beginPath(pos);
+		expected.addLine(pos, translation, CoordinatePoint.of(0, 0), CoordinatePoint.of(1, 0));
+		expected.addArc(pos, translation, CoordinatePoint.of(0, 0), 1, 1, 0, 180);
+		expected.addCircularArc(pos, translation, CoordinatePoint.of(0.5, 0.5), 0.5, 180, 180);
+		expected.endPath(pos, Exposure.ON);
+		expected.beginPath(pos);
+		expected.addLine(pos, translation, CoordinatePoint.of(0, 0), CoordinatePoint.of(1, 0));
+		expected.addLine(pos, CoordinateTransformation.IDENTITY, CoordinatePoint.of(1, 0), CoordinatePoint.of(0, 0));
+		expected.endPath(pos, Exposure.OFF);
+		expected.endObject(pos, Polarity.DARK);
+
+		var actual = new PackedRecorder();
+		expected.replay(new CompoundGerberReadGeometricPrimitiveEventHandler(actual));
+
+		// the second path mixes transformations and is not packed
+		assertEquals(List.of(18), actual.pathSizes);
+		assertEquals(serialize(expected), serialize(actual));
+	}
+
+	private String serialize(GerberReadGeometricPrimitiveEventRecorder recorder) throws IOException {
+		var out = new ByteArrayOutputStream();
+		recorder.write(new DataOutputStream(out));
+		return out.toString("ISO-8859-1");
+	}
+}